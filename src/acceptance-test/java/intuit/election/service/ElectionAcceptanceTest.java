@@ -4,18 +4,19 @@ import intuit.election.domain.Citizen;
 import intuit.election.domain.CitizenToken;
 import intuit.election.domain.Contender;
 import intuit.election.domain.Idea;
+import intuit.election.domain.LeaderboardEntry;
 import intuit.election.domain.Manifesto;
 import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.stub.SomeUniqueIdeas;
 import intuit.election.stub.StubbedEmailService;
-import lombok.Value;
-import lombok.experimental.Accessors;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -24,7 +25,9 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 
@@ -125,6 +128,21 @@ public class ElectionAcceptanceTest {
         assertThat(actualRating, is(citizensIdeaRating));
     }
 
+    @Test
+    public void ratingFromACitizenWhoIsNotRegisteredIsRejectedAndNotKept() {
+        Election election = givenAnElectionWithAContenderWithAManifestOfOneIdea();
+        CitizenToken unregisteredCitizen = new CitizenRegistry().register("unregistered citizen", SOME_EMAIL_ADDRESS);
+        Idea ideaOfTheContender = election.getContenders().iterator().next().getManifesto().getIdeas().iterator().next();
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Citizen is not registered");
+        try {
+            election.rateIdea(unregisteredCitizen, ideaOfTheContender, Rating.of(SOME_VALID_RATING_VALUE));
+        } finally {
+            assertThat(election.getLeaderboard(1, 10), is(empty()));
+        }
+    }
+
     @Test
     public void citizenCanDeleteTheirIdeaRating() {
         Election election = givenAnElectionWithAContenderWithAManifestOfOneIdea();
@@ -167,6 +185,24 @@ public class ElectionAcceptanceTest {
         assertThat("Email should be sent", emailService.messageSent(followerEmail, contender.getName()+" added new idea to manifesto: "+someNewIdea.getDescription()), is(true));
     }
 
+    @Test
+    public void followersOfAFollowerWillReceiveAnEmailWhenAContenderPostsANewIdea() {
+        Election election = givenAnElectionWithAContenderWithAManifestOfOneIdea();
+        Contender contender = election.getContenders().iterator().next();
+        CitizenToken followingContenderToken = election.register("following contender", "followingcontender@email.com");
+        election.nominateMyself(followingContenderToken);
+        election.postMyManifesto(followingContenderToken, Manifesto.of(Idea.of("some idea of the following contender")));
+        givenCitizenHasBecomeAFollowerOfTheContender(election, contender, followingContenderToken);
+        String followerOfFollowerEmail = "followeroffollower@email.com";
+        CitizenToken followerOfFollower = election.register("follower of follower", followerOfFollowerEmail);
+        givenCitizenHasBecomeAFollowerOfTheContender(election, election.getMyContenderDetails(followingContenderToken).get(), followerOfFollower);
+        Idea someNewIdea = Idea.of("some new idea");
+
+        election.addIdeaToMyManifesto(contender.getCitizenToken(), someNewIdea);
+
+        assertThat("Email should be sent", emailService.messageSent(followerOfFollowerEmail, contender.getName()+" added new idea to manifesto: "+someNewIdea.getDescription()), is(true));
+    }
+
     @Test
     public void contenderWithMaximumSumOfAvgRatingsPerIdeaIsTheWinner() {
         CitizenToken firstContenderToken = election.register("First election contender", "firstcontender@email");
@@ -187,8 +223,8 @@ public class ElectionAcceptanceTest {
         List<Integer> ratingsForFirstContender = Arrays.asList(1, 2, 3);
         List<Integer> ratingsForSecondContender = Arrays.asList(4, 5, 6);
 
-        rateIdeas(ideaRatingCitizen, firstContendersIdeas.ideaList, ratingsForFirstContender);
-        rateIdeas(ideaRatingCitizen, secondContendersIdeas.ideaList, ratingsForSecondContender);
+        rateIdeas(ideaRatingCitizen, firstContendersIdeas.ideaList(), ratingsForFirstContender);
+        rateIdeas(ideaRatingCitizen, secondContendersIdeas.ideaList(), ratingsForSecondContender);
 
         Contender expectedWinner = election.getMyContenderDetails(secondContenderToken).get();
 
@@ -197,6 +233,75 @@ public class ElectionAcceptanceTest {
         assertThat(actualWinner, is(expectedWinner));
     }
 
+    @Test
+    public void contenderIsRemovedFromTheElectionIfAnIdeaIsRatedLessThan5ByMoreThan3Voters() {
+        CitizenToken firstContenderToken = election.register("First election contender", "firstcontender@email");
+        CitizenToken secondContenderToken = election.register("Second election contender", "secondcontender@email");
+        Idea unpopularIdea = Idea.of("unpopular idea");
+        election.nominateMyself(firstContenderToken);
+        election.postMyManifesto(firstContenderToken, Manifesto.of(unpopularIdea, Idea.of("popular idea")));
+        election.nominateMyself(secondContenderToken);
+        election.postMyManifesto(secondContenderToken, Manifesto.of(Idea.of("average idea")));
+        CitizenToken someRater = election.register("some rater", "somerater@email");
+        election.rateIdea(someRater, Idea.of("popular idea"), Rating.of(10));
+        election.rateIdea(someRater, Idea.of("average idea"), Rating.of(5));
+
+        IntStream.range(0, 4).forEach(voter -> election.rateIdea(election.register("low rating voter " + voter, "voter" + voter + "@email"), unpopularIdea, Rating.of(4)));
+
+        Contender secondContender = election.getMyContenderDetails(secondContenderToken).get();
+        assertThat(election.getContenders(), contains(secondContender));
+        assertThat(election.getContenderWithHighestFinalRating(), is(Optional.of(secondContender)));
+    }
+
+    @Test
+    public void contendersAreRankedOnTheLeaderboardByTheirFinalRating() {
+        CitizenToken firstContenderToken = election.register("First election contender", "firstcontender@email");
+        CitizenToken secondContenderToken = election.register("Second election contender", "secondcontender@email");
+        CitizenToken ideaRatingCitizen = election.register("idea rating citizen", SOME_EMAIL_ADDRESS);
+
+        List<Idea> firstContendersIdeas = Arrays.asList(Idea.of("first idea"), Idea.of("second idea"), Idea.of("third idea"));
+        List<Idea> secondContendersIdeas = Arrays.asList(Idea.of("fourth idea"), Idea.of("fifth idea"), Idea.of("sixth idea"));
+
+        election.nominateMyself(firstContenderToken);
+        election.postMyManifesto(firstContenderToken, Manifesto.of(firstContendersIdeas.toArray(new Idea[0])));
+        election.nominateMyself(secondContenderToken);
+        election.postMyManifesto(secondContenderToken, Manifesto.of(secondContendersIdeas.toArray(new Idea[0])));
+
+        rateIdeas(ideaRatingCitizen, firstContendersIdeas, Arrays.asList(1, 2, 3));
+        rateIdeas(ideaRatingCitizen, secondContendersIdeas, Arrays.asList(4, 5, 6));
+
+        Contender firstContender = election.getMyContenderDetails(firstContenderToken).get();
+        Contender secondContender = election.getMyContenderDetails(secondContenderToken).get();
+
+        assertThat(election.getTopContenders(2), contains(secondContender, firstContender));
+        assertThat(election.getRank(firstContender), is(Optional.of(2)));
+        assertThat(election.getLeaderboard(2, 1), contains(LeaderboardEntry.of(2, firstContender, 6)));
+    }
+
+    @Test
+    public void citizensCanRateIdeasInABatchAndBecomeFollowersOfTheContendersTheyRateHighly() {
+        CitizenToken contenderToken = election.register("Batch rated contender", "batchcontender@email");
+        CitizenToken firstRaterToken = election.register("first batch rater", "firstrater@email");
+        CitizenToken secondRaterToken = election.register("second batch rater", "secondrater@email");
+        Idea firstIdea = Idea.of("first batch rated idea");
+        Idea secondIdea = Idea.of("second batch rated idea");
+        election.nominateMyself(contenderToken);
+        election.postMyManifesto(contenderToken, Manifesto.of(firstIdea, secondIdea));
+        RatingCommand ownIdeaRating = RatingCommand.of(contenderToken, firstIdea, Rating.of(10));
+
+        List<RatingOutcome> outcomes = election.rateIdeas(Arrays.asList(
+                RatingCommand.of(firstRaterToken, firstIdea, Rating.of(SOME_VALID_RATING_VALUE_ABOVE_5)),
+                ownIdeaRating,
+                RatingCommand.of(secondRaterToken, secondIdea, Rating.of(SOME_VALID_RATING_VALUE))));
+
+        Contender contender = election.getMyContenderDetails(contenderToken).get();
+        assertThat(outcomes.stream().map(RatingOutcome::isAccepted).collect(Collectors.toList()), contains(true, false, true));
+        assertThat(outcomes.get(1), is(RatingOutcome.rejected(ownIdeaRating, "Contenders cannot rate their own ideas")));
+        assertThat(election.getLeaderboard(1, 1), contains(LeaderboardEntry.of(1, contender, SOME_VALID_RATING_VALUE_ABOVE_5 + SOME_VALID_RATING_VALUE)));
+        assertThat(election.iFollow(firstRaterToken, contender), is(true));
+        assertThat(election.iFollow(secondRaterToken, contender), is(false));
+    }
+
     private void givenCitizenHasBecomeAFollowerOfTheContender(Election election, Contender contender, CitizenToken followerCitizen) {
         Idea ideaOfTheContender = contender.getManifesto().getIdeas().iterator().next();
         Rating citizensIdeaRating = Rating.of(SOME_VALID_RATING_VALUE_ABOVE_5);
@@ -218,19 +323,4 @@ public class ElectionAcceptanceTest {
             election.rateIdea(raterToken, ideas.get(index), Rating.of(ratings.get(index)));
         });
     }
-
-    @Value
-    @Accessors(fluent = true)
-    private class SomeUniqueIdeas {
-        private final List<Idea> ideaList;
-
-        private SomeUniqueIdeas(int numberOfIdeas) {
-            ideaList=new ArrayList<>(numberOfIdeas);
-            IntStream.rangeClosed(1, numberOfIdeas).mapToObj(ideaNumber->"Idea"+ideaNumber).forEach(ideaDescription->ideaList.add(Idea.of(ideaDescription)));
-        }
-
-        private Idea[] ideas() {
-            return ideaList.stream().toArray(Idea[]::new);
-        }
-    }
-}
\ No newline at end of file
+}
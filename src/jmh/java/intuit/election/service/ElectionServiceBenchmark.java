@@ -0,0 +1,201 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.stub.DiscardingEmailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of the {@link ElectionService} against an election seeded with
+ * {@code citizenCount} registered citizens, {@code contenderCount} of whom have posted a manifesto of
+ * three ideas, and {@code ratingsPerIdea} ratings on every idea.
+ *
+ * The default parameter matrix stops at 100,000 citizens and 10,000 ratings per idea, so that every point can be seeded
+ * within the 4GB heap of the fork. Larger points are opt in with JMH's {@code -p} option, e.g.
+ * {@code ./gradlew jmh -PjmhArgs="-p citizenCount=1000000 -p contenderCount=10 -p ratingsPerIdea=1000000"}, which seeds
+ * 30 million ratings. Keep {@code contenderCount * 3 * ratingsPerIdea} to a few tens of millions for the heap to hold them.
+ * The number of ratings per idea is capped at the number of citizens who are not contenders.
+ *
+ * Set {@code instrumented} to true to measure the calls through an {@link InstrumentedElection}, and compare the
+ * scores with those of the bare election to find the cost of the instrumentation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ElectionServiceBenchmark {
+    private static final int IDEAS_PER_MANIFESTO = 3;
+    private static final int MAX_RATING = 10;
+
+    @Param({"1000", "100000"})
+    public int citizenCount;
+
+    @Param({"10", "100"})
+    public int contenderCount;
+
+    @Param({"10", "10000"})
+    public int ratingsPerIdea;
+
+    @Param({"false", "true"})
+    public boolean instrumented;
+
+    private final Rating[] ratings = new Rating[MAX_RATING + 1];
+    private CitizenRegistry citizenRegistry;
+    private ContenderService contenderService;
+    private Election election;
+    private CitizenToken[] voters;
+    private CitizenToken[] contenders;
+    //Each contender with the last idea of their manifesto left out, so that it can be added again
+    private Contender[] contendersWithRoom;
+    private Idea[] ideas;
+    private IdeaHandle[] ideaHandles;
+    private long cursor;
+    private long registrations;
+
+    @Setup(Level.Trial)
+    public void seedElection() {
+        for (int value = 0; value <= MAX_RATING; value++) {
+            ratings[value] = Rating.of(value);
+        }
+
+        citizenRegistry = CitizenRegistry.getInstance();
+        citizenRegistry.reset();
+        contenderService = new ContenderService();
+        ElectionService electionService = new ElectionService(citizenRegistry, contenderService, new RatedIdeaService(), new DiscardingEmailService());
+        election = instrumented ? InstrumentedElection.of(electionService) : electionService;
+
+        contenders = new CitizenToken[contenderCount];
+        contendersWithRoom = new Contender[contenderCount];
+        ideas = new Idea[contenderCount * IDEAS_PER_MANIFESTO];
+        for (int contender = 0; contender < contenderCount; contender++) {
+            contenders[contender] = election.register("contender " + contender, "contender" + contender + "@email.com");
+            election.nominateMyself(contenders[contender]);
+
+            Idea[] manifestoIdeas = new Idea[IDEAS_PER_MANIFESTO];
+            for (int idea = 0; idea < IDEAS_PER_MANIFESTO; idea++) {
+                manifestoIdeas[idea] = Idea.of("idea " + idea + " of contender " + contender);
+                ideas[contender * IDEAS_PER_MANIFESTO + idea] = manifestoIdeas[idea];
+            }
+            election.postMyManifesto(contenders[contender], Manifesto.of(manifestoIdeas));
+            contendersWithRoom[contender] = Contender.of(election.getRegisteredCitizen(contenders[contender]).get(),
+                    Manifesto.of(Arrays.copyOf(manifestoIdeas, IDEAS_PER_MANIFESTO - 1)));
+        }
+        ideaHandles = new IdeaHandle[ideas.length];
+        for (int idea = 0; idea < ideas.length; idea++) {
+            ideaHandles[idea] = election.getIdeaHandle(contenders[idea / IDEAS_PER_MANIFESTO], ideas[idea]).get();
+        }
+
+        voters = new CitizenToken[citizenCount - contenderCount];
+        for (int voter = 0; voter < voters.length; voter++) {
+            voters[voter] = election.register("voter " + voter, "voter" + voter + "@email.com");
+        }
+
+        int ratingsToSeed = Math.min(ratingsPerIdea, voters.length);
+        for (int idea = 0; idea < ideas.length; idea++) {
+            for (int rating = 0; rating < ratingsToSeed; rating++) {
+                int voter = (idea + rating) % voters.length;
+                election.rateIdea(voters[voter], ideas[idea], ratings[(voter + idea) % ratings.length]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void resetRegistry() {
+        citizenRegistry.reset();
+    }
+
+    @Benchmark
+    public CitizenToken register() {
+        long citizen = registrations++;
+        return election.register("benchmark citizen " + citizen, "benchmark" + citizen + "@email.com");
+    }
+
+    @Benchmark
+    public void rateIdea() {
+        long next = cursor++;
+        election.rateIdea(voterFor(next), ideaFor(next), ratings[(int) (next % ratings.length)]);
+    }
+
+    /**
+     * Finds the idea by the id of its handle rather than by hashing its description. Compare with {@link #rateIdea()}
+     */
+    @Benchmark
+    public void rateIdeaByHandle() {
+        long next = cursor++;
+        election.rateIdea(voterFor(next), ideaHandles[(int) (next % ideaHandles.length)], ratings[(int) (next % ratings.length)]);
+    }
+
+    /**
+     * Re-rates the idea after deleting the rating so that the election does not drain of ratings
+     * during the measurement. Subtract the {@link #rateIdea()} score to isolate the cost of the deletion.
+     */
+    @Benchmark
+    public void deleteRatingForIdea() {
+        long next = cursor++;
+        CitizenToken voter = voterFor(next);
+        Idea idea = ideaFor(next);
+        election.deleteRatingForIdea(voter, idea);
+        election.rateIdea(voter, idea, ratings[(int) (next % ratings.length)]);
+    }
+
+    /**
+     * Adds the last idea of the contender's manifesto again, after {@link ManifestoWithRoom} has left it out. Republishing the
+     * idea also emails the contender's followers, which is the fan-out being measured.
+     */
+    @Benchmark
+    public void addIdeaToMyManifesto(ManifestoWithRoom manifestoWithRoom) {
+        int contender = manifestoWithRoom.contender;
+        election.addIdeaToMyManifesto(contenders[contender], ideas[contender * IDEAS_PER_MANIFESTO + IDEAS_PER_MANIFESTO - 1]);
+    }
+
+    @Benchmark
+    public Optional<Contender> getContenderWithHighestFinalRating() {
+        return election.getContenderWithHighestFinalRating();
+    }
+
+    private CitizenToken voterFor(long next) {
+        return voters[(int) (next % voters.length)];
+    }
+
+    private Idea ideaFor(long next) {
+        return ideas[(int) (next % ideas.length)];
+    }
+
+    /**
+     * A published manifesto cannot be changed, so before each call to {@link #addIdeaToMyManifesto} the next contender is put back
+     * with the last idea of their manifesto left out. Their followers are kept. This is done outside the measurement, as it copies
+     * the roster of contenders, and only for that benchmark, so that the other benchmarks are not slowed down by it
+     */
+    @State(Scope.Benchmark)
+    public static class ManifestoWithRoom {
+        private int contender;
+
+        @Setup(Level.Invocation)
+        public void leaveOutTheLastIdea(ElectionServiceBenchmark benchmark) {
+            contender = (int) (benchmark.cursor++ % benchmark.contenders.length);
+            benchmark.contenderService.restoreContender(benchmark.contendersWithRoom[contender]);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Idea;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingStore;
+import intuit.election.stub.DiscardingEmailService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that {@link ElectionService#rateIdea} allocates nothing at steady state, i.e. once every voter has rated
+ * every idea and already follows every contender they rate highly. Run it with the GC profiler, where
+ * {@code gc.alloc.rate.norm} should be 0 B/op:
+ * {@code ./gradlew jmh -PjmhArgs="RateIdeaAllocationBenchmark -prof gc"}, or run this class's main method.
+ * Both the heap and the off-heap rating stores are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateIdeaAllocationBenchmark {
+    private static final int NUMBER_OF_VOTERS = 10000;
+    private static final int NUMBER_OF_CONTENDERS = 10;
+    private static final int IDEAS_PER_MANIFESTO = 3;
+
+    @Param({"onHeap", "offHeap"})
+    public String ratingStore;
+
+    private CitizenRegistry citizenRegistry;
+    private ElectionService election;
+    private CitizenToken[] voters;
+    private Idea[] ideas;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void seedElection() {
+        citizenRegistry = CitizenRegistry.getInstance();
+        citizenRegistry.reset();
+        election = new ElectionService(citizenRegistry, new ContenderService(), ratedIdeaService(), new DiscardingEmailService());
+
+        ideas = new Idea[NUMBER_OF_CONTENDERS * IDEAS_PER_MANIFESTO];
+        for (int contender = 0; contender < NUMBER_OF_CONTENDERS; contender++) {
+            CitizenToken contenderToken = election.register("contender " + contender, "contender" + contender + "@email.com");
+            election.nominateMyself(contenderToken);
+            Idea[] manifestoIdeas = new Idea[IDEAS_PER_MANIFESTO];
+            for (int idea = 0; idea < IDEAS_PER_MANIFESTO; idea++) {
+                manifestoIdeas[idea] = Idea.of("idea " + idea + " of contender " + contender);
+                ideas[contender * IDEAS_PER_MANIFESTO + idea] = manifestoIdeas[idea];
+            }
+            election.postMyManifesto(contenderToken, Manifesto.of(manifestoIdeas));
+        }
+
+        voters = new CitizenToken[NUMBER_OF_VOTERS];
+        for (int voter = 0; voter < voters.length; voter++) {
+            voters[voter] = election.register("voter " + voter, "voter" + voter + "@email.com");
+            //Every voter rates every idea highly once, so the measured ratings change existing ratings of followed contenders
+            for (Idea idea : ideas) {
+                election.rateIdea(voters[voter], idea, Rating.of(10));
+            }
+        }
+    }
+
+    private RatedIdeaService ratedIdeaService() {
+        return "offHeap".equals(ratingStore) ? new RatedIdeaService(RatingStore::offHeap) : new RatedIdeaService();
+    }
+
+    @TearDown(Level.Trial)
+    public void resetRegistry() {
+        citizenRegistry.reset();
+    }
+
+    @Benchmark
+    public void rateIdea() {
+        int next = cursor++ & Integer.MAX_VALUE;
+        election.rateIdea(voters[next % voters.length], ideas[next % ideas.length], Rating.of(next % 6));
+    }
+
+    @Benchmark
+    public void rateIdeaHighly() {
+        int next = cursor++ & Integer.MAX_VALUE;
+        election.rateIdea(voters[next % voters.length], ideas[next % ideas.length], Rating.of(6 + next % 5));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateIdeaAllocationBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
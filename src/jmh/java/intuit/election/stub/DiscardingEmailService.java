@@ -0,0 +1,33 @@
+package intuit.election.stub;
+
+import intuit.election.service.EmailService;
+
+import java.util.Set;
+
+/**
+ * Counts the messages it is asked to send rather than printing them so that console output
+ * does not dominate the cost of the benchmarked operations
+ */
+public class DiscardingEmailService implements EmailService {
+
+    private long messagesSent;
+
+    @Override
+    public void sendMessage(String emailAddress, String message) {
+        messagesSent++;
+    }
+
+    @Override
+    public void sendMessages(Set<String> emailAddresses, String message) {
+        messagesSent += emailAddresses.size();
+    }
+
+    @Override
+    public boolean messageSent(String emailAddress, String message) {
+        return false;
+    }
+
+    public long messagesSent() {
+        return messagesSent;
+    }
+}
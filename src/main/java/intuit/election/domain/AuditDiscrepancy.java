@@ -0,0 +1,15 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * A figure which the election keeps up to date as ratings arrive, but which does not match a recount of the ratings
+ */
+@Value(staticConstructor = "of")
+public class AuditDiscrepancy {
+    @NonNull
+    private final String description;
+    private final double recounted;
+    private final double recorded;
+}
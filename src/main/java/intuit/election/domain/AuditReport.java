@@ -0,0 +1,19 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.List;
+
+@Value(staticConstructor = "of")
+public class AuditReport {
+    private final int ideasAudited;
+    private final int contendersAudited;
+    private final long ratingsRecounted;
+    @NonNull
+    private final List<AuditDiscrepancy> discrepancies;
+
+    public boolean isClean() {
+        return discrepancies.isEmpty();
+    }
+}
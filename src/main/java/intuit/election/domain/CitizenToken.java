@@ -1,4 +1,9 @@
 package intuit.election.domain;
 
 public interface CitizenToken {
+    /**
+     * Dense id given to the citizen when they register, so that per-citizen data such as ratings can be
+     * held in primitive arrays indexed by it rather than in maps keyed by the token
+     */
+    int id();
 }
@@ -0,0 +1,46 @@
+package intuit.election.domain;
+
+/**
+ * Stands for a contender within the election which handed it out, so that the contender's standing can be found by a dense id
+ * rather than by hashing their token. Each contender is given one handle when their first idea is published, so handles are
+ * compared by identity and hash to their id.
+ *
+ * Handles are not kept when an election is restored from its journal or a snapshot, so look them up again afterwards
+ */
+public final class ContenderHandle {
+    private final int id;
+    private final CitizenToken citizenToken;
+
+    private ContenderHandle(int id, CitizenToken citizenToken) {
+        this.id = id;
+        this.citizenToken = citizenToken;
+    }
+
+    public static ContenderHandle of(int id, CitizenToken citizenToken) {
+        return new ContenderHandle(id, citizenToken);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public CitizenToken getCitizenToken() {
+        return citizenToken;
+    }
+
+    //Only ever one handle for each, so only the same handle is equal
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "ContenderHandle(id=" + id + ")";
+    }
+}
@@ -0,0 +1,24 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The metrics of each method of an election since it was instrumented, along with the number of followers emailed each time
+ * a contender adds an idea to their manifesto
+ */
+@Value(staticConstructor = "of")
+public class ElectionMetrics {
+    private final long elapsedNanos;
+    @NonNull
+    private final List<OperationMetrics> operations;
+    @NonNull
+    private final Histogram followerChainSizes;
+
+    public Optional<OperationMetrics> getOperation(String operation) {
+        return operations.stream().filter(metrics -> metrics.getOperation().equals(operation)).findFirst();
+    }
+}
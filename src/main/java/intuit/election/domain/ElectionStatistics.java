@@ -0,0 +1,21 @@
+package intuit.election.domain;
+
+import lombok.Value;
+
+/**
+ * Counts taken from an election, which can be added together across the elections of several cities
+ */
+@Value(staticConstructor = "of")
+public class ElectionStatistics {
+    public static final ElectionStatistics NONE = ElectionStatistics.of(0, 0, 0, 0);
+
+    private final long registeredCitizens;
+    private final long contenders;
+    private final long publishedIdeas;
+    private final long ratings;
+
+    public ElectionStatistics plus(ElectionStatistics other) {
+        return ElectionStatistics.of(registeredCitizens + other.registeredCitizens, contenders + other.contenders,
+                publishedIdeas + other.publishedIdeas, ratings + other.ratings);
+    }
+}
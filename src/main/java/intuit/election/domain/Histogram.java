@@ -0,0 +1,139 @@
+package intuit.election.domain;
+
+import java.util.Arrays;
+
+/**
+ * An immutable count of recorded values, such as latencies in nanoseconds, in the style of HdrHistogram. Values are
+ * counted in buckets whose width grows with the value: values below 64 each have a bucket of their own, and larger values
+ * fall into one of 32 buckets per power of two, so any value read back is within about 3% of the values recorded.
+ * Values of 2^40 and over, about 18 minutes in nanoseconds, are all counted in the last bucket.
+ *
+ * Histograms recorded separately, e.g. by different threads or different elections, can be added together with {@link #plus}
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAXIMUM_MAGNITUDE = 40;
+    public static final int BUCKETS = (MAXIMUM_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    public static final Histogram EMPTY = new Histogram(new long[0], 0, 0);
+
+    //Trimmed after the last bucket with a count
+    private final long[] counts;
+    private final long totalCount;
+    private final long sum;
+
+    private Histogram(long[] counts, long totalCount, long sum) {
+        this.counts = counts;
+        this.totalCount = totalCount;
+        this.sum = sum;
+    }
+
+    /**
+     * @param counts the count of each bucket, indexed by {@link #bucketOf}
+     * @param sum the sum of the values recorded, from which the mean is worked out exactly
+     */
+    public static Histogram of(long[] counts, long sum) {
+        int length = counts.length;
+        while (length > 0 && counts[length - 1] == 0) {
+            length--;
+        }
+        long totalCount = 0;
+        for (int bucket = 0; bucket < length; bucket++) {
+            totalCount += counts[bucket];
+        }
+        return new Histogram(Arrays.copyOf(counts, length), totalCount, sum);
+    }
+
+    /**
+     * @return the bucket the value is counted in, with negative values counted as 0
+     */
+    public static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        if (magnitude >= MAXIMUM_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return (totalCount == 0) ? 0 : (double) sum / totalCount;
+    }
+
+    public long getMin() {
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            if (counts[bucket] != 0) {
+                return lowestValueIn(bucket);
+            }
+        }
+        return 0;
+    }
+
+    public long getMax() {
+        return (counts.length == 0) ? 0 : highestValueIn(counts.length - 1);
+    }
+
+    /**
+     * @param percentile from 0 to 100
+     * @return the highest value counted in the same bucket as the value at the percentile, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * totalCount));
+        long countSoFar = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            countSoFar += counts[bucket];
+            if (countSoFar >= countAtPercentile) {
+                return highestValueIn(bucket);
+            }
+        }
+        return 0;
+    }
+
+    public Histogram plus(Histogram other) {
+        long[] sumOfCounts = Arrays.copyOf(counts, Math.max(counts.length, other.counts.length));
+        for (int bucket = 0; bucket < other.counts.length; bucket++) {
+            sumOfCounts[bucket] += other.counts[bucket];
+        }
+        return new Histogram(sumOfCounts, totalCount + other.totalCount, sum + other.sum);
+    }
+
+    private static long lowestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (bucket - shift * SUB_BUCKETS) << shift;
+    }
+
+    private static long highestValueIn(int bucket) {
+        int shift = Math.max(bucket / SUB_BUCKETS - 1, 0);
+        return lowestValueIn(bucket) + (1L << shift) - 1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Histogram)) {
+            return false;
+        }
+        Histogram histogram = (Histogram) other;
+        return sum == histogram.sum && Arrays.equals(counts, histogram.counts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(counts) + Long.hashCode(sum);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Histogram(count=%d, mean=%.1f, p50=%d, p99=%d, max=%d)",
+                totalCount, getMean(), getValueAtPercentile(50), getValueAtPercentile(99), getMax());
+    }
+}
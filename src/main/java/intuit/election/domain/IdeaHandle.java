@@ -0,0 +1,55 @@
+package intuit.election.domain;
+
+/**
+ * Stands for an idea as published by one contender, so that ideas of different contenders with the same description are told
+ * apart, and so that rating the idea finds it by a dense id rather than by hashing its description. Each published idea is
+ * given one handle, so handles are compared by identity and hash to their id.
+ *
+ * Handles are not kept when an election is restored from its journal or a snapshot, so look them up again afterwards
+ */
+public final class IdeaHandle {
+    private final int id;
+    private final Idea idea;
+    private final ContenderHandle contender;
+
+    private IdeaHandle(int id, Idea idea, ContenderHandle contender) {
+        this.id = id;
+        this.idea = idea;
+        this.contender = contender;
+    }
+
+    public static IdeaHandle of(int id, Idea idea, ContenderHandle contender) {
+        return new IdeaHandle(id, idea, contender);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Idea getIdea() {
+        return idea;
+    }
+
+    /**
+     * @return the contender who published the idea
+     */
+    public ContenderHandle getContender() {
+        return contender;
+    }
+
+    //Only ever one handle for each, so only the same handle is equal
+    @Override
+    public boolean equals(Object other) {
+        return this == other;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "IdeaHandle(id=" + id + ", idea=" + idea.getDescription() + ")";
+    }
+}
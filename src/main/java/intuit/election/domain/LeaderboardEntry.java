@@ -0,0 +1,12 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+@Value(staticConstructor = "of")
+public class LeaderboardEntry {
+    private final int rank;
+    @NonNull
+    private final Contender contender;
+    private final double finalRating;
+}
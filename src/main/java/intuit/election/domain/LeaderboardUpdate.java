@@ -0,0 +1,27 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * What changed on the leaderboard since a subscriber's previous update, along with the whole leaderboard as it now stands
+ */
+@Value(staticConstructor = "of")
+public class LeaderboardUpdate {
+    @NonNull
+    private final List<LeaderboardEntry> leaderboard;
+    //Entries which are new or whose rank or final rating changed since the previous update
+    @NonNull
+    private final List<LeaderboardEntry> changedEntries;
+    //Contenders who have left the leaderboard since the previous update, e.g. because they were disqualified
+    @NonNull
+    private final List<Contender> removedContenders;
+    private final boolean leaderChanged;
+
+    public Optional<Contender> getLeader() {
+        return leaderboard.isEmpty() ? Optional.empty() : Optional.of(leaderboard.get(0).getContender());
+    }
+}
@@ -5,38 +5,84 @@ import lombok.NonNull;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class Manifesto {
-    private static final int MIN_IDEAS = 1;
-    private static final int MAX_IDEAS = 3;
-    private final Set<Idea> ideas = new HashSet<>(MAX_IDEAS);
+    public static final int MIN_IDEAS = 1;
+    public static final int MAX_IDEAS = 3;
+    private static final String IMMUTABLE_MSG = "Manifesto of a published contender cannot be changed";
+    //Copy on write as ideas are read far more often than they are added, and readers can then iterate without locking
+    private final Set<Idea> ideas;
+    private final boolean immutable;
+
+    private Manifesto(Set<Idea> ideas, boolean immutable) {
+        this.ideas = ideas;
+        this.immutable = immutable;
+    }
 
     public static Manifesto of(Idea... ideasArray) {
         if (null == ideasArray || ideasArray.length == 0 || ideasArray.length > 3) {
             throw new UnsupportedOperationException(String.format("Manifesto must have between %d and %d ideas", MIN_IDEAS, MAX_IDEAS));
         }
-        Manifesto manifesto = new Manifesto();
-        manifesto.ideas.addAll(Arrays.asList(ideasArray));
-        return manifesto;
+        return new Manifesto(new CopyOnWriteArraySet<>(Arrays.asList(ideasArray)), false);
     }
 
     public Collection<Idea> getIdeas() {
         return Collections.unmodifiableSet(ideas);
     }
 
-    public void add(@NonNull Idea idea) {
+    public synchronized void add(@NonNull Idea idea) {
+        if (immutable) {
+            throw new UnsupportedOperationException(IMMUTABLE_MSG);
+        }
         if (ideas.size() == MAX_IDEAS) {
             throw new UnsupportedOperationException(String.format("Manifesto cannot have more than %d ideas", MAX_IDEAS));
         }
         ideas.add(idea);
     }
 
-    public void remove(@NonNull Idea idea) {
+    public synchronized void remove(@NonNull Idea idea) {
+        if (immutable) {
+            throw new UnsupportedOperationException(IMMUTABLE_MSG);
+        }
         if (ideas.size() == MIN_IDEAS) {
             throw new UnsupportedOperationException(String.format("Manifesto cannot have less than %d ideas", MIN_IDEAS));
         }
         ideas.remove(idea);
     }
+
+    /**
+     * @return a copy of the manifesto which cannot be changed, so that it can be handed to readers who must never see it change.
+     * A manifesto which already cannot be changed is returned as it is
+     */
+    public synchronized Manifesto toImmutable() {
+        return immutable ? this : new Manifesto(Collections.unmodifiableSet(new LinkedHashSet<>(ideas)), true);
+    }
+
+    /**
+     * @return a copy of the manifesto with the idea added, which cannot be changed
+     */
+    public Manifesto withIdea(@NonNull Idea idea) {
+        Manifesto manifesto = new Manifesto(new LinkedHashSet<>(getIdeas()), false);
+        manifesto.add(idea);
+        return new Manifesto(Collections.unmodifiableSet(manifesto.ideas), true);
+    }
+
+    //Manifestos with the same ideas are equal, whether or not they can be changed
+    @Override
+    public boolean equals(Object other) {
+        return (other instanceof Manifesto) && ideas.equals(((Manifesto) other).ideas);
+    }
+
+    @Override
+    public int hashCode() {
+        return ideas.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Manifesto(ideas=" + ideas + ")";
+    }
 }
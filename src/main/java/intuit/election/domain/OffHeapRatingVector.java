@@ -0,0 +1,152 @@
+package intuit.election.domain;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps one byte per citizen in direct buffers outside the heap, indexed by the citizen's dense id, so that an idea rated
+ * by millions of citizens costs the garbage collector a handful of buffer objects rather than arrays of millions of entries.
+ * Only the index of chunks is kept on the heap.
+ *
+ * The vector is split into chunks which are only allocated once a citizen whose id falls in them rates the idea, so an idea
+ * rated by few citizens stays small. Each byte holds the rating plus 1, so that the zeroes of a new buffer mean no rating.
+ * Direct memory is limited by {@code -XX:MaxDirectMemorySize} and is given back once the idea is garbage collected.
+ *
+ * Direct buffers have no atomic operations before Java 9, so each citizen's rating is exchanged under one of a set of locks
+ * picked by their id. Citizens rating the same idea at once rarely share a lock, so they rarely wait for each other.
+ *
+ * Package private as it is only created through {@link RatingStore#offHeap()}
+ */
+class OffHeapRatingVector implements RatingStore {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    //Enough chunks for every non-negative citizen id
+    private static final int MAXIMUM_CHUNKS = 1 << (Integer.SIZE - 1 - CHUNK_BITS);
+    private static final int LOCK_BITS = 6;
+    private static final int LOCK_MASK = (1 << LOCK_BITS) - 1;
+
+    //Replaced by a longer copy whenever a chunk is allocated, so that a chunk is never read before it is fully published
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    private final Object[] locks = new Object[1 << LOCK_BITS];
+
+    OffHeapRatingVector() {
+        Arrays.setAll(locks, lock -> new Object());
+    }
+
+    @Override
+    public byte get(int citizenId) {
+        ByteBuffer chunk = chunkOrNull(citizenId);
+        if (chunk == null) {
+            return NO_RATING;
+        }
+        synchronized (lockFor(citizenId)) {
+            return (byte) (chunk.get(citizenId & CHUNK_MASK) - 1);
+        }
+    }
+
+    @Override
+    public byte put(int citizenId, byte rating) {
+        ByteBuffer chunk = chunkOrNull(citizenId);
+        if (chunk == null) {
+            chunk = allocateChunk(citizenId);
+        }
+        synchronized (lockFor(citizenId)) {
+            byte previousRating = (byte) (chunk.get(citizenId & CHUNK_MASK) - 1);
+            chunk.put(citizenId & CHUNK_MASK, (byte) (rating + 1));
+            return previousRating;
+        }
+    }
+
+    @Override
+    public byte remove(int citizenId) {
+        ByteBuffer chunk = chunkOrNull(citizenId);
+        if (chunk == null) {
+            return NO_RATING;
+        }
+        synchronized (lockFor(citizenId)) {
+            byte deletedRating = (byte) (chunk.get(citizenId & CHUNK_MASK) - 1);
+            chunk.put(citizenId & CHUNK_MASK, (byte) 0);
+            return deletedRating;
+        }
+    }
+
+    /**
+     * Nothing to do, as a chunk is allocated as soon as a citizen whose id falls in it rates the idea, so the vector is never full
+     */
+    @Override
+    public void grow() {
+    }
+
+    /**
+     * Nothing to do, as the size of the vector depends on the ids of the raters rather than on how many there are
+     */
+    @Override
+    public void ensureCapacity(int numberOfRatings) {
+    }
+
+    @Override
+    public void forEach(RatedIdea.RatingVisitor visitor) {
+        forEachInRange(0, positions(), visitor);
+    }
+
+    /**
+     * Each position is a citizen id, so the positions run up to the end of the last chunk allocated
+     */
+    @Override
+    public int positions() {
+        return (int) Math.min(Integer.MAX_VALUE, (long) chunks.length << CHUNK_BITS);
+    }
+
+    @Override
+    public void forEachInRange(int fromCitizenId, int toCitizenId, RatedIdea.RatingVisitor visitor) {
+        int citizenId = fromCitizenId;
+        while (citizenId < toCitizenId) {
+            ByteBuffer chunk = chunkOrNull(citizenId);
+            int endOfChunk = (int) Math.min(toCitizenId, ((long) (citizenId >>> CHUNK_BITS) + 1) << CHUNK_BITS);
+            if (chunk != null) {
+                visitChunk(chunk, citizenId & ~CHUNK_MASK, citizenId & CHUNK_MASK, endOfChunk - (citizenId & ~CHUNK_MASK), visitor);
+            }
+            citizenId = endOfChunk;
+        }
+    }
+
+    private static void visitChunk(ByteBuffer chunk, int firstCitizenId, int fromIndex, int toIndex, RatedIdea.RatingVisitor visitor) {
+        int index = fromIndex;
+        while (index < toIndex) {
+            //Skips eight citizens at a time where none of them rated the idea
+            if ((index & (Long.BYTES - 1)) == 0 && index + Long.BYTES <= toIndex && chunk.getLong(index) == 0) {
+                index += Long.BYTES;
+                continue;
+            }
+            byte storedRating = chunk.get(index);
+            if (storedRating != 0) {
+                visitor.visit(firstCitizenId | index, (byte) (storedRating - 1));
+            }
+            index++;
+        }
+    }
+
+    private Object lockFor(int citizenId) {
+        return locks[citizenId & LOCK_MASK];
+    }
+
+    private ByteBuffer chunkOrNull(int citizenId) {
+        ByteBuffer[] chunks = this.chunks;
+        int chunkIndex = citizenId >>> CHUNK_BITS;
+        return (chunkIndex < chunks.length) ? chunks[chunkIndex] : null;
+    }
+
+    private synchronized ByteBuffer allocateChunk(int citizenId) {
+        int chunkIndex = citizenId >>> CHUNK_BITS;
+        //Another thread may have allocated the chunk while this one waited
+        ByteBuffer chunk = chunkOrNull(citizenId);
+        if (chunk == null) {
+            ByteBuffer[] allocatedChunks = Arrays.copyOf(chunks, Math.min(Math.max(chunkIndex + 1, chunks.length), MAXIMUM_CHUNKS));
+            chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            allocatedChunks[chunkIndex] = chunk;
+            chunks = allocatedChunks;
+        }
+        return chunk;
+    }
+}
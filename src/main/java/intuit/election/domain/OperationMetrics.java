@@ -0,0 +1,18 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+/**
+ * How often a method of the election was called, how many of the calls were turned down, and how long a sample of the calls took
+ */
+@Value(staticConstructor = "of")
+public class OperationMetrics {
+    @NonNull
+    private final String operation;
+    private final long calls;
+    private final long failures;
+    //Includes calls which were turned down
+    @NonNull
+    private final Histogram sampledLatencyNanos;
+}
@@ -1,31 +1,241 @@
 package intuit.election.domain;
 
-import lombok.Value;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
-@Value(staticConstructor = "of")
+/**
+ * Ratings are held in a {@link RatingStore} keyed by the dense id of each rater's token, on the heap unless the idea
+ * is given a store of its own. The store exchanges each citizen's rating atomically and the running totals are packed into
+ * a single atomic, so adding or deleting a rating takes no monitor and ratings of the same idea do not wait for each other.
+ *
+ * Ratings are only held back while they are paused, to grow the store, restore ratings in bulk or visit every rating, so that
+ * the ratings visited agree with the running totals. Each rating holds the shared side of a {@link StampedLock} and a pause
+ * holds the exclusive side.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor(staticName = "of")
 public class RatedIdea {
+    //The sum of the ratings is packed above the number of ratings so that both are read and changed together.
+    //29 bits allows for over 500 million ratings of a single idea, leaving 35 bits for their sum
+    private static final int RATING_COUNT_BITS = 29;
+    private static final long RATING_COUNT_MASK = (1L << RATING_COUNT_BITS) - 1;
+    //An idea rated less than 5 by more than 3 voters disqualifies its contender
+    private static final int LOW_RATING_LIMIT = 5;
+    private static final int MAXIMUM_LOW_RATINGS = 3;
+
     private final Idea idea;
     private final Contender contender;
-    private final Map<CitizenToken, Rating> ratings = new HashMap<>();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final RatingStore ratings;
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicLong ratingTotals = new AtomicLong();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final AtomicInteger lowRatings = new AtomicInteger();
+    @Getter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private final StampedLock pauses = new StampedLock();
+
+    /**
+     * Receives each rating of an idea along with the dense id of the citizen who made it
+     */
+    public interface RatingVisitor {
+        void visit(int citizenId, byte rating);
+    }
+
+    public static RatedIdea of(Idea idea, Contender contender) {
+        return of(idea, contender, RatingStore.onHeap());
+    }
+
+    public Optional<Rating> getRating(CitizenToken ideaRatingCitizen) {
+        byte rating;
+        long stamp = pauses.readLock();
+        try {
+            rating = ratings.get(ideaRatingCitizen.id());
+        } finally {
+            pauses.unlockRead(stamp);
+        }
+        return (rating == RatingStore.NO_RATING) ? Optional.empty() : Optional.of(Rating.of(rating));
+    }
+
+    public int getNumberOfRatings() {
+        return (int) ratingCountOf(ratingTotals.get());
+    }
+
+    /**
+     * @return the citizen's previous rating of the idea, or {@link RatingStore#NO_RATING} if they had not rated it
+     */
+    public byte addRating(CitizenToken ideaRatingCitizen, Rating rating) {
+        byte previousRating;
+        long stamp = pauses.readLock();
+        try {
+            previousRating = ratings.put(ideaRatingCitizen.id(), (byte) rating.value());
+            if (previousRating == RatingStore.FULL) {
+                //Growing replaces the store's arrays, so the idea's other ratings are paused while it grows
+                pauses.unlockRead(stamp);
+                stamp = pauses.writeLock();
+                previousRating = ratings.put(ideaRatingCitizen.id(), (byte) rating.value());
+                if (previousRating == RatingStore.FULL) {
+                    ratings.grow();
+                    previousRating = ratings.put(ideaRatingCitizen.id(), (byte) rating.value());
+                }
+            }
+            lowRatings.addAndGet(lowRatingCountOf(rating.value()) - lowRatingCountOf(previousRating));
+            if (previousRating == RatingStore.NO_RATING) {
+                changeTotals(rating.value(), 1);
+            } else {
+                changeTotals(rating.value() - previousRating, 0);
+            }
+        } finally {
+            pauses.unlock(stamp);
+        }
+        return previousRating;
+    }
+
+    /**
+     * @return the deleted rating, or {@link RatingStore#NO_RATING} if the citizen had not rated the idea
+     */
+    public byte deleteRating(CitizenToken ideaRatingCitizen) {
+        byte deletedRating;
+        long stamp = pauses.readLock();
+        try {
+            deletedRating = ratings.remove(ideaRatingCitizen.id());
+            if (deletedRating != RatingStore.NO_RATING) {
+                lowRatings.addAndGet(-lowRatingCountOf(deletedRating));
+                changeTotals(-deletedRating, -1);
+            }
+        } finally {
+            pauses.unlockRead(stamp);
+        }
+        return deletedRating;
+    }
+
+    /**
+     * @return true if the idea has been rated less than 5 by more than 3 voters
+     */
+    public boolean isDisqualifying() {
+        return lowRatings.get() > MAXIMUM_LOW_RATINGS;
+    }
+
+    /**
+     * Holds back ratings of the idea until the action has finished, waiting for ratings already under way to land first, so the
+     * store and the running totals agree and stay put while the action runs. Not reentrant, so the action must not pause the idea again
+     */
+    public <T> T whileRatingsArePaused(Supplier<T> action) {
+        long stamp = pauses.writeLock();
+        try {
+            return action.get();
+        } finally {
+            pauses.unlockWrite(stamp);
+        }
+    }
 
-    public Map<CitizenToken, Rating> getRatings() {
-        return Collections.unmodifiableMap(ratings);
+    /**
+     * Visits every rating while ratings of the idea are paused, so the ratings visited agree with the running totals
+     */
+    public void forEachRating(RatingVisitor visitor) {
+        whileRatingsArePaused(() -> {
+            ratings.forEach(visitor);
+            return null;
+        });
     }
 
-    public void addRating(CitizenToken ideaRatingCitizen, Rating rating) {
-        ratings.put(ideaRatingCitizen, rating);
+    /**
+     * @return the number of positions the ratings are held in, which {@link #forEachRatingInRange} can split into ranges.
+     * Only call this while ratings of the idea are paused
+     */
+    public int getRatingPositions() {
+        return ratings.positions();
     }
 
-    public void deleteRating(CitizenToken ideaRatingCitizen) {
-        ratings.remove(ideaRatingCitizen);
+    /**
+     * Visits the ratings held in a range of positions, so that several threads can visit different ranges at once. Only call this
+     * while ratings of the idea are paused, by the caller or by a thread waiting for the call to finish
+     */
+    public void forEachRatingInRange(int fromPosition, int toPosition, RatingVisitor visitor) {
+        ratings.forEachInRange(fromPosition, toPosition, visitor);
+    }
+
+    /**
+     * @return the running count of ratings less than 5, which decides whether the idea is disqualifying
+     */
+    public int getNumberOfLowRatings() {
+        return lowRatings.get();
+    }
+
+    /**
+     * Adds ratings in bulk, e.g. when an election is restored from a snapshot
+     */
+    public void restoreRatings(int[] citizenIds, byte[] citizenRatings, int numberOfRatings) {
+        whileRatingsArePaused(() -> {
+            long ratingSumChange = 0;
+            long ratingCountChange = 0;
+            ratings.ensureCapacity(getNumberOfRatings() + numberOfRatings);
+            for (int i = 0; i < numberOfRatings; i++) {
+                byte previousRating = ratings.put(citizenIds[i], citizenRatings[i]);
+                if (previousRating == RatingStore.FULL) {
+                    ratings.grow();
+                    previousRating = ratings.put(citizenIds[i], citizenRatings[i]);
+                }
+                lowRatings.addAndGet(lowRatingCountOf(citizenRatings[i]) - lowRatingCountOf(previousRating));
+                ratingSumChange += citizenRatings[i] - ((previousRating == RatingStore.NO_RATING) ? 0 : previousRating);
+                ratingCountChange += (previousRating == RatingStore.NO_RATING) ? 1 : 0;
+            }
+            changeTotals(ratingSumChange, ratingCountChange);
+            return null;
+        });
     }
 
     public Optional<Double> getAverageRating() {
-        return (ratings.isEmpty()) ? Optional.empty() : Optional.of(ratings.values().stream().mapToDouble(Rating::value).average().getAsDouble());
+        long totals = ratingTotals.get();
+        return (ratingCountOf(totals) == 0) ? Optional.empty() : Optional.of(averageRatingOf(totals));
+    }
+
+    /**
+     * Worked out afresh from the integer sum and count of the ratings, so it never drifts however many ratings change
+     *
+     * @return the average rating, or 0 if the idea has not been rated
+     */
+    public double getAverageRatingOrZero() {
+        return averageRatingOf(ratingTotals.get());
+    }
+
+    private void changeTotals(long ratingSumChange, long ratingCountChange) {
+        //Packing is linear, so adding the packed changes changes both fields at once
+        ratingTotals.getAndAdd((ratingSumChange << RATING_COUNT_BITS) + ratingCountChange);
+    }
+
+    public static boolean isLowRating(int rating) {
+        return rating != RatingStore.NO_RATING && rating < LOW_RATING_LIMIT;
+    }
+
+    private static int lowRatingCountOf(int rating) {
+        return isLowRating(rating) ? 1 : 0;
+    }
+
+    private static long ratingCountOf(long totals) {
+        return totals & RATING_COUNT_MASK;
+    }
+
+    private static double averageRatingOf(long totals) {
+        long ratingCount = ratingCountOf(totals);
+        return (ratingCount == 0) ? 0 : (double) (totals >> RATING_COUNT_BITS) / ratingCount;
     }
 }
@@ -6,17 +6,27 @@ import lombok.experimental.Accessors;
 @Value
 @Accessors(fluent = true)
 public class Rating {
-    private final int value;
+    private static final int MINIMUM_RATING = 0;
+    private static final int MAXIMUM_RATING = 10;
+    //There are only 11 possible ratings, so the same instances are handed out rather than allocating one per vote
+    private static final Rating[] RATINGS = new Rating[MAXIMUM_RATING + 1];
 
-    private Rating(int value){
-        if (value < 0 || value > 10) {
-            throw new UnsupportedOperationException("Rating must be between 0 and 10");
+    static {
+        for (int value = MINIMUM_RATING; value <= MAXIMUM_RATING; value++) {
+            RATINGS[value] = new Rating(value);
         }
+    }
 
+    private final int value;
+
+    private Rating(int value){
         this.value=value;
     }
 
     public static Rating of(int value) {
-        return new Rating(value);
+        if (value < MINIMUM_RATING || value > MAXIMUM_RATING) {
+            throw new UnsupportedOperationException("Rating must be between 0 and 10");
+        }
+        return RATINGS[value];
     }
 }
@@ -0,0 +1,14 @@
+package intuit.election.domain;
+
+import lombok.NonNull;
+import lombok.Value;
+
+@Value(staticConstructor = "of")
+public class RatingCommand {
+    @NonNull
+    private final CitizenToken citizenTokenOfRater;
+    @NonNull
+    private final Idea idea;
+    @NonNull
+    private final Rating rating;
+}
@@ -0,0 +1,32 @@
+package intuit.election.domain;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.Optional;
+
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RatingOutcome {
+    @NonNull
+    private final RatingCommand command;
+    private final String rejectionReason;
+
+    public static RatingOutcome accepted(RatingCommand command) {
+        return new RatingOutcome(command, null);
+    }
+
+    public static RatingOutcome rejected(RatingCommand command, @NonNull String rejectionReason) {
+        return new RatingOutcome(command, rejectionReason);
+    }
+
+    public boolean isAccepted() {
+        return rejectionReason == null;
+    }
+
+    public Optional<String> getRejectionReason() {
+        return Optional.ofNullable(rejectionReason);
+    }
+}
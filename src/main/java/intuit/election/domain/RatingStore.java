@@ -0,0 +1,60 @@
+package intuit.election.domain;
+
+/**
+ * Holds the ratings of a single idea, keyed by the dense id of each rater's token. The store decides where the ratings
+ * live: {@link #onHeap()} keeps them in a compact table on the heap, sized by the number of ratings, while {@link #offHeap()}
+ * keeps a vector indexed by citizen id outside the heap, so that very large electorates do not weigh on the garbage collector.
+ *
+ * {@link #get}, {@link #put} and {@link #remove} are safe for any number of threads at once, each exchanging a single citizen's
+ * rating atomically. The rest of the methods are only called while ratings of the idea are paused by its {@link RatedIdea}
+ */
+public interface RatingStore {
+    byte NO_RATING = -1;
+    /**
+     * Returned by {@link #put} when there is no room for another citizen, in which case nothing is changed until {@link #grow} is called
+     */
+    byte FULL = -2;
+
+    static RatingStore onHeap() {
+        return new RatingTable();
+    }
+
+    static RatingStore offHeap() {
+        return new OffHeapRatingVector();
+    }
+
+    byte get(int citizenId);
+
+    /**
+     * @return the citizen's previous rating, {@link #NO_RATING} if they had not rated the idea, or {@link #FULL}
+     */
+    byte put(int citizenId, byte rating);
+
+    /**
+     * @return the deleted rating, or {@link #NO_RATING} if the citizen had not rated the idea
+     */
+    byte remove(int citizenId);
+
+    /**
+     * Makes room for at least one more citizen after {@link #put} has found the store {@link #FULL}
+     */
+    void grow();
+
+    /**
+     * Makes room for the number of ratings up front, so that adding them in bulk does not grow the store repeatedly
+     */
+    void ensureCapacity(int numberOfRatings);
+
+    void forEach(RatedIdea.RatingVisitor visitor);
+
+    /**
+     * @return the number of positions the ratings are held in, which {@link #forEachInRange} can split into ranges
+     */
+    int positions();
+
+    /**
+     * Visits the ratings held in positions from the first up to but not including the last, so that disjoint ranges can be
+     * visited by different threads at once while nothing changes the store
+     */
+    void forEachInRange(int fromPosition, int toPosition, RatedIdea.RatingVisitor visitor);
+}
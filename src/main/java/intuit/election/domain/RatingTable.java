@@ -0,0 +1,187 @@
+package intuit.election.domain;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Maps the dense id of each citizen who has rated an idea to their rating, using open addressing with linear probing
+ * over two primitive arrays. A rating fits in a byte, so each rating costs 5 bytes plus the spare capacity of the table
+ * instead of a map entry, a token and a {@link Rating}.
+ *
+ * A citizen claims their slot with a compare-and-set and keeps it from then on, so no tombstones are needed: a deleted
+ * rating only empties the rating held in the slot. Ratings are packed four to an int, as the elements of a byte array cannot
+ * be changed atomically, and each is exchanged with a compare-and-set of its int. Slots without a rating are dropped when the table grows.
+ *
+ * Package private as it is only created through {@link RatingStore#onHeap()}
+ */
+class RatingTable implements RatingStore {
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int FIBONACCI_MULTIPLIER = 0x9E3779B9;
+    private static final int RATINGS_PER_WORD_BITS = 2;
+    private static final int RATINGS_PER_WORD_MASK = (1 << RATINGS_PER_WORD_BITS) - 1;
+    private static final int RATING_BITS = Byte.SIZE;
+    private static final int RATING_MASK = (1 << RATING_BITS) - 1;
+
+    //Each slot holds the citizen id plus 1, so that the default 0 marks an empty slot. The arrays are only replaced while ratings are paused
+    private AtomicIntegerArray slotCitizenIds = new AtomicIntegerArray(INITIAL_CAPACITY);
+    //Each byte holds the rating plus 1, so that the default 0 marks a slot without a rating
+    private AtomicIntegerArray slotRatings = new AtomicIntegerArray(INITIAL_CAPACITY >> RATINGS_PER_WORD_BITS);
+    private final AtomicInteger usedSlots = new AtomicInteger();
+
+    @Override
+    public byte get(int citizenId) {
+        int slot = findSlot(slotCitizenIds, citizenId);
+        return (slotCitizenIds.get(slot) == 0) ? NO_RATING : (byte) (storedRatingAt(slotRatings, slot) - 1);
+    }
+
+    @Override
+    public byte put(int citizenId, byte rating) {
+        int slot = claimSlot(citizenId);
+        return (slot < 0) ? FULL : (byte) (exchangeStoredRating(slot, rating + 1) - 1);
+    }
+
+    @Override
+    public byte remove(int citizenId) {
+        int slot = findSlot(slotCitizenIds, citizenId);
+        return (slotCitizenIds.get(slot) == 0) ? NO_RATING : (byte) (exchangeStoredRating(slot, 0) - 1);
+    }
+
+    @Override
+    public void grow() {
+        int ratedSlots = 0;
+        for (int slot = 0; slot < slotCitizenIds.length(); slot++) {
+            if (slotCitizenIds.get(slot) != 0 && storedRatingAt(slotRatings, slot) != 0) {
+                ratedSlots++;
+            }
+        }
+        //Only double if most of the used slots still hold ratings, otherwise reclaiming the deleted ones is enough
+        int capacity = (ratedSlots + 1 > slotCitizenIds.length() >> 1) ? slotCitizenIds.length() << 1 : slotCitizenIds.length();
+        if (capacity > MAXIMUM_CAPACITY) {
+            throw new UnsupportedOperationException("Idea cannot hold any more ratings");
+        }
+        rehash(capacity);
+    }
+
+    @Override
+    public void ensureCapacity(int numberOfRatings) {
+        int capacity = slotCitizenIds.length();
+        while (capacity - (capacity >> 2) < numberOfRatings && capacity < MAXIMUM_CAPACITY) {
+            capacity <<= 1;
+        }
+        if (capacity > slotCitizenIds.length()) {
+            rehash(capacity);
+        }
+    }
+
+    @Override
+    public void forEach(RatedIdea.RatingVisitor visitor) {
+        forEachInRange(0, slotCitizenIds.length(), visitor);
+    }
+
+    @Override
+    public int positions() {
+        return slotCitizenIds.length();
+    }
+
+    @Override
+    public void forEachInRange(int fromSlot, int toSlot, RatedIdea.RatingVisitor visitor) {
+        for (int slot = fromSlot; slot < toSlot; slot++) {
+            int storedRating = storedRatingAt(slotRatings, slot);
+            if (slotCitizenIds.get(slot) != 0 && storedRating != 0) {
+                visitor.visit(slotCitizenIds.get(slot) - 1, (byte) (storedRating - 1));
+            }
+        }
+    }
+
+    /**
+     * @return the citizen's slot, claiming an empty one if they have none, or -1 if the table is too full to claim one
+     */
+    private int claimSlot(int citizenId) {
+        int mask = slotCitizenIds.length() - 1;
+        int slot = (citizenId * FIBONACCI_MULTIPLIER) & mask;
+        while (true) {
+            int slotCitizenId = slotCitizenIds.get(slot);
+            if (slotCitizenId == citizenId + 1) {
+                return slot;
+            }
+            if (slotCitizenId != 0) {
+                slot = (slot + 1) & mask;
+                continue;
+            }
+            //Room is reserved before the slot is claimed, so the table never fills up and every probe finds an empty slot
+            if (usedSlots.incrementAndGet() > maximumUsedSlots()) {
+                usedSlots.decrementAndGet();
+                return -1;
+            }
+            if (slotCitizenIds.compareAndSet(slot, 0, citizenId + 1)) {
+                return slot;
+            }
+            //Another citizen claimed the slot first, or the same citizen from another thread, so it is looked at again
+            usedSlots.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the stored rating replaced
+     */
+    private int exchangeStoredRating(int slot, int storedRating) {
+        int word = slot >>> RATINGS_PER_WORD_BITS;
+        int shift = ratingShiftOf(slot);
+        while (true) {
+            int ratings = slotRatings.get(word);
+            int exchangedRatings = (ratings & ~(RATING_MASK << shift)) | (storedRating << shift);
+            if (slotRatings.compareAndSet(word, ratings, exchangedRatings)) {
+                return (ratings >>> shift) & RATING_MASK;
+            }
+        }
+    }
+
+    private static int storedRatingAt(AtomicIntegerArray slotRatings, int slot) {
+        return (slotRatings.get(slot >>> RATINGS_PER_WORD_BITS) >>> ratingShiftOf(slot)) & RATING_MASK;
+    }
+
+    private static int ratingShiftOf(int slot) {
+        return (slot & RATINGS_PER_WORD_MASK) * RATING_BITS;
+    }
+
+    /**
+     * @return the slot holding the citizen, or the empty slot where they would be added
+     */
+    private static int findSlot(AtomicIntegerArray slotCitizenIds, int citizenId) {
+        int mask = slotCitizenIds.length() - 1;
+        int slot = (citizenId * FIBONACCI_MULTIPLIER) & mask;
+        int slotCitizenId;
+        while ((slotCitizenId = slotCitizenIds.get(slot)) != 0 && slotCitizenId != citizenId + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int maximumUsedSlots() {
+        //Kept at most three quarters full so that probe sequences stay short
+        return slotCitizenIds.length() - (slotCitizenIds.length() >> 2);
+    }
+
+    /**
+     * Moves the ratings into a table of the given capacity, dropping the slots of deleted ratings
+     */
+    private void rehash(int capacity) {
+        AtomicIntegerArray rehashedCitizenIds = new AtomicIntegerArray(capacity);
+        AtomicIntegerArray rehashedRatings = new AtomicIntegerArray(capacity >> RATINGS_PER_WORD_BITS);
+        int ratedSlots = 0;
+        for (int slot = 0; slot < slotCitizenIds.length(); slot++) {
+            int storedRating = storedRatingAt(slotRatings, slot);
+            if (slotCitizenIds.get(slot) != 0 && storedRating != 0) {
+                int rehashedSlot = findSlot(rehashedCitizenIds, slotCitizenIds.get(slot) - 1);
+                rehashedCitizenIds.set(rehashedSlot, slotCitizenIds.get(slot));
+                int word = rehashedSlot >>> RATINGS_PER_WORD_BITS;
+                rehashedRatings.set(word, rehashedRatings.get(word) | (storedRating << ratingShiftOf(rehashedSlot)));
+                ratedSlots++;
+            }
+        }
+        slotCitizenIds = rehashedCitizenIds;
+        slotRatings = rehashedRatings;
+        usedSlots.set(ratedSlots);
+    }
+}
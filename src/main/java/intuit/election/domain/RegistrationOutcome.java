@@ -0,0 +1,45 @@
+package intuit.election.domain;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+import java.util.Optional;
+
+/**
+ * What became of one row of an import of citizens: the token the citizen was registered with, or why the row was turned down.
+ * The name and email address are those read from the row, and are empty if the row did not have them
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class RegistrationOutcome {
+    //The line of the file the row starts on, counted from 1
+    private final long line;
+    @NonNull
+    private final String citizenName;
+    @NonNull
+    private final String citizenEmail;
+    private final CitizenToken citizenToken;
+    private final String rejectionReason;
+
+    public static RegistrationOutcome registered(long line, String citizenName, String citizenEmail, @NonNull CitizenToken citizenToken) {
+        return new RegistrationOutcome(line, citizenName, citizenEmail, citizenToken, null);
+    }
+
+    public static RegistrationOutcome rejected(long line, String citizenName, String citizenEmail, @NonNull String rejectionReason) {
+        return new RegistrationOutcome(line, citizenName, citizenEmail, null, rejectionReason);
+    }
+
+    public boolean isAccepted() {
+        return rejectionReason == null;
+    }
+
+    public Optional<CitizenToken> getCitizenToken() {
+        return Optional.ofNullable(citizenToken);
+    }
+
+    public Optional<String> getRejectionReason() {
+        return Optional.ofNullable(rejectionReason);
+    }
+}
@@ -0,0 +1,192 @@
+package intuit.election.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends email on a pool of worker threads so that callers such as {@link ElectionService#addIdeaToMyManifesto}
+ * are not held up while every follower is emailed. The recipients of a message are split into batches, each of which is
+ * handed to the underlying mail sink in one call.
+ *
+ * Batches wait in a bounded queue. What happens when the queue is full is decided by the {@link BackpressurePolicy}.
+ * Use {@link #flush()} or {@link #awaitDrained(long, TimeUnit)} to wait for every batch accepted so far to be sent,
+ * e.g. before checking {@link #messageSent(String, String)} or before shutting down.
+ */
+public class AsyncEmailService implements EmailService {
+
+    public enum BackpressurePolicy {
+        /** The caller waits until there is room in the queue */
+        BLOCK,
+        /** The batch is discarded and counted in {@link #getDroppedBatches()} */
+        DROP,
+        /** The caller sends the batch itself */
+        CALLER_RUNS
+    }
+
+    private final EmailService mailSink;
+    private final int maximumRecipientsPerBatch;
+    private final ThreadPoolExecutor workers;
+    private final Object drainLock = new Object();
+    private long pendingBatches;
+    private final AtomicLong droppedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public AsyncEmailService(EmailService mailSink, int queueCapacity, int numberOfWorkers, int maximumRecipientsPerBatch, BackpressurePolicy backpressurePolicy) {
+        if (queueCapacity < 1 || numberOfWorkers < 1 || maximumRecipientsPerBatch < 1) {
+            throw new UnsupportedOperationException("Queue capacity, number of workers and recipients per batch must all be at least 1");
+        }
+        this.mailSink = mailSink;
+        this.maximumRecipientsPerBatch = maximumRecipientsPerBatch;
+        this.workers = new ThreadPoolExecutor(numberOfWorkers, numberOfWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DaemonThreadFactory("email-worker"), rejectionHandlerFor(backpressurePolicy));
+    }
+
+    @Override
+    public void sendMessage(String emailAddress, String message) {
+        Set<String> recipient = new LinkedHashSet<>();
+        recipient.add(emailAddress);
+        dispatch(recipient, message);
+    }
+
+    @Override
+    public void sendMessages(Set<String> emailAddresses, String message) {
+        List<String> recipients = new ArrayList<>(emailAddresses);
+        for (int from = 0; from < recipients.size(); from += maximumRecipientsPerBatch) {
+            int to = Math.min(from + maximumRecipientsPerBatch, recipients.size());
+            dispatch(new LinkedHashSet<>(recipients.subList(from, to)), message);
+        }
+    }
+
+    /**
+     * Only reflects batches which have already been sent, so call {@link #flush()} first to include everything queued
+     */
+    @Override
+    public boolean messageSent(String emailAddress, String message) {
+        return mailSink.messageSent(emailAddress, message);
+    }
+
+    /**
+     * Waits until every batch accepted so far has been sent or has failed
+     */
+    public void flush() {
+        synchronized (drainLock) {
+            while (pendingBatches > 0) {
+                try {
+                    drainLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if every batch accepted so far was sent (or failed) before the timeout
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (drainLock) {
+            while (pendingBatches > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(drainLock, remaining);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Sends everything already queued, then stops the workers. No more email can be sent afterwards
+     */
+    public void shutdown() {
+        flush();
+        workers.shutdown();
+    }
+
+    public long getDroppedBatches() {
+        return droppedBatches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    private void dispatch(Set<String> recipients, String message) {
+        batchAccepted();
+        try {
+            workers.execute(() -> send(recipients, message));
+        } catch (RejectedExecutionException e) {
+            batchFinished();
+            throw e;
+        }
+    }
+
+    private void send(Set<String> recipients, String message) {
+        try {
+            mailSink.sendMessages(recipients, message);
+        } catch (RuntimeException e) {
+            //One bad batch must not stop the worker or leave flush waiting forever
+            failedBatches.incrementAndGet();
+        } finally {
+            batchFinished();
+        }
+    }
+
+    private void batchAccepted() {
+        synchronized (drainLock) {
+            pendingBatches++;
+        }
+    }
+
+    private void batchFinished() {
+        synchronized (drainLock) {
+            if (--pendingBatches == 0) {
+                drainLock.notifyAll();
+            }
+        }
+    }
+
+    private RejectedExecutionHandler rejectionHandlerFor(BackpressurePolicy backpressurePolicy) {
+        switch (backpressurePolicy) {
+            case DROP:
+                return (batch, executor) -> {
+                    droppedBatches.incrementAndGet();
+                    batchFinished();
+                };
+            case CALLER_RUNS:
+                return (batch, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Email service has been shut down");
+                    }
+                    batch.run();
+                };
+            default:
+                return (batch, executor) -> {
+                    try {
+                        if (executor.isShutdown()) {
+                            throw new RejectedExecutionException("Email service has been shut down");
+                        }
+                        executor.getQueue().put(batch);
+                        //Every worker may have stopped while waiting for room, in which case nothing would ever take the batch
+                        if (executor.isShutdown() && executor.getQueue().remove(batch)) {
+                            throw new RejectedExecutionException("Email service has been shut down");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for room in the email queue", e);
+                    }
+                };
+        }
+    }
+}
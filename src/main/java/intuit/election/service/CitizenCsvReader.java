@@ -0,0 +1,97 @@
+package intuit.election.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows of a CSV file one at a time, so that a file of any size is read in the memory of a single row.
+ * Fields may be quoted, in which case they can hold commas, line breaks and quotes written twice, as in RFC 4180.
+ * Blank lines are skipped.
+ *
+ * Not thread safe. Package private as this class is not intended to be used outside this package
+ */
+class CitizenCsvReader implements Closeable {
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final BufferedReader reader;
+    private long linesRead;
+    private long lineOfRow;
+
+    CitizenCsvReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return the fields of the next row, or null at the end of the file
+     */
+    List<String> readRow() throws IOException {
+        String line = reader.readLine();
+        while (line != null && line.trim().isEmpty()) {
+            linesRead++;
+            line = reader.readLine();
+        }
+        if (line == null) {
+            return null;
+        }
+        if (linesRead == 0 && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+            line = line.substring(1);
+        }
+        linesRead++;
+        lineOfRow = linesRead;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int position = 0;
+        while (true) {
+            if (position == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                //A quoted field runs on to the next line
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                linesRead++;
+                field.append('\n');
+                position = 0;
+                continue;
+            }
+            char character = line.charAt(position++);
+            if (quoted) {
+                if (character != '"') {
+                    field.append(character);
+                } else if (position < line.length() && line.charAt(position) == '"') {
+                    field.append('"');
+                    position++;
+                } else {
+                    quoted = false;
+                }
+            } else if (character == '"') {
+                quoted = true;
+            } else if (character == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(character);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    /**
+     * @return the line of the file the row last read starts on, counted from 1
+     */
+    long getLineOfRow() {
+        return lineOfRow;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
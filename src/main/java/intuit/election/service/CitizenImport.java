@@ -0,0 +1,136 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.RegistrationOutcome;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Registers the citizens read from a CSV file of names and email addresses, a batch of rows at a time, and hands out the
+ * outcome of each row in the order of the file. Only one batch is held in memory however long the file is, and the next
+ * batch is only read once every outcome of the previous one has been taken.
+ *
+ * Within a batch, a row which repeats an earlier row of the batch is turned down before anything is registered, so that the
+ * first of the rows is always the one registered. The rest of the batch is then registered in parallel, and the registry turns
+ * down anyone who registered before the batch.
+ *
+ * Not thread safe. Package private as this class is not intended to be used outside this package
+ */
+class CitizenImport implements Spliterator<RegistrationOutcome> {
+    static final String MISSING_FIELDS_MSG = "Row must have a citizen name and email address";
+    private static final String HEADER_NAME = "name";
+    private static final String HEADER_EMAIL = "email";
+
+    private final CitizenCsvReader reader;
+    private final CitizenRegistry citizenRegistry;
+    private final Consumer<RegistrationOutcome> onRegistered;
+    private final RegistrationOutcome[] batch;
+    private int batchSize;
+    private int nextInBatch;
+    private boolean firstRow = true;
+
+    /**
+     * @param onRegistered told of each citizen registered as soon as they are, from any of the threads registering the batch
+     */
+    CitizenImport(CitizenCsvReader reader, CitizenRegistry citizenRegistry, int rowsPerBatch, Consumer<RegistrationOutcome> onRegistered) {
+        this.reader = reader;
+        this.citizenRegistry = citizenRegistry;
+        this.onRegistered = onRegistered;
+        this.batch = new RegistrationOutcome[rowsPerBatch];
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super RegistrationOutcome> action) {
+        if (nextInBatch == batchSize) {
+            importNextBatch();
+            if (batchSize == 0) {
+                return false;
+            }
+        }
+        RegistrationOutcome outcome = batch[nextInBatch];
+        batch[nextInBatch++] = null;
+        action.accept(outcome);
+        return true;
+    }
+
+    private void importNextBatch() {
+        long[] lines = new long[batch.length];
+        String[] names = new String[batch.length];
+        String[] emails = new String[batch.length];
+        //Keyed the way the registry matches citizens: by name and by email address ignoring case
+        Map<String, Long> firstLineOfCitizen = new HashMap<>();
+        batchSize = 0;
+        nextInBatch = 0;
+        while (batchSize < batch.length) {
+            List<String> fields = readRow();
+            if (fields == null) {
+                break;
+            }
+            if (firstRow && isHeader(fields)) {
+                firstRow = false;
+                continue;
+            }
+            firstRow = false;
+            int row = batchSize++;
+            lines[row] = reader.getLineOfRow();
+            names[row] = fields.get(0);
+            emails[row] = (fields.size() > 1) ? fields.get(1) : "";
+            if (names[row].isEmpty() || emails[row].isEmpty()) {
+                batch[row] = RegistrationOutcome.rejected(lines[row], names[row], emails[row], MISSING_FIELDS_MSG);
+            } else if (firstLineOfCitizen.putIfAbsent(CitizenRegistry.normalise(emails[row]) + '\n' + names[row], lines[row]) != null) {
+                batch[row] = RegistrationOutcome.rejected(lines[row], names[row], emails[row], CitizenRegistry.ALREADY_REGISTERED_MSG);
+            }
+        }
+        IntStream.range(0, batchSize).parallel()
+                .filter(row -> batch[row] == null)
+                .forEach(row -> batch[row] = register(lines[row], names[row], emails[row]));
+    }
+
+    private RegistrationOutcome register(long line, String citizenName, String citizenEmail) {
+        try {
+            CitizenToken citizenToken = citizenRegistry.register(citizenName, citizenEmail);
+            RegistrationOutcome outcome = RegistrationOutcome.registered(line, citizenName, citizenEmail, citizenToken);
+            onRegistered.accept(outcome);
+            return outcome;
+        } catch (UnsupportedOperationException e) {
+            return RegistrationOutcome.rejected(line, citizenName, citizenEmail, e.getMessage());
+        }
+    }
+
+    private List<String> readRow() {
+        try {
+            return reader.readRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isHeader(List<String> fields) {
+        return fields.size() > 1 && fields.get(0).equalsIgnoreCase(HEADER_NAME) && fields.get(1).equalsIgnoreCase(HEADER_EMAIL);
+    }
+
+    /**
+     * The rows are registered in parallel within each batch, but the outcomes are handed out one at a time
+     */
+    @Override
+    public Spliterator<RegistrationOutcome> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -5,54 +5,166 @@ import intuit.election.domain.CitizenToken;
 import lombok.Value;
 import lombok.experimental.Accessors;
 
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
- * Assumed that there will only ever be one instance of the citizen registry
- * so made this a basic singleton with eager initialisation
+ * Each election has a registry of its own, so that elections in different cities share nothing and each numbers its
+ * citizens densely from 0. {@link #getInstance()} is kept for a process which only ever runs one election.
+ * Citizens can register concurrently
  */
 public class CitizenRegistry {
+    static final String ALREADY_REGISTERED_MSG = "Citizens can only register once";
     private static final CitizenRegistry INSTANCE = new CitizenRegistry();
+    //A generator per thread, as UUID.randomUUID() shares one generator behind a lock, which would serialise registrations made in parallel
+    private static final ThreadLocal<SecureRandom> TOKEN_VALUE_GENERATORS = ThreadLocal.withInitial(CitizenRegistry::newTokenValueGenerator);
 
-    private final Map<CitizenToken, Citizen> registeredCitizens = new HashMap<>();
+    //Looked up by the id the token carries, and then checked against the whole token, so a token is never hashed
+    private final DenseIndex<Citizen> registeredCitizens = new DenseIndex<>();
+    //Registered citizens indexed by normalised email address and then by name, so duplicates are found without a scan
+    private final Map<String, Map<String, Citizen>> registeredCitizensByEmail = new ConcurrentHashMap<>();
+    //Not reset with the registry, so that a token from before a reset never shares an id with one from after it. Tokens of other
+    //registries do share ids with this one's, so an id is only used once getOrNull has matched the whole token it came with
+    private final AtomicInteger nextCitizenId = new AtomicInteger();
 
-    private CitizenRegistry(){}
+    public CitizenRegistry(){}
 
+    /**
+     * @return the registry shared by every caller in the process, for when only one election is run
+     */
     public static CitizenRegistry getInstance() {
         return INSTANCE;
     }
 
     public CitizenToken register(String citizenName, String citizenEmail) {
-        if (citizenAlreadyRegistered(citizenName, citizenEmail)) {
-            throw new UnsupportedOperationException("Citizens can only register once");
+        return register(citizenName, citizenEmail, () -> new RegisteredCitizenElectionToken(newTokenValue(), nextCitizenId.getAndIncrement()));
+    }
+
+    /**
+     * Registers a citizen again with the token they were issued before, e.g. when an election is replayed from its journal
+     */
+    CitizenToken restore(String citizenName, String citizenEmail, UUID tokenValue, int citizenId) {
+        return register(citizenName, citizenEmail, () -> {
+            nextCitizenId.accumulateAndGet(citizenId + 1, Math::max);
+            return new RegisteredCitizenElectionToken(tokenValue, citizenId);
+        });
+    }
+
+    /**
+     * The value which, along with its id, identifies a token issued by this registry
+     */
+    UUID tokenValueOf(CitizenToken citizenToken) {
+        if (!(citizenToken instanceof RegisteredCitizenElectionToken) || !((RegisteredCitizenElectionToken) citizenToken).isIssuedBy(this)) {
+            throw new UnsupportedOperationException("Citizen token was not issued by the citizen registry");
+        }
+        return ((RegisteredCitizenElectionToken) citizenToken).value();
+    }
+
+    /**
+     * @param newCitizenToken only asked for a token once the name and email have been claimed, so a citizen who is turned away
+     *                        never uses up an id
+     */
+    private CitizenToken register(String citizenName, String citizenEmail, Supplier<RegisteredCitizenElectionToken> newCitizenToken) {
+        Map<String, Citizen> citizensWithEmail = registeredCitizensByEmail.computeIfAbsent(normalise(citizenEmail), email -> new ConcurrentHashMap<>());
+        Citizen[] registeredCitizen = new Citizen[1];
+        //Claiming the name and email atomically means two simultaneous registrations cannot both succeed
+        citizensWithEmail.computeIfAbsent(citizenName, name -> registeredCitizen[0] = Citizen.of(newCitizenToken.get(), citizenName, citizenEmail));
+        if (registeredCitizen[0] == null) {
+            throw new UnsupportedOperationException(ALREADY_REGISTERED_MSG);
         }
 
-        CitizenToken citizenToken = new RegisteredCitizenElectionToken();
-        registeredCitizens.put(citizenToken, Citizen.of(citizenToken, citizenName, citizenEmail));
+        CitizenToken citizenToken = registeredCitizen[0].getCitizenToken();
+        registeredCitizens.put(citizenToken.id(), registeredCitizen[0]);
         return citizenToken;
     }
 
-    private boolean citizenAlreadyRegistered(String citizenName, String citizenEmail) {
-        return registeredCitizens.values().stream()
-                .anyMatch(citizen -> citizen.getName().equals(citizenName)
-                          && citizen.getEmail().equals(citizenEmail));
+    /**
+     * Email addresses are matched ignoring case and surrounding whitespace. More than one citizen can share an email address
+     */
+    public Collection<Citizen> findByEmail(String citizenEmail) {
+        Map<String, Citizen> citizensWithEmail = registeredCitizensByEmail.get(normalise(citizenEmail));
+        return (citizensWithEmail == null) ? Collections.emptyList() : Collections.unmodifiableCollection(citizensWithEmail.values());
+    }
+
+    static String normalise(String citizenEmail) {
+        return citizenEmail.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return a random version 4 UUID, as {@link UUID#randomUUID()} would give
+     */
+    private static UUID newTokenValue() {
+        byte[] randomBytes = new byte[16];
+        TOKEN_VALUE_GENERATORS.get().nextBytes(randomBytes);
+        randomBytes[6] = (byte) ((randomBytes[6] & 0x0f) | 0x40);
+        randomBytes[8] = (byte) ((randomBytes[8] & 0x3f) | 0x80);
+        ByteBuffer bytes = ByteBuffer.wrap(randomBytes);
+        return new UUID(bytes.getLong(), bytes.getLong());
+    }
+
+    private static SecureRandom newTokenValueGenerator() {
+        try {
+            //Seeded from the operating system once, and then generates without sharing any state with other threads
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnsupportedOperationException("Citizen tokens cannot be generated securely", e);
+        }
     }
 
     public Optional<Citizen> get(CitizenToken citizenToken) {
-        return Optional.ofNullable(registeredCitizens.get(citizenToken));
+        return Optional.ofNullable(getOrNull(citizenToken));
+    }
+
+    /**
+     * @return the registered citizens in the order they were given their ids
+     */
+    Collection<Citizen> getCitizens() {
+        return Collections.unmodifiableList(registeredCitizens.toList());
+    }
+
+    int getNumberOfCitizens() {
+        return registeredCitizens.size();
+    }
+
+    /**
+     * Used in place of {@link #get(CitizenToken)} on paths which must not allocate
+     *
+     * @return the registered citizen, or null if the token is not recognised
+     */
+    Citizen getOrNull(CitizenToken citizenToken) {
+        Citizen citizen = registeredCitizens.get(citizenToken.id());
+        //The id alone can be guessed, so the random value of the token must match too
+        return (citizen != null && citizen.getCitizenToken().equals(citizenToken)) ? citizen : null;
     }
 
     void reset() {
         registeredCitizens.clear();
+        registeredCitizensByEmail.clear();
     }
 
     @Value
     @Accessors(fluent = true)
     private class RegisteredCitizenElectionToken implements CitizenToken{
-        private final UUID value = UUID.randomUUID();
-        private RegisteredCitizenElectionToken() {}
+        private final UUID value;
+        private final int id;
+
+        private RegisteredCitizenElectionToken(UUID value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+
+        private boolean isIssuedBy(CitizenRegistry citizenRegistry) {
+            return CitizenRegistry.this == citizenRegistry;
+        }
     }
 }
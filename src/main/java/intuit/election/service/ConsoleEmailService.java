@@ -0,0 +1,32 @@
+package intuit.election.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local stand-in for a real mail sink. Messages are written to the console rather than sent, and the last message
+ * sent to each email address is remembered so that it can be checked with {@link #messageSent(String, String)}.
+ *
+ * Safe for concurrent use so that it can sit behind the {@link AsyncEmailService} workers.
+ */
+public class ConsoleEmailService implements EmailService {
+
+    private final Map<String, String> sentMessages = new ConcurrentHashMap<>();
+
+    @Override
+    public void sendMessage(String emailAddress, String message) {
+        sentMessages.put(emailAddress, message);
+        System.out.println(String.format("Sending email to %s : %s", emailAddress, message));
+    }
+
+    @Override
+    public void sendMessages(Set<String> emailAddresses, String message) {
+        emailAddresses.forEach(emailAddress -> sendMessage(emailAddress, message));
+    }
+
+    @Override
+    public boolean messageSent(String emailAddress, String message) {
+        return message.equals(sentMessages.get(emailAddress));
+    }
+}
@@ -0,0 +1,62 @@
+package intuit.election.service;
+
+import intuit.election.domain.Contender;
+import intuit.election.domain.RatedIdea;
+
+import java.util.Arrays;
+
+/**
+ * The ideas a contender has published, along with the contender as they were when they last published one, from which their
+ * final rating and disqualification are worked out afresh whenever
+ * they are needed. Each idea's average comes from its integer sum and count of ratings, so the final rating never drifts
+ * however many ratings are added and deleted, and working it out costs a read of each idea's totals.
+ *
+ * Safe for concurrent use. Package private as this class is not intended to be used outside this package
+ */
+class ContenderIdeas implements Leaderboard.ContenderFigures {
+    //Replaced by a longer copy when an idea is published, which only happens while holding the lock of the service publishing it
+    private volatile RatedIdea[] ideas = new RatedIdea[0];
+    //Replaced when an idea is published, as the contender's manifesto cannot change and a new contender is published with each idea
+    private volatile Contender contender;
+
+    ContenderIdeas(Contender contender) {
+        this.contender = contender;
+    }
+
+    void add(RatedIdea ratedIdea, Contender contender) {
+        RatedIdea[] publishedIdeas = Arrays.copyOf(ideas, ideas.length + 1);
+        publishedIdeas[publishedIdeas.length - 1] = ratedIdea;
+        ideas = publishedIdeas;
+        this.contender = contender;
+    }
+
+    @Override
+    public Contender getContender() {
+        return contender;
+    }
+
+    /**
+     * @return the sum of the average rating of each idea, counting an idea without ratings as 0
+     */
+    @Override
+    public double getFinalRating() {
+        double finalRating = 0;
+        for (RatedIdea ratedIdea : ideas) {
+            finalRating += ratedIdea.getAverageRatingOrZero();
+        }
+        return finalRating;
+    }
+
+    /**
+     * A contender is disqualified while any of their ideas has been rated less than 5 by more than 3 voters
+     */
+    @Override
+    public boolean isDisqualified() {
+        for (RatedIdea ratedIdea : ideas) {
+            if (ratedIdea.isDisqualifying()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
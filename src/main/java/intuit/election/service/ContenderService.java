@@ -6,75 +6,140 @@ import intuit.election.domain.Contender;
 import intuit.election.domain.Idea;
 import intuit.election.domain.Manifesto;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
- * Package private as this service is not intended to be used outside this package
+ * Package private as this service is not intended to be used outside this package.
+ *
+ * Safe for concurrent use. Followers are held in a {@link FollowerGraph} which never locks the whole service.
+ * Contenders are copied on publish: each nomination, manifesto or idea added publishes a new immutable {@link Roster}, so readers
+ * never lock and can iterate the contenders they were given however many nominations follow. Each contender published holds
+ * a manifesto which cannot be changed, so adding an idea publishes a new contender rather than changing the one readers hold.
+ * Nominations and ideas are rare next to reads, so copying the roster on each one is cheap
  */
 class ContenderService {
 
     private static final String NOT_A_CONTENDER_MSG = "Citizen is not a nominated contender";
 
-    private final Map<CitizenToken, Contender> contenders = new HashMap<>();
-    //Linked list chosen as insertions are expected to be more prevalent than random access
-    private final Map<CitizenToken, LinkedList<Citizen>> contenderFollowers = new HashMap<>();
+    private volatile Roster roster = new Roster(0, new LinkedHashMap<>());
+    private final FollowerGraph followerGraph = new FollowerGraph();
 
     void nominate(Citizen citizen) {
         Contender myContenderDetails = Contender.of(citizen, null);
-        contenders.put(citizen.getCitizenToken(), myContenderDetails);
-        contenderFollowers.put(myContenderDetails.getCitizenToken(), new LinkedList<>());
+        publish(myContenderDetails);
     }
 
     Optional<Contender> getContender(CitizenToken citizenToken) {
-        return Optional.ofNullable(contenders.get(citizenToken));
+        return Optional.ofNullable(roster.contendersByToken.get(citizenToken));
     }
 
+    /**
+     * @return the contenders in the order they were nominated, as they were when this was called
+     */
     Collection<Contender> getContenders() {
-        return Collections.unmodifiableCollection(contenders.values());
+        return roster.contenders;
     }
 
     boolean isContender(Citizen citizen){
-        return contenders.containsKey(citizen.getCitizenToken());
+        return roster.contendersByToken.containsKey(citizen.getCitizenToken());
     }
 
-    void postManifesto(CitizenToken citizenToken, Manifesto manifesto) {
-        Optional<Contender> myContenderDetails = getContender(citizenToken);
-        myContenderDetails.orElseThrow(()->new UnsupportedOperationException(NOT_A_CONTENDER_MSG));
+    /**
+     * @return the version of the roster, which goes up each time a contender is nominated, posts their manifesto or adds an idea to it
+     */
+    long getRosterVersion() {
+        return roster.version;
+    }
 
-        if (myContenderDetails.get().getManifesto()!=null) {
-            throw new UnsupportedOperationException("Contender can only post a manifesto once");
+    void postManifesto(CitizenToken citizenToken, Manifesto manifesto) {
+        //Checking and replacing the contender under the publishing lock stops a manifesto being posted twice at the same time
+        synchronized (this) {
+            Contender contender = roster.contendersByToken.get(citizenToken);
+            if (contender==null) {
+                throw new UnsupportedOperationException(NOT_A_CONTENDER_MSG);
+            }
+            if (contender.getManifesto()!=null) {
+                throw new UnsupportedOperationException("Contender can only post a manifesto once");
+            }
+            publish(Contender.of(contender.getCitizen(), manifesto));
         }
-        contenders.put(citizenToken, Contender.of(myContenderDetails.get().getCitizen(), manifesto));
     }
 
     void addIdeaToManifesto(CitizenToken citizenToken, Idea idea) {
-        Optional<Contender> myContenderDetails = getContender(citizenToken);
-        myContenderDetails.orElseThrow(()->new UnsupportedOperationException(NOT_A_CONTENDER_MSG));
-
-        if (myContenderDetails.get().getManifesto()==null) {
-            throw new UnsupportedOperationException("Contender has not posted a manifesto yet");
-        } else {
-            contenders.get(citizenToken).getManifesto().add(idea);
+        //Replacing the contender under the publishing lock stops an idea added at the same time as another from being lost
+        synchronized (this) {
+            Contender contender = roster.contendersByToken.get(citizenToken);
+            if (contender==null) {
+                throw new UnsupportedOperationException(NOT_A_CONTENDER_MSG);
+            }
+            if (contender.getManifesto()==null) {
+                throw new UnsupportedOperationException("Contender has not posted a manifesto yet");
+            }
+            publish(Contender.of(contender.getCitizen(), contender.getManifesto().withIdea(idea)));
         }
     }
 
+    /**
+     * Puts back a contender exactly as they were, e.g. when an election is restored from a snapshot
+     */
+    void restoreContender(Contender contender) {
+        publish(contender);
+    }
+
+    /**
+     * Publishes a copy of the roster with the contender added, or replaced if they are already on it. The contender's manifesto
+     * is copied if it can still be changed, so that whoever posted it cannot change it under readers of the roster
+     */
+    private synchronized void publish(Contender contender) {
+        Manifesto manifesto = contender.getManifesto();
+        Contender publishedContender = (manifesto == null) ? contender : Contender.of(contender.getCitizen(), manifesto.toImmutable());
+        Map<CitizenToken, Contender> contendersByToken = new LinkedHashMap<>(roster.contendersByToken);
+        contendersByToken.put(publishedContender.getCitizenToken(), publishedContender);
+        roster = new Roster(roster.version + 1, contendersByToken);
+    }
+
     void startFollowing(Citizen citizen, Contender contender) {
-        contenderFollowers.get(contender.getCitizenToken()).add(citizen);
+        followerGraph.follow(citizen, contender.getCitizenToken());
+    }
+
+    void startFollowing(Collection<Citizen> citizens, Contender contender) {
+        followerGraph.follow(citizens, contender.getCitizenToken());
+    }
+
+    Collection<Citizen> getFollowers(Contender contender) {
+        return followerGraph.getFollowers(contender.getCitizenToken());
     }
 
     boolean isFollowerOf(Citizen citizen, Contender contender) {
-        return contenderFollowers.get(contender.getCitizenToken()).contains(citizen);
+        return followerGraph.isFollowerOf(citizen.getCitizenToken(), contender.getCitizenToken());
     }
 
+    /**
+     * @return the email addresses of the contender's followers and of the followers of any follower who is a contender too
+     */
     Set<String> getEmailAddressesOfFollowerChain(Contender contender) {
-        LinkedList<Citizen> followers = contenderFollowers.get(contender.getCitizenToken());
-        return followers.stream().map(Citizen::getEmail).collect(Collectors.toSet());
+        return followerGraph.getRecipientEmailAddresses(contender.getCitizenToken());
+    }
+
+    /**
+     * An immutable snapshot of the contenders
+     */
+    private static class Roster {
+        private final long version;
+        private final Map<CitizenToken, Contender> contendersByToken;
+        private final List<Contender> contenders;
+
+        private Roster(long version, Map<CitizenToken, Contender> contendersByToken) {
+            this.version = version;
+            this.contendersByToken = Collections.unmodifiableMap(contendersByToken);
+            this.contenders = Collections.unmodifiableList(new ArrayList<>(contendersByToken.values()));
+        }
     }
 }
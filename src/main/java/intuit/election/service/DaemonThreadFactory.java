@@ -0,0 +1,25 @@
+package intuit.election.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Names the threads of a background pool and makes them daemons, so that they never keep the process running.
+ *
+ * Package private as this class is not intended to be used outside this package
+ */
+class DaemonThreadFactory implements ThreadFactory {
+    private final String name;
+    private final AtomicInteger nextThread = new AtomicInteger(1);
+
+    DaemonThreadFactory(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name + "-" + nextThread.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,120 @@
+package intuit.election.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Values indexed by a dense id, such as the id of a citizen's token, in chunks of 4096 so that the index grows without copying
+ * any values. A lookup reads two array slots, and values are added without locking except when a new chunk is needed.
+ *
+ * Package private as this class is not intended to be used outside this package
+ */
+class DenseIndex<T> {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    //Only replaced, and only given new chunks, while holding the index's lock, so that no chunk can be lost to a copy
+    private volatile AtomicReferenceArray<AtomicReferenceArray<T>> chunks = new AtomicReferenceArray<>(1);
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * @return the value with the id, or null if there is none
+     */
+    T get(int id) {
+        AtomicReferenceArray<AtomicReferenceArray<T>> chunks = this.chunks;
+        int chunkIndex = id >>> CHUNK_BITS;
+        if (id < 0 || chunkIndex >= chunks.length()) {
+            return null;
+        }
+        AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+        return (chunk == null) ? null : chunk.get(id & CHUNK_MASK);
+    }
+
+    /**
+     * Replaces any value the id already has
+     */
+    void put(int id, T value) {
+        if (chunkFor(id).getAndSet(id & CHUNK_MASK, value) == null) {
+            size.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the value the id already had, in which case it is kept, or null if the value given was added
+     */
+    T putIfAbsent(int id, T value) {
+        AtomicReferenceArray<T> chunk = chunkFor(id);
+        do {
+            T existingValue = chunk.get(id & CHUNK_MASK);
+            if (existingValue != null) {
+                return existingValue;
+            }
+        } while (!chunk.compareAndSet(id & CHUNK_MASK, null, value));
+        size.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Replaces the value the id has only if it is still the one expected, which cannot be null
+     *
+     * @return true if the value was replaced
+     */
+    boolean compareAndSet(int id, T expectedValue, T value) {
+        return chunkFor(id).compareAndSet(id & CHUNK_MASK, expectedValue, value);
+    }
+
+    private AtomicReferenceArray<T> chunkFor(int id) {
+        AtomicReferenceArray<AtomicReferenceArray<T>> chunks = this.chunks;
+        int chunkIndex = id >>> CHUNK_BITS;
+        AtomicReferenceArray<T> chunk = (chunkIndex < chunks.length()) ? chunks.get(chunkIndex) : null;
+        return (chunk == null) ? addChunk(chunkIndex) : chunk;
+    }
+
+    private synchronized AtomicReferenceArray<T> addChunk(int chunkIndex) {
+        AtomicReferenceArray<AtomicReferenceArray<T>> chunks = this.chunks;
+        if (chunkIndex >= chunks.length()) {
+            AtomicReferenceArray<AtomicReferenceArray<T>> grown = new AtomicReferenceArray<>(Math.max(chunks.length() * 2, chunkIndex + 1));
+            for (int copied = 0; copied < chunks.length(); copied++) {
+                grown.set(copied, chunks.get(copied));
+            }
+            chunks = grown;
+            this.chunks = grown;
+        }
+        AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+            chunks.set(chunkIndex, chunk);
+        }
+        return chunk;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the values in the order of their ids
+     */
+    List<T> toList() {
+        AtomicReferenceArray<AtomicReferenceArray<T>> chunks = this.chunks;
+        List<T> values = new ArrayList<>(size());
+        for (int chunkIndex = 0; chunkIndex < chunks.length(); chunkIndex++) {
+            AtomicReferenceArray<T> chunk = chunks.get(chunkIndex);
+            for (int slot = 0; chunk != null && slot < CHUNK_SIZE; slot++) {
+                T value = chunk.get(slot);
+                if (value != null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values;
+    }
+
+    synchronized void clear() {
+        chunks = new AtomicReferenceArray<>(1);
+        size.set(0);
+    }
+}
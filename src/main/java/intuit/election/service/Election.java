@@ -3,12 +3,25 @@ package intuit.election.service;
 import intuit.election.domain.Citizen;
 import intuit.election.domain.CitizenToken;
 import intuit.election.domain.Contender;
+import intuit.election.domain.ContenderHandle;
 import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.LeaderboardEntry;
 import intuit.election.domain.Manifesto;
 import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RegistrationOutcome;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 public interface Election {
     Collection<Contender> getContenders();
@@ -17,6 +30,17 @@ public interface Election {
 
     Optional<Citizen> getRegisteredCitizen(CitizenToken citizenToken);
 
+    /**
+     * Registers the citizens of a UTF-8 CSV file of names and email addresses, which may start with a header row of {@code name,email}.
+     * Rows are read and registered a batch at a time as the returned stream is consumed, so memory use does not grow with the
+     * size of the file. Closing the stream closes the input
+     *
+     * @return the outcome of each row in the order of the file, with the token of each citizen registered
+     */
+    Stream<RegistrationOutcome> importCitizens(InputStream csv);
+
+    Stream<RegistrationOutcome> importCitizens(Path csvFile) throws IOException;
+
     boolean isContender(Citizen citizen);
 
     void nominateMyself(CitizenToken citizenToken);
@@ -27,13 +51,66 @@ public interface Election {
 
     void addIdeaToMyManifesto(CitizenToken citizenToken, Idea idea);
 
+    /**
+     * Ideas can be looked up by their description alone, but another contender may have published an idea with the same
+     * description, in which case the first to be published is rated. Look up the idea's handle to rate a particular contender's idea
+     */
     void rateIdea(CitizenToken citizenTokenOfRater, Idea idea, Rating rating);
 
+    /**
+     * Finds the idea by the id of its handle, so the description is never hashed
+     */
+    void rateIdea(CitizenToken citizenTokenOfRater, IdeaHandle idea, Rating rating);
+
+    /**
+     * @return the handle given to the idea when the contender published it
+     */
+    Optional<IdeaHandle> getIdeaHandle(CitizenToken contenderToken, Idea idea);
+
+    /**
+     * @return the handle given to the contender when their first idea was published
+     */
+    Optional<ContenderHandle> getContenderHandle(CitizenToken contenderToken);
+
+    List<RatingOutcome> rateIdeas(Collection<RatingCommand> ratingCommands);
+
     Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, Idea idea);
 
+    Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, IdeaHandle idea);
+
     boolean iFollow(CitizenToken citizenToken, Contender contender);
 
     void deleteRatingForIdea(CitizenToken ideaRatingCitizen, Idea ideaOfTheContender);
 
+    void deleteRatingForIdea(CitizenToken ideaRatingCitizen, IdeaHandle ideaOfTheContender);
+
+    /**
+     * Takes time in the number of ratings the citizen has made, however many ideas have been published
+     *
+     * @return the citizen's rating of each idea they have rated, in no particular order
+     */
+    Map<IdeaHandle, Rating> getMyRatings(CitizenToken ideaRatingCitizen);
+
+    /**
+     * Deletes every rating the citizen has made, adjusting the final rating of each contender whose ideas they rated only once
+     *
+     * @return the ratings withdrawn, in no particular order
+     */
+    Map<IdeaHandle, Rating> withdrawAllMyRatings(CitizenToken ideaRatingCitizen);
+
     Optional<Contender> getContenderWithHighestFinalRating();
+
+    List<Contender> getTopContenders(int numberOfContenders);
+
+    Optional<Integer> getRank(Contender contender);
+
+    Optional<Integer> getRank(ContenderHandle contender);
+
+    List<LeaderboardEntry> getLeaderboard(int fromRank, int numberOfEntries);
+
+    /**
+     * Sends the listener the changes to the leaderboard at most once per interval, however many ratings are made in between.
+     * The listener is called on a thread of its own and never holds up ratings
+     */
+    LeaderboardSubscription subscribeToLeaderboard(LeaderboardListener listener, long interval, TimeUnit unit);
 }
@@ -0,0 +1,255 @@
+package intuit.election.service;
+
+import intuit.election.domain.AuditDiscrepancy;
+import intuit.election.domain.AuditReport;
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.RatedIdea;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Recounts every idea from its raw ratings and checks the figures the election keeps up to date as ratings arrive: each idea's
+ * number of ratings, average rating and number of low ratings, and each contender's final rating and disqualification.
+ *
+ * The work is spread over a fork/join pool at every level: the ideas are recounted in parallel, each idea's ratings are split
+ * into ranges which are recounted in parallel, and the contenders are then checked in parallel.
+ *
+ * Voting carries on during the audit. Each idea is recounted with its ratings paused, so only ratings of the ideas being recounted
+ * wait, and only for as long as their recount takes. Ratings made while the audit runs can move a contender's final rating away
+ * from the recount, so each contender is checked against the ideas' running figures with ratings of all of their ideas paused.
+ * A mismatch is looked at again a few times before it is reported, backing off between looks with the ideas' ratings let go,
+ * so that ratings already under way can land.
+ *
+ * Audits of the same election must not overlap. A worker recounting an idea holds its ratings paused while it waits for the rest
+ * of the recount, and may pick up a task of the other audit in the meantime, which would leave that task waiting on ideas this
+ * worker's audit holds. {@link ElectionService#audit(ForkJoinPool)} runs one audit at a time.
+ *
+ * Package private as this class is not intended to be used outside this package
+ */
+class ElectionAudit {
+    //Ranges smaller than this are recounted by a single thread
+    private static final int POSITIONS_PER_TASK = 1 << 16;
+    //Final ratings add up the ideas' averages in whichever order the ideas were published, so allow for rounding
+    private static final double ROUNDING_TOLERANCE = 1e-6;
+    private static final int CONTENDER_CHECK_ATTEMPTS = 5;
+    private static final long CONTENDER_CHECK_PAUSE_MILLIS = 1;
+
+    private final RatedIdeaService ratedIdeaService;
+    private final ForkJoinPool pool;
+
+    ElectionAudit(RatedIdeaService ratedIdeaService, ForkJoinPool pool) {
+        this.ratedIdeaService = ratedIdeaService;
+        this.pool = pool;
+    }
+
+    AuditReport run() {
+        List<RatedIdea> ratedIdeas = new ArrayList<>(ratedIdeaService.getRatedIdeas());
+        IdeaAudit[] ideaAudits = new IdeaAudit[ratedIdeas.size()];
+        pool.invoke(new EachTask(0, ratedIdeas.size(), idea -> ideaAudits[idea] = auditIdea(ratedIdeas.get(idea))));
+
+        List<AuditDiscrepancy> discrepancies = new ArrayList<>();
+        Map<CitizenToken, List<RatedIdea>> ideasByContender = new LinkedHashMap<>();
+        Map<CitizenToken, Double> recountedFinalRatings = new LinkedHashMap<>();
+        long ratingsRecounted = 0;
+        for (int idea = 0; idea < ideaAudits.length; idea++) {
+            RatedIdea ratedIdea = ratedIdeas.get(idea);
+            CitizenToken contenderToken = ratedIdea.getContender().getCitizenToken();
+            ideasByContender.computeIfAbsent(contenderToken, token -> new ArrayList<>()).add(ratedIdea);
+            recountedFinalRatings.merge(contenderToken, ideaAudits[idea].recount.averageRating(), Double::sum);
+            ratingsRecounted += ideaAudits[idea].recount.numberOfRatings;
+            discrepancies.addAll(ideaAudits[idea].discrepancies);
+        }
+
+        List<List<RatedIdea>> contenders = new ArrayList<>(ideasByContender.values());
+        List<List<AuditDiscrepancy>> contenderDiscrepancies = new ArrayList<>(Collections.nCopies(contenders.size(), null));
+        pool.invoke(new EachTask(0, contenders.size(), contender -> {
+            List<RatedIdea> ideas = contenders.get(contender);
+            contenderDiscrepancies.set(contender, auditContender(ideas, recountedFinalRatings.get(ideas.get(0).getContender().getCitizenToken())));
+        }));
+        contenderDiscrepancies.forEach(discrepancies::addAll);
+        return AuditReport.of(ratedIdeas.size(), ideasByContender.size(), ratingsRecounted, Collections.unmodifiableList(discrepancies));
+    }
+
+    private static IdeaAudit auditIdea(RatedIdea ratedIdea) {
+        String idea = ratedIdea.getIdea().getDescription();
+        //The pool's threads see every rating made before ratings were paused, as handing them a task happens after pausing
+        return ratedIdea.whileRatingsArePaused(() -> {
+            IdeaAudit ideaAudit = new IdeaAudit(new RecountTask(ratedIdea, 0, ratedIdea.getRatingPositions()).invoke());
+            check(ideaAudit.discrepancies, "Number of ratings of idea: " + idea, ideaAudit.recount.numberOfRatings, ratedIdea.getNumberOfRatings());
+            check(ideaAudit.discrepancies, "Average rating of idea: " + idea, ideaAudit.recount.averageRating(), ratedIdea.getAverageRatingOrZero());
+            check(ideaAudit.discrepancies, "Number of low ratings of idea: " + idea, ideaAudit.recount.numberOfLowRatings, ratedIdea.getNumberOfLowRatings());
+            return ideaAudit;
+        });
+    }
+
+    /**
+     * Pauses ratings of every idea of the contender while checking, so the ideas' figures stay put and the contender's own
+     * figures, which ratings update just after landing in the idea, can only be catching up with them. The ratings are let go
+     * again before backing off, so a contender who is looked at again never holds up ratings while the audit waits
+     */
+    private List<AuditDiscrepancy> auditContender(List<RatedIdea> ideas, double recountedFinalRating) {
+        Contender contender = ideas.get(0).getContender();
+        ContenderCheck contenderCheck = new ContenderCheck();
+        for (int attempt = 0; attempt < CONTENDER_CHECK_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                pause();
+            }
+            boolean firstAttempt = attempt == 0;
+            whileRatingsOfArePaused(ideas, 0, () -> {
+                //Each idea's running figures were checked against its recount, so after the first look they stand in for a fresh recount
+                contenderCheck.expectedFinalRating = firstAttempt ? recountedFinalRating : ideas.stream().mapToDouble(RatedIdea::getAverageRatingOrZero).sum();
+                contenderCheck.expectedDisqualified = ideas.stream().anyMatch(RatedIdea::isDisqualifying);
+                contenderCheck.recordedFinalRating = ratedIdeaService.getFinalRatingFor(contender).orElse(0.0);
+                contenderCheck.recordedDisqualified = ratedIdeaService.isDisqualified(contender);
+            });
+            if (contenderCheck.matches()) {
+                return Collections.emptyList();
+            }
+        }
+        List<AuditDiscrepancy> discrepancies = new ArrayList<>();
+        check(discrepancies, "Final rating of contender: " + contender.getName(), contenderCheck.expectedFinalRating, contenderCheck.recordedFinalRating);
+        check(discrepancies, "Disqualification of contender: " + contender.getName(), contenderCheck.expectedDisqualified ? 1 : 0, contenderCheck.recordedDisqualified ? 1 : 0);
+        return discrepancies;
+    }
+
+    private static void whileRatingsOfArePaused(List<RatedIdea> ideas, int from, Runnable check) {
+        if (from == ideas.size()) {
+            check.run();
+            return;
+        }
+        ideas.get(from).whileRatingsArePaused(() -> {
+            whileRatingsOfArePaused(ideas, from + 1, check);
+            return null;
+        });
+    }
+
+    private static void check(List<AuditDiscrepancy> discrepancies, String description, double recounted, double recorded) {
+        if (Math.abs(recounted - recorded) > ROUNDING_TOLERANCE) {
+            discrepancies.add(AuditDiscrepancy.of(description, recounted, recorded));
+        }
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(CONTENDER_CHECK_PAUSE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs the action for each index in a range, splitting the range in half until each task has a single index
+     */
+    private static class EachTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        private EachTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (from < to) {
+                    action.accept(from);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EachTask(from, middle, action), new EachTask(middle, to, action));
+        }
+    }
+
+    /**
+     * Recounts a range of an idea's rating positions, splitting it in half until the ranges are small enough
+     */
+    private static class RecountTask extends RecursiveTask<Recount> {
+        private static final long serialVersionUID = 1L;
+        private final RatedIdea ratedIdea;
+        private final int fromPosition;
+        private final int toPosition;
+
+        private RecountTask(RatedIdea ratedIdea, int fromPosition, int toPosition) {
+            this.ratedIdea = ratedIdea;
+            this.fromPosition = fromPosition;
+            this.toPosition = toPosition;
+        }
+
+        @Override
+        protected Recount compute() {
+            if (toPosition - fromPosition <= POSITIONS_PER_TASK) {
+                Recount recount = new Recount();
+                ratedIdea.forEachRatingInRange(fromPosition, toPosition, recount);
+                return recount;
+            }
+            int middlePosition = (fromPosition + toPosition) >>> 1;
+            RecountTask firstHalf = new RecountTask(ratedIdea, fromPosition, middlePosition);
+            firstHalf.fork();
+            Recount secondHalf = new RecountTask(ratedIdea, middlePosition, toPosition).compute();
+            return secondHalf.add(firstHalf.join());
+        }
+    }
+
+    private static class IdeaAudit {
+        private final Recount recount;
+        private final List<AuditDiscrepancy> discrepancies = new ArrayList<>();
+
+        private IdeaAudit(Recount recount) {
+            this.recount = recount;
+        }
+    }
+
+    /**
+     * The figures of the last look at a contender
+     */
+    private static class ContenderCheck {
+        private double expectedFinalRating;
+        private double recordedFinalRating;
+        private boolean expectedDisqualified;
+        private boolean recordedDisqualified;
+
+        private boolean matches() {
+            return Math.abs(expectedFinalRating - recordedFinalRating) <= ROUNDING_TOLERANCE && expectedDisqualified == recordedDisqualified;
+        }
+    }
+
+    private static class Recount implements RatedIdea.RatingVisitor {
+        private long numberOfRatings;
+        private long sumOfRatings;
+        private long numberOfLowRatings;
+
+        @Override
+        public void visit(int citizenId, byte rating) {
+            numberOfRatings++;
+            sumOfRatings += rating;
+            if (RatedIdea.isLowRating(rating)) {
+                numberOfLowRatings++;
+            }
+        }
+
+        private Recount add(Recount other) {
+            numberOfRatings += other.numberOfRatings;
+            sumOfRatings += other.sumOfRatings;
+            numberOfLowRatings += other.numberOfLowRatings;
+            return this;
+        }
+
+        private double averageRating() {
+            return (numberOfRatings == 0) ? 0 : (double) sumOfRatings / numberOfRatings;
+        }
+    }
+}
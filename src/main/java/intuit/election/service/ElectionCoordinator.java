@@ -0,0 +1,116 @@
+package intuit.election.service;
+
+import intuit.election.domain.Contender;
+import intuit.election.domain.ElectionStatistics;
+import intuit.election.domain.RatingStore;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the elections of several cities in one process. Each city's election has a citizen registry, contenders and ratings
+ * of its own, so cities share no state and never contend with each other. A citizen registers in each city they vote in,
+ * and their token is only recognised by the city which issued it: a token of another city is turned down, even though it can
+ * carry the id of one of this city's citizens.
+ *
+ * Work which spans every city, such as finding each city's winner, is run for all of the cities in parallel.
+ *
+ * Safe for concurrent use
+ */
+public class ElectionCoordinator implements Closeable {
+    private final Map<String, ElectionService> elections = new ConcurrentSkipListMap<>();
+    private final Executor executor;
+
+    public ElectionCoordinator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param executor runs the work for each city when every city is looked at together
+     */
+    public ElectionCoordinator(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Election addCity(String city, EmailService emailService) {
+        return addCity(city, emailService, RatingStore::onHeap);
+    }
+
+    /**
+     * @param ratingStores creates the store for the ratings of each idea, e.g. {@link RatingStore#offHeap()} for a city with a very large electorate
+     */
+    public Election addCity(String city, EmailService emailService, Supplier<RatingStore> ratingStores) {
+        ElectionService election = new ElectionService(new CitizenRegistry(), new ContenderService(), new RatedIdeaService(ratingStores), emailService);
+        if (elections.putIfAbsent(city, election) != null) {
+            throw new UnsupportedOperationException("City already has an election: " + city);
+        }
+        return election;
+    }
+
+    public Optional<Election> getCity(String city) {
+        return Optional.ofNullable(elections.get(city));
+    }
+
+    /**
+     * @return the cities in alphabetical order
+     */
+    public Set<String> getCities() {
+        return Collections.unmodifiableSet(elections.keySet());
+    }
+
+    /**
+     * @return the contender with the highest final rating in each city, by city in alphabetical order
+     */
+    public Map<String, Optional<Contender>> getWinners() {
+        return forEachCity(ElectionService::getContenderWithHighestFinalRating);
+    }
+
+    /**
+     * @return the statistics of each city, by city in alphabetical order
+     */
+    public Map<String, ElectionStatistics> getStatistics() {
+        return forEachCity(ElectionService::getStatistics);
+    }
+
+    /**
+     * @return the statistics of every city added together
+     */
+    public ElectionStatistics getTotalStatistics() {
+        return getStatistics().values().stream().reduce(ElectionStatistics.NONE, ElectionStatistics::plus);
+    }
+
+    /**
+     * Closes the election of every city, see {@link ElectionService#close()}
+     */
+    @Override
+    public void close() {
+        elections.values().forEach(ElectionService::close);
+    }
+
+    private <T> Map<String, T> forEachCity(Function<ElectionService, T> work) {
+        Map<String, CompletableFuture<T>> pendingResults = new LinkedHashMap<>();
+        elections.forEach((city, election) -> pendingResults.put(city, CompletableFuture.supplyAsync(() -> work.apply(election), executor)));
+        Map<String, T> results = new LinkedHashMap<>();
+        try {
+            pendingResults.forEach((city, pendingResult) -> results.put(city, pendingResult.join()));
+        } catch (CompletionException e) {
+            //Fail the same way as the city which failed would have if it were called directly
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return Collections.unmodifiableMap(results);
+    }
+}
@@ -0,0 +1,396 @@
+package intuit.election.service;
+
+import intuit.election.domain.Idea;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * An append-only log of the events which changed an election, written to a memory-mapped file.
+ *
+ * The file is mapped in fixed size segments. Appending a record claims its place in the log with a compare-and-set,
+ * so records are written concurrently and without locking, and a record never spans two segments. Each record is a length
+ * followed by a type and its fields. The length is written last, so a record which was only partly written when the
+ * process stopped reads as the end of the log.
+ *
+ * Appending never waits for the disk. A flusher thread forces the segments written since the last force every flush interval, which
+ * bounds how much a crash can lose but is asynchronous: nothing appended is known to be on the disk until {@link #commit()} returns.
+ * Callers committing at the same time share a force, as whichever gets to force first forces every record appended so far.
+ *
+ * Package private as this class is not intended to be used outside this package
+ */
+class ElectionJournal implements Closeable {
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 10;
+
+    private static final byte CITIZEN_REGISTERED = 1;
+    private static final byte CONTENDER_NOMINATED = 2;
+    private static final byte MANIFESTO_POSTED = 3;
+    private static final byte IDEA_ADDED = 4;
+    private static final byte IDEA_RATED = 5;
+    private static final byte RATING_DELETED = 6;
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+    //Written where a segment has no room left for the next record
+    private static final int END_OF_SEGMENT = -1;
+    private static final int IDEA_RATED_LENGTH = 1 + Integer.BYTES + Integer.BYTES + 1;
+    private static final int RATING_DELETED_LENGTH = 1 + Integer.BYTES + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    //Only ever grows, and is replaced rather than changed so that appenders can read it without locking
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private final AtomicLong nextPosition = new AtomicLong();
+    private final LongAdder appendedRecords = new LongAdder();
+    private long committedRecords;
+    private long committedPosition;
+    private final Object mappingLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Callbacks for each kind of record, in the order the records were appended
+     */
+    interface Replay {
+        void citizenRegistered(int citizenId, UUID tokenValue, String citizenName, String citizenEmail);
+
+        void contenderNominated(int citizenId);
+
+        void manifestoPosted(int citizenId, List<Idea> ideas);
+
+        void ideaAdded(int citizenId, Idea idea);
+
+        void ideaRated(int raterId, int ideaOrdinal, int rating);
+
+        void ratingDeleted(int raterId, int ideaOrdinal);
+    }
+
+    private ElectionJournal(FileChannel channel, int segmentSize, long flushIntervalMillis) {
+        this.channel = channel;
+        this.segmentSize = segmentSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("journal-flusher"));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    static ElectionJournal open(Path file) throws IOException {
+        return open(file, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    static ElectionJournal open(Path file, int segmentSize, long flushIntervalMillis) throws IOException {
+        if (segmentSize < 64 || flushIntervalMillis < 1) {
+            throw new UnsupportedOperationException("Journal segments must be at least 64 bytes and the flush interval at least 1 millisecond");
+        }
+        return new ElectionJournal(FileChannel.open(file, CREATE, READ, WRITE), segmentSize, flushIntervalMillis);
+    }
+
+    /**
+     * Reads every record in the log, then positions the log after the last complete record so that appending can begin.
+     * Must be called once, before anything is appended
+     */
+    long replay(Replay replay) throws IOException {
+        return replay(replay, 0);
+    }
+
+    /**
+     * Reads the records from a position returned by {@link #position()}, skipping everything before it without reading it
+     */
+    synchronized long replay(Replay replay, long fromPosition) throws IOException {
+        long position = fromPosition;
+        long segmentsInFile = (channel.size() + segmentSize - 1) / segmentSize;
+        while (segmentIndex(position) < segmentsInFile) {
+            MappedByteBuffer segment = segmentAt(position);
+            int offset = segmentOffset(position);
+            int length = (segmentSize - offset < LENGTH_BYTES) ? END_OF_SEGMENT : segment.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length == END_OF_SEGMENT) {
+                position += segmentSize - offset;
+                continue;
+            }
+            if (length < 0 || length > segmentSize - offset - LENGTH_BYTES) {
+                throw new UnsupportedOperationException("Journal is corrupt at position " + position);
+            }
+            replayRecord(segment, offset + LENGTH_BYTES, replay);
+            position += LENGTH_BYTES + length;
+        }
+        clearFrom(position);
+        nextPosition.set(position);
+        committedPosition = position;
+        return position;
+    }
+
+    void appendCitizenRegistered(int citizenId, UUID tokenValue, String citizenName, String citizenEmail) {
+        byte[] name = encode(citizenName);
+        byte[] email = encode(citizenEmail);
+        ByteBuffer record = ByteBuffer.allocate(1 + Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES + name.length + email.length)
+                .put(CITIZEN_REGISTERED)
+                .putInt(citizenId)
+                .putLong(tokenValue.getMostSignificantBits())
+                .putLong(tokenValue.getLeastSignificantBits());
+        putString(record, name);
+        putString(record, email);
+        append(record);
+    }
+
+    void appendContenderNominated(int citizenId) {
+        append(ByteBuffer.allocate(1 + Integer.BYTES).put(CONTENDER_NOMINATED).putInt(citizenId));
+    }
+
+    void appendManifestoPosted(int citizenId, List<Idea> ideas) {
+        List<byte[]> descriptions = new ArrayList<>();
+        int length = 1 + Integer.BYTES + 1;
+        for (Idea idea : ideas) {
+            byte[] description = encode(idea.getDescription());
+            descriptions.add(description);
+            length += Integer.BYTES + description.length;
+        }
+        ByteBuffer record = ByteBuffer.allocate(length).put(MANIFESTO_POSTED).putInt(citizenId).put((byte) ideas.size());
+        descriptions.forEach(description -> putString(record, description));
+        append(record);
+    }
+
+    void appendIdeaAdded(int citizenId, Idea idea) {
+        byte[] description = encode(idea.getDescription());
+        ByteBuffer record = ByteBuffer.allocate(1 + Integer.BYTES + Integer.BYTES + description.length).put(IDEA_ADDED).putInt(citizenId);
+        putString(record, description);
+        append(record);
+    }
+
+    /**
+     * Written straight into the mapped file, as this is appended for every rating
+     */
+    void appendIdeaRated(int raterId, int ideaOrdinal, int rating) {
+        long position = claim(IDEA_RATED_LENGTH);
+        MappedByteBuffer segment = segmentAt(position);
+        int offset = segmentOffset(position) + LENGTH_BYTES;
+        segment.put(offset, IDEA_RATED);
+        segment.putInt(offset + 1, raterId);
+        segment.putInt(offset + 1 + Integer.BYTES, ideaOrdinal);
+        segment.put(offset + 1 + 2 * Integer.BYTES, (byte) rating);
+        completed(segment, position, IDEA_RATED_LENGTH);
+    }
+
+    void appendRatingDeleted(int raterId, int ideaOrdinal) {
+        long position = claim(RATING_DELETED_LENGTH);
+        MappedByteBuffer segment = segmentAt(position);
+        int offset = segmentOffset(position) + LENGTH_BYTES;
+        segment.put(offset, RATING_DELETED);
+        segment.putInt(offset + 1, raterId);
+        segment.putInt(offset + 1 + Integer.BYTES, ideaOrdinal);
+        completed(segment, position, RATING_DELETED_LENGTH);
+    }
+
+    /**
+     * @return the position the next record will be appended at. Every record appended before this was called lies before it
+     */
+    long position() {
+        return nextPosition.get();
+    }
+
+    /**
+     * Waits until every record appended so far has been forced to the disk. A caller which waited for another's force returns
+     * without forcing again if nothing has been appended since
+     */
+    synchronized void commit() {
+        long appended = appendedRecords.sum();
+        if (appended == committedRecords) {
+            return;
+        }
+        long position = nextPosition.get();
+        MappedByteBuffer[] mappedSegments = segments;
+        //A segment claimed but not yet mapped holds no completed record yet, so the next commit forces it
+        int lastSegment = Math.min(segmentIndex(Math.max(position - 1, 0)), mappedSegments.length - 1);
+        //Starts a segment early in case a record claimed before the last commit was still being written at the end of the previous segment
+        for (int segment = Math.max(segmentIndex(committedPosition) - 1, 0); segment <= lastSegment; segment++) {
+            mappedSegments[segment].force();
+        }
+        //Records still being written when the position was read are counted later and forced by the next commit
+        committedRecords = appended;
+        committedPosition = position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        commit();
+        channel.close();
+    }
+
+    private void flushQuietly() {
+        try {
+            commit();
+        } catch (RuntimeException e) {
+            //Keep flushing, the records are forced again by the next commit
+        }
+    }
+
+    private void append(ByteBuffer record) {
+        int length = record.position();
+        long position = claim(length);
+        MappedByteBuffer segment = segmentAt(position);
+        int offset = segmentOffset(position) + LENGTH_BYTES;
+        for (int i = 0; i < length; i++) {
+            segment.put(offset + i, record.get(i));
+        }
+        completed(segment, position, length);
+    }
+
+    /**
+     * Claims room for a record, moving on to the next segment if there is not enough room left in this one
+     *
+     * @return the position of the record in the log
+     */
+    private long claim(int length) {
+        int recordLength = LENGTH_BYTES + length;
+        if (recordLength > segmentSize) {
+            throw new UnsupportedOperationException("Journal record is larger than a journal segment");
+        }
+        long position;
+        long recordPosition;
+        do {
+            position = nextPosition.get();
+            int roomLeft = segmentSize - segmentOffset(position);
+            recordPosition = (roomLeft < recordLength) ? position + roomLeft : position;
+        } while (!nextPosition.compareAndSet(position, recordPosition + recordLength));
+        if (recordPosition != position && segmentSize - segmentOffset(position) >= LENGTH_BYTES) {
+            segmentAt(position).putInt(segmentOffset(position), END_OF_SEGMENT);
+        }
+        return recordPosition;
+    }
+
+    private void completed(MappedByteBuffer segment, long position, int length) {
+        segment.putInt(segmentOffset(position), length);
+        appendedRecords.increment();
+    }
+
+    private void replayRecord(MappedByteBuffer segment, int offset, Replay replay) {
+        switch (segment.get(offset)) {
+            case CITIZEN_REGISTERED: {
+                ByteBuffer record = recordAt(segment, offset + 1);
+                int citizenId = record.getInt();
+                UUID tokenValue = new UUID(record.getLong(), record.getLong());
+                replay.citizenRegistered(citizenId, tokenValue, getString(record), getString(record));
+                break;
+            }
+            case CONTENDER_NOMINATED:
+                replay.contenderNominated(segment.getInt(offset + 1));
+                break;
+            case MANIFESTO_POSTED: {
+                ByteBuffer record = recordAt(segment, offset + 1);
+                int citizenId = record.getInt();
+                Idea[] ideas = new Idea[record.get()];
+                for (int i = 0; i < ideas.length; i++) {
+                    ideas[i] = Idea.of(getString(record));
+                }
+                replay.manifestoPosted(citizenId, Arrays.asList(ideas));
+                break;
+            }
+            case IDEA_ADDED: {
+                ByteBuffer record = recordAt(segment, offset + 1);
+                int citizenId = record.getInt();
+                replay.ideaAdded(citizenId, Idea.of(getString(record)));
+                break;
+            }
+            case IDEA_RATED:
+                replay.ideaRated(segment.getInt(offset + 1), segment.getInt(offset + 1 + Integer.BYTES), segment.get(offset + 1 + 2 * Integer.BYTES));
+                break;
+            case RATING_DELETED:
+                replay.ratingDeleted(segment.getInt(offset + 1), segment.getInt(offset + 1 + Integer.BYTES));
+                break;
+            default:
+                throw new UnsupportedOperationException("Journal contains an unknown record type " + segment.get(offset));
+        }
+    }
+
+    /**
+     * Zeroes whatever follows the last complete record in its segment, so that records appended after it
+     * cannot be mistaken for the tail of a record which was only partly written
+     */
+    private void clearFrom(long position) throws IOException {
+        long segmentsInFile = (channel.size() + segmentSize - 1) / segmentSize;
+        if (segmentIndex(position) >= segmentsInFile) {
+            return;
+        }
+        MappedByteBuffer segment = segmentAt(position);
+        for (int offset = segmentOffset(position); offset < segmentSize; offset++) {
+            if (segment.get(offset) != 0) {
+                segment.put(offset, (byte) 0);
+            }
+        }
+        long endOfSegment = (segmentIndex(position) + 1L) * segmentSize;
+        if (channel.size() > endOfSegment) {
+            channel.truncate(endOfSegment);
+        }
+    }
+
+    private MappedByteBuffer segmentAt(long position) {
+        int index = segmentIndex(position);
+        MappedByteBuffer[] mappedSegments = segments;
+        return (index < mappedSegments.length) ? mappedSegments[index] : mapSegmentsUpTo(index);
+    }
+
+    private MappedByteBuffer mapSegmentsUpTo(int index) {
+        //Not the journal's own lock, so that appenders moving on to a new segment are not held up by a commit
+        synchronized (mappingLock) {
+            MappedByteBuffer[] mappedSegments = segments;
+            if (index >= mappedSegments.length) {
+                mappedSegments = Arrays.copyOf(mappedSegments, index + 1);
+                try {
+                    for (int segment = segments.length; segment <= index; segment++) {
+                        mappedSegments[segment] = channel.map(FileChannel.MapMode.READ_WRITE, (long) segment * segmentSize, segmentSize);
+                    }
+                } catch (IOException e) {
+                    throw new UnsupportedOperationException("Journal segment could not be mapped", e);
+                }
+                segments = mappedSegments;
+            }
+            return mappedSegments[index];
+        }
+    }
+
+    private int segmentIndex(long position) {
+        return (int) (position / segmentSize);
+    }
+
+    private int segmentOffset(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    private static ByteBuffer recordAt(MappedByteBuffer segment, int offset) {
+        ByteBuffer record = segment.duplicate();
+        record.position(offset);
+        return record;
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putString(ByteBuffer record, byte[] value) {
+        record.putInt(value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer record) {
+        byte[] value = new byte[record.getInt()];
+        record.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -1,28 +1,71 @@
 package intuit.election.service;
 
+import intuit.election.domain.AuditReport;
 import intuit.election.domain.Citizen;
 import intuit.election.domain.CitizenToken;
 import intuit.election.domain.Contender;
+import intuit.election.domain.ContenderHandle;
+import intuit.election.domain.ElectionStatistics;
 import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.LeaderboardEntry;
 import intuit.election.domain.Manifesto;
+import intuit.election.domain.RatedIdea;
 import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RegistrationOutcome;
 
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class ElectionService implements Election {
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+
+public class ElectionService implements Election, FollowerChains, Closeable {
     private static final int MINIMUM_FOLLOWER_RATING = 6;
+    private static final int IMPORT_ROWS_PER_BATCH = 8192;
     private final CitizenRegistry citizenRegistry;
     private final ContenderService contenderService;
     private final RatedIdeaService ratedIdeaService;
     private final EmailService emailService;
+    private final LeaderboardNotifier leaderboardNotifier;
+    //Held for the whole of an audit, see ElectionAudit
+    private final Object auditLock = new Object();
+    //Rebuilt only when a contender is nominated or their disqualification changes, so readers share one immutable list
+    private volatile QualifiedContenders qualifiedContenders = new QualifiedContenders(-1, -1, Collections.emptyList());
 
     public ElectionService(CitizenRegistry citizenRegistry, ContenderService contenderService, RatedIdeaService ratedIdeaService, EmailService emailService) {
         this.citizenRegistry = citizenRegistry;
         this.contenderService = contenderService;
         this.ratedIdeaService = ratedIdeaService;
         this.emailService = emailService;
+        this.leaderboardNotifier = new LeaderboardNotifier(ratedIdeaService::getLeaderboardVersion, () -> ratedIdeaService.getLeaderboard(1, Integer.MAX_VALUE));
     }
 
     @Override
@@ -30,6 +73,31 @@ public class ElectionService implements Election {
         return citizenRegistry.register(citizenName, citizenEmail);
     }
 
+    @Override
+    public Stream<RegistrationOutcome> importCitizens(InputStream csv) {
+        return importCitizens(csv, outcome -> { });
+    }
+
+    @Override
+    public Stream<RegistrationOutcome> importCitizens(Path csvFile) throws IOException {
+        return importCitizens(Files.newInputStream(csvFile));
+    }
+
+    /**
+     * @param onRegistered told of each citizen as soon as they are registered, before their token is handed out
+     */
+    Stream<RegistrationOutcome> importCitizens(InputStream csv, Consumer<RegistrationOutcome> onRegistered) {
+        CitizenCsvReader reader = new CitizenCsvReader(new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8)));
+        return StreamSupport.stream(new CitizenImport(reader, citizenRegistry, IMPORT_ROWS_PER_BATCH, onRegistered), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
     @Override
     public Optional<Citizen> getRegisteredCitizen(CitizenToken citizenToken) {
         return citizenRegistry.get(citizenToken);
@@ -47,7 +115,18 @@ public class ElectionService implements Election {
 
     @Override
     public Collection<Contender> getContenders() {
-        return contenderService.getContenders();
+        QualifiedContenders current = qualifiedContenders;
+        //Read before the contenders, so a change made while the list is built leaves it out of date rather than marked current
+        long rosterVersion = contenderService.getRosterVersion();
+        long disqualificationVersion = ratedIdeaService.getDisqualificationVersion();
+        if (current.rosterVersion == rosterVersion && current.disqualificationVersion == disqualificationVersion) {
+            return current.contenders;
+        }
+        List<Contender> contenders = Collections.unmodifiableList(contenderService.getContenders().stream()
+                .filter(contender -> !ratedIdeaService.isDisqualified(contender))
+                .collect(toList()));
+        qualifiedContenders = new QualifiedContenders(rosterVersion, disqualificationVersion, contenders);
+        return contenders;
     }
 
     @Override
@@ -64,28 +143,175 @@ public class ElectionService implements Election {
 
     @Override
     public void addIdeaToMyManifesto(CitizenToken citizenToken, Idea idea) {
-        contenderService.addIdeaToManifesto(citizenToken, idea);
-        Contender contender = contenderService.getContender(citizenToken).get();
-        ratedIdeaService.publishIdeaToBeRated(idea, contender);
+        Contender contender = addIdeaToManifesto(citizenToken, idea);
         Set<String> followerEmailAddresses = contenderService.getEmailAddressesOfFollowerChain(contender);
         if (!followerEmailAddresses.isEmpty()) {
             emailService.sendMessages(followerEmailAddresses, String.format("%s added new idea to manifesto: %s", contender.getName(), idea.getDescription()));
         }
     }
 
+    /**
+     * Reads the email addresses the follower graph keeps until someone new follows, so this costs a lookup of the contender
+     */
+    @Override
+    public int getFollowerChainSize(CitizenToken contenderToken) {
+        Optional<Contender> contender = contenderService.getContender(contenderToken);
+        return contender.isPresent() ? contenderService.getEmailAddressesOfFollowerChain(contender.get()).size() : 0;
+    }
+
+    private Contender addIdeaToManifesto(CitizenToken citizenToken, Idea idea) {
+        contenderService.addIdeaToManifesto(citizenToken, idea);
+        Contender contender = contenderService.getContender(citizenToken).get();
+        ratedIdeaService.publishIdeaToBeRated(idea, contender);
+        return contender;
+    }
+
+    /**
+     * Adds the idea without emailing followers, who were told about it when it was first added
+     */
+    void restoreIdeaInManifesto(CitizenToken citizenToken, Idea idea) {
+        addIdeaToManifesto(citizenToken, idea);
+    }
+
+    CitizenToken restoreCitizen(String citizenName, String citizenEmail, UUID tokenValue, int citizenId) {
+        return citizenRegistry.restore(citizenName, citizenEmail, tokenValue, citizenId);
+    }
+
+    /**
+     * @return the handle of the first idea published with the description, which is the idea rated by its description
+     */
+    Optional<IdeaHandle> getIdeaHandle(Idea idea) {
+        return ratedIdeaService.getIdeaHandle(idea);
+    }
+
+    UUID getTokenValue(CitizenToken citizenToken) {
+        return citizenRegistry.tokenValueOf(citizenToken);
+    }
+
+    Collection<Citizen> getRegisteredCitizens() {
+        return citizenRegistry.getCitizens();
+    }
+
+    /**
+     * Recounts every rating from scratch on the common fork/join pool and reports anything which does not match the running
+     * totals. Voting carries on while the audit runs, see {@link ElectionAudit}. An audit started while another is running waits
+     * for it to finish
+     */
+    public AuditReport audit() {
+        return audit(ForkJoinPool.commonPool());
+    }
+
+    public AuditReport audit(ForkJoinPool pool) {
+        synchronized (auditLock) {
+            return new ElectionAudit(ratedIdeaService, pool).run();
+        }
+    }
+
+    ElectionStatistics getStatistics() {
+        Collection<RatedIdea> ratedIdeas = ratedIdeaService.getRatedIdeas();
+        long ratings = 0;
+        for (RatedIdea ratedIdea : ratedIdeas) {
+            ratings += ratedIdea.getNumberOfRatings();
+        }
+        return ElectionStatistics.of(citizenRegistry.getNumberOfCitizens(), contenderService.getContenders().size(), ratedIdeas.size(), ratings);
+    }
+
+    /**
+     * Writes the state of the election without stopping it from changing, so the state written is only correct once the calls made
+     * while it was written are replayed on top of it. See {@link ElectionSnapshot}
+     */
+    void writeSnapshot(DataOutputStream out) throws IOException {
+        new ElectionSnapshot(citizenRegistry, contenderService, ratedIdeaService).write(out);
+    }
+
+    /**
+     * Reads the state of the election from a snapshot. The election is expected to be empty
+     */
+    void restoreSnapshot(DataInputStream in) throws IOException {
+        new ElectionSnapshot(citizenRegistry, contenderService, ratedIdeaService).restore(in);
+    }
+
     @Override
     public void rateIdea(CitizenToken citizenTokenOfRater, Idea idea, Rating rating) {
-        ratedIdeaService.rateIdea(citizenTokenOfRater, idea, rating);
+        Citizen rater = registeredRater(citizenTokenOfRater);
+        Contender contender = ratedIdeaService.rateIdea(rater.getCitizenToken(), idea, rating);
+        startFollowingIfRatedHighly(rater, rating, contender);
+    }
+
+    @Override
+    public void rateIdea(CitizenToken citizenTokenOfRater, IdeaHandle idea, Rating rating) {
+        Citizen rater = registeredRater(citizenTokenOfRater);
+        Contender contender = ratedIdeaService.rateIdea(rater.getCitizenToken(), idea, rating);
+        startFollowingIfRatedHighly(rater, rating, contender);
+    }
+
+    /**
+     * Ratings are keyed by the id the rater's token carries and every city numbers its citizens from 0, so each rating path checks
+     * the whole token against this election's registry before anything is read or changed, and then keys the ratings by the
+     * token the registry issued
+     */
+    private Citizen registeredRater(CitizenToken citizenTokenOfRater) {
+        Citizen rater = citizenRegistry.getOrNull(citizenTokenOfRater);
+        if (rater == null) {
+            throw new UnsupportedOperationException(RatedIdeaService.RATER_NOT_REGISTERED_MSG);
+        }
+        return rater;
+    }
+
+    //Kept free of Optionals and streams as this is on the busiest path through the election
+    private void startFollowingIfRatedHighly(Citizen rater, Rating rating, Contender contender) {
         if (rating.value()>= MINIMUM_FOLLOWER_RATING) {
-            Citizen rater = getRegisteredCitizen(citizenTokenOfRater).get();
-            Contender contender = ratedIdeaService.getIdeaPublisher(idea).get();
             contenderService.startFollowing(rater, contender);
         }
     }
 
+    @Override
+    public Optional<IdeaHandle> getIdeaHandle(CitizenToken contenderToken, Idea idea) {
+        return ratedIdeaService.getIdeaHandle(contenderToken, idea);
+    }
+
+    @Override
+    public Optional<ContenderHandle> getContenderHandle(CitizenToken contenderToken) {
+        return ratedIdeaService.getContenderHandle(contenderToken);
+    }
+
+    @Override
+    public List<RatingOutcome> rateIdeas(Collection<RatingCommand> ratingCommands) {
+        List<RatingOutcome> outcomes = ratedIdeaService.rateIdeas(new ArrayList<>(ratingCommands), citizenToken -> citizenRegistry.getOrNull(citizenToken) != null);
+        startFollowingHighlyRatedContenders(outcomes);
+        return outcomes;
+    }
+
+    /**
+     * Looks up the publisher once per idea and adds each contender's new followers in one go. Only accepted ratings are looked at,
+     * and their raters were checked to be registered when the batch was rated
+     */
+    private void startFollowingHighlyRatedContenders(List<RatingOutcome> outcomes) {
+        Map<Idea, List<CitizenToken>> followerTokensByIdea = outcomes.stream()
+                .filter(RatingOutcome::isAccepted)
+                .map(RatingOutcome::getCommand)
+                .filter(command -> command.getRating().value() >= MINIMUM_FOLLOWER_RATING)
+                .collect(groupingBy(RatingCommand::getIdea, LinkedHashMap::new, mapping(RatingCommand::getCitizenTokenOfRater, toList())));
+
+        Map<CitizenToken, Contender> contenders = new LinkedHashMap<>();
+        Map<CitizenToken, Set<Citizen>> followersByContender = new LinkedHashMap<>();
+        followerTokensByIdea.forEach((idea, followerTokens) -> {
+            Contender contender = ratedIdeaService.getIdeaPublisher(idea).get();
+            contenders.putIfAbsent(contender.getCitizenToken(), contender);
+            Set<Citizen> followers = followersByContender.computeIfAbsent(contender.getCitizenToken(), token -> new LinkedHashSet<>());
+            followerTokens.forEach(followerToken -> getRegisteredCitizen(followerToken).ifPresent(followers::add));
+        });
+        followersByContender.forEach((contenderToken, followers) -> contenderService.startFollowing(followers, contenders.get(contenderToken)));
+    }
+
     @Override
     public Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, Idea idea) {
-        return ratedIdeaService.getCitizensRatingFor(ideaRatingCitizen, idea);
+        return ratedIdeaService.getCitizensRatingFor(registeredRater(ideaRatingCitizen).getCitizenToken(), idea);
+    }
+
+    @Override
+    public Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, IdeaHandle idea) {
+        return ratedIdeaService.getCitizensRatingFor(registeredRater(ideaRatingCitizen).getCitizenToken(), idea);
     }
 
     @Override
@@ -95,11 +321,75 @@ public class ElectionService implements Election {
 
     @Override
     public void deleteRatingForIdea(CitizenToken ideaRatingCitizen, Idea ideaOfTheContender) {
-        ratedIdeaService.deleteCitizensRatingFor(ideaRatingCitizen, ideaOfTheContender);
+        ratedIdeaService.deleteCitizensRatingFor(registeredRater(ideaRatingCitizen).getCitizenToken(), ideaOfTheContender);
+    }
+
+    @Override
+    public void deleteRatingForIdea(CitizenToken ideaRatingCitizen, IdeaHandle ideaOfTheContender) {
+        ratedIdeaService.deleteCitizensRatingFor(registeredRater(ideaRatingCitizen).getCitizenToken(), ideaOfTheContender);
+    }
+
+    @Override
+    public Map<IdeaHandle, Rating> getMyRatings(CitizenToken ideaRatingCitizen) {
+        return ratedIdeaService.getCitizensRatings(registeredRater(ideaRatingCitizen).getCitizenToken());
+    }
+
+    @Override
+    public Map<IdeaHandle, Rating> withdrawAllMyRatings(CitizenToken ideaRatingCitizen) {
+        return ratedIdeaService.withdrawCitizensRatings(registeredRater(ideaRatingCitizen).getCitizenToken());
     }
 
     @Override
     public Optional<Contender> getContenderWithHighestFinalRating() {
         return ratedIdeaService.getContenderWithHighestFinalRating();
     }
+
+    @Override
+    public List<Contender> getTopContenders(int numberOfContenders) {
+        return ratedIdeaService.getTopContenders(numberOfContenders);
+    }
+
+    @Override
+    public Optional<Integer> getRank(Contender contender) {
+        return ratedIdeaService.getRank(contender);
+    }
+
+    @Override
+    public Optional<Integer> getRank(ContenderHandle contender) {
+        return ratedIdeaService.getRank(contender);
+    }
+
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(int fromRank, int numberOfEntries) {
+        return ratedIdeaService.getLeaderboard(fromRank, numberOfEntries);
+    }
+
+    @Override
+    public LeaderboardSubscription subscribeToLeaderboard(LeaderboardListener listener, long interval, TimeUnit unit) {
+        return leaderboardNotifier.subscribe(listener, interval, unit);
+    }
+
+    /**
+     * Stops the threads which send leaderboard updates to subscribers. Everything else carries on working, but the election
+     * can no longer be subscribed to
+     */
+    @Override
+    public void close() {
+        leaderboardNotifier.close();
+    }
+
+    /**
+     * An immutable list of the contenders who are not disqualified, along with the versions it was built from
+     */
+    private static class QualifiedContenders {
+        private final long rosterVersion;
+        private final long disqualificationVersion;
+        private final List<Contender> contenders;
+
+        private QualifiedContenders(long rosterVersion, long disqualificationVersion, List<Contender> contenders) {
+            this.rosterVersion = rosterVersion;
+            this.disqualificationVersion = disqualificationVersion;
+            this.contenders = contenders;
+        }
+    }
 }
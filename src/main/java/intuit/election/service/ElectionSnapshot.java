@@ -0,0 +1,281 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.Idea;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.RatedIdea;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes the state of an election in a compact binary form and reads it back. Citizens, contenders and followers are
+ * referred to by the citizen's dense id, and the ratings of each idea are written as one array of citizen ids followed
+ * by one array of ratings, so that they are read back in bulk.
+ *
+ * The state is copied while the election carries on changing, one idea at a time under the idea's lock. Each idea's ratings
+ * therefore agree with each other, but the snapshot as a whole is fuzzy: it may include some changes made while it was being
+ * written and miss others, e.g. a rating of an idea already copied, so it is not a consistent state of the election on its own.
+ * It is only correct once every change made from the start of the snapshot is replayed on top of it, which is what a journal is for.
+ * Final ratings are not written: they are worked out again from the ratings of each idea when the snapshot is read, so that
+ * they always agree with the ratings.
+ *
+ * Citizens are written first and contenders next, so a contender or follower who is missing from them when they turn up later in the
+ * snapshot joined after the snapshot began. They are left out, to be restored by whatever follows the snapshot, e.g. a journal.
+ *
+ * Package private as this class is not intended to be used outside this package
+ */
+class ElectionSnapshot {
+    private static final int NO_MANIFESTO = -1;
+
+    private final CitizenRegistry citizenRegistry;
+    private final ContenderService contenderService;
+    private final RatedIdeaService ratedIdeaService;
+
+    ElectionSnapshot(CitizenRegistry citizenRegistry, ContenderService contenderService, RatedIdeaService ratedIdeaService) {
+        this.citizenRegistry = citizenRegistry;
+        this.contenderService = contenderService;
+        this.ratedIdeaService = ratedIdeaService;
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        writeCitizens(out);
+        Collection<Contender> contenders = new ArrayList<>(contenderService.getContenders());
+        writeContenders(out, contenders);
+        writeRatedIdeas(out);
+        writeContenderIds(out, ratedIdeaService.getRankedContenders());
+        writeFollowers(out, contenders);
+    }
+
+    /**
+     * Reads the state into an election which is expected to be empty
+     */
+    void restore(DataInputStream in) throws IOException {
+        Citizen[] citizensById = restoreCitizens(in);
+        Contender[] contendersById = restoreContenders(in, citizensById);
+        restoreRatedIdeas(in, contendersById);
+        List<Contender> rankedContenders = new ArrayList<>();
+        for (int contenderId : readInts(in, in.readInt())) {
+            Contender contender = byId(contendersById, contenderId);
+            if (contender != null) {
+                rankedContenders.add(contender);
+            }
+        }
+        ratedIdeaService.restoreLeaderboard(rankedContenders);
+        restoreFollowers(in, citizensById, contendersById);
+    }
+
+    private void writeCitizens(DataOutputStream out) throws IOException {
+        List<Citizen> citizens = new ArrayList<>(citizenRegistry.getCitizens());
+        out.writeInt(citizens.size());
+        for (Citizen citizen : citizens) {
+            UUID tokenValue = citizenRegistry.tokenValueOf(citizen.getCitizenToken());
+            out.writeInt(citizen.getCitizenToken().id());
+            out.writeLong(tokenValue.getMostSignificantBits());
+            out.writeLong(tokenValue.getLeastSignificantBits());
+            writeString(out, citizen.getName());
+            writeString(out, citizen.getEmail());
+        }
+    }
+
+    private Citizen[] restoreCitizens(DataInputStream in) throws IOException {
+        int numberOfCitizens = in.readInt();
+        Citizen[] citizensById = new Citizen[0];
+        for (int i = 0; i < numberOfCitizens; i++) {
+            int citizenId = in.readInt();
+            UUID tokenValue = new UUID(in.readLong(), in.readLong());
+            String citizenName = readString(in);
+            String citizenEmail = readString(in);
+            CitizenToken citizenToken = citizenRegistry.restore(citizenName, citizenEmail, tokenValue, citizenId);
+            if (citizenId >= citizensById.length) {
+                citizensById = Arrays.copyOf(citizensById, Math.max(citizenId + 1, citizensById.length * 2));
+            }
+            citizensById[citizenId] = citizenRegistry.getOrNull(citizenToken);
+        }
+        return citizensById;
+    }
+
+    private static void writeContenders(DataOutputStream out, Collection<Contender> contenders) throws IOException {
+        out.writeInt(contenders.size());
+        for (Contender contender : contenders) {
+            out.writeInt(contender.getCitizenToken().id());
+            if (contender.getManifesto() == null) {
+                out.writeByte(NO_MANIFESTO);
+            } else {
+                List<Idea> ideas = new ArrayList<>(contender.getManifesto().getIdeas());
+                out.writeByte(ideas.size());
+                for (Idea idea : ideas) {
+                    writeString(out, idea.getDescription());
+                }
+            }
+        }
+    }
+
+    private Contender[] restoreContenders(DataInputStream in, Citizen[] citizensById) throws IOException {
+        int numberOfContenders = in.readInt();
+        Contender[] contendersById = new Contender[citizensById.length];
+        for (int i = 0; i < numberOfContenders; i++) {
+            int contenderId = in.readInt();
+            int numberOfIdeas = in.readByte();
+            Manifesto manifesto = null;
+            if (numberOfIdeas != NO_MANIFESTO) {
+                Idea[] ideas = new Idea[numberOfIdeas];
+                for (int idea = 0; idea < numberOfIdeas; idea++) {
+                    ideas[idea] = Idea.of(readString(in));
+                }
+                manifesto = Manifesto.of(ideas);
+            }
+            Citizen citizen = byId(citizensById, contenderId);
+            if (citizen != null) {
+                contendersById[contenderId] = Contender.of(citizen, manifesto);
+                contenderService.restoreContender(contendersById[contenderId]);
+            }
+        }
+        return contendersById;
+    }
+
+    private void writeRatedIdeas(DataOutputStream out) throws IOException {
+        List<RatedIdea> ratedIdeas = new ArrayList<>(ratedIdeaService.getRatedIdeas());
+        out.writeInt(ratedIdeas.size());
+        CopiedRatings copiedRatings = new CopiedRatings();
+        for (RatedIdea ratedIdea : ratedIdeas) {
+            copiedRatings.clear();
+            ratedIdea.forEachRating(copiedRatings);
+            writeString(out, ratedIdea.getIdea().getDescription());
+            out.writeInt(ratedIdea.getContender().getCitizenToken().id());
+            out.writeInt(copiedRatings.numberOfRatings);
+            writeInts(out, copiedRatings.citizenIds, copiedRatings.numberOfRatings);
+            out.write(copiedRatings.ratings, 0, copiedRatings.numberOfRatings);
+        }
+    }
+
+    /**
+     * The ideas are published again in the order they were first published, so that rating an idea by its description rates the
+     * same contender's idea as before. Any idea in a manifesto which is still not published is published after them, including
+     * one which was added to a manifesto while the snapshot was being written but was not yet published
+     */
+    private void restoreRatedIdeas(DataInputStream in, Contender[] contendersById) throws IOException {
+        int numberOfRatedIdeas = in.readInt();
+        for (int i = 0; i < numberOfRatedIdeas; i++) {
+            Idea idea = Idea.of(readString(in));
+            Contender contender = byId(contendersById, in.readInt());
+            int numberOfRatings = in.readInt();
+            int[] citizenIds = readInts(in, numberOfRatings);
+            byte[] ratings = new byte[numberOfRatings];
+            in.readFully(ratings);
+            if (contender == null) {
+                continue;
+            }
+            ratedIdeaService.restoreRatedIdea(idea, contender).restoreRatings(citizenIds, ratings, numberOfRatings);
+        }
+        for (Contender contender : contendersById) {
+            if (contender != null && contender.getManifesto() != null) {
+                contender.getManifesto().getIdeas().forEach(idea -> ratedIdeaService.restoreRatedIdea(idea, contender));
+            }
+        }
+    }
+
+    private void writeFollowers(DataOutputStream out, Collection<Contender> contenders) throws IOException {
+        out.writeInt(contenders.size());
+        for (Contender contender : contenders) {
+            out.writeInt(contender.getCitizenToken().id());
+            List<Citizen> followers = new ArrayList<>(contenderService.getFollowers(contender));
+            int[] followerIds = new int[followers.size()];
+            for (int i = 0; i < followerIds.length; i++) {
+                followerIds[i] = followers.get(i).getCitizenToken().id();
+            }
+            out.writeInt(followerIds.length);
+            writeInts(out, followerIds, followerIds.length);
+        }
+    }
+
+    private void restoreFollowers(DataInputStream in, Citizen[] citizensById, Contender[] contendersById) throws IOException {
+        int numberOfContenders = in.readInt();
+        for (int i = 0; i < numberOfContenders; i++) {
+            Contender contender = byId(contendersById, in.readInt());
+            List<Citizen> followers = new ArrayList<>();
+            for (int followerId : readInts(in, in.readInt())) {
+                Citizen follower = byId(citizensById, followerId);
+                if (follower != null) {
+                    followers.add(follower);
+                }
+            }
+            if (contender != null) {
+                contenderService.startFollowing(followers, contender);
+            }
+        }
+    }
+
+    /**
+     * @return null if nobody with the id was restored from the snapshot
+     */
+    private static <T> T byId(T[] restoredById, int citizenId) {
+        return (citizenId < restoredById.length) ? restoredById[citizenId] : null;
+    }
+
+    private static void writeContenderIds(DataOutputStream out, List<Contender> contenders) throws IOException {
+        int[] contenderIds = contenders.stream().mapToInt(contender -> contender.getCitizenToken().id()).toArray();
+        out.writeInt(contenderIds.length);
+        writeInts(out, contenderIds, contenderIds.length);
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int numberOfValues) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(numberOfValues * Integer.BYTES);
+        bytes.asIntBuffer().put(values, 0, numberOfValues);
+        out.write(bytes.array());
+    }
+
+    private static int[] readInts(DataInputStream in, int numberOfValues) throws IOException {
+        byte[] bytes = new byte[numberOfValues * Integer.BYTES];
+        in.readFully(bytes);
+        int[] values = new int[numberOfValues];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values);
+        return values;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Collects the ratings of one idea at a time, reusing its arrays from one idea to the next
+     */
+    private static class CopiedRatings implements RatedIdea.RatingVisitor {
+        private int[] citizenIds = new int[1024];
+        private byte[] ratings = new byte[1024];
+        private int numberOfRatings;
+
+        @Override
+        public void visit(int citizenId, byte rating) {
+            if (numberOfRatings == citizenIds.length) {
+                citizenIds = Arrays.copyOf(citizenIds, numberOfRatings * 2);
+                ratings = Arrays.copyOf(ratings, numberOfRatings * 2);
+            }
+            citizenIds[numberOfRatings] = citizenId;
+            ratings[numberOfRatings] = rating;
+            numberOfRatings++;
+        }
+
+        private void clear() {
+            numberOfRatings = 0;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+
+/**
+ * Tells how many followers a contender's new ideas are emailed to, so that an {@link InstrumentedElection} can record the fan-out
+ * of {@link Election#addIdeaToMyManifesto} without the election handing it back from every call.
+ *
+ * Package private as this interface is not intended to be used outside this package
+ */
+interface FollowerChains {
+    /**
+     * @return the number of the contender's followers, and of the followers of any follower who is a contender too, or 0 if
+     * the citizen is not a contender
+     */
+    int getFollowerChainSize(CitizenToken contenderToken);
+}
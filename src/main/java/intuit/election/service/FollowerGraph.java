@@ -0,0 +1,106 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.domain.CitizenToken;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records which citizens follow which contenders. A citizen follows a contender at most once however many of their
+ * ideas they rate highly, and checking whether a citizen follows a contender is a single lookup.
+ *
+ * The recipients of a contender's news are their followers plus, for followers who are contenders themselves,
+ * the followers of those followers. Recipient sets are cached per contender until someone new follows the contender
+ * or one of the contenders the contender follows.
+ *
+ * Safe for concurrent use. Package private as this class is not intended to be used outside this package
+ */
+class FollowerGraph {
+    private final Map<CitizenToken, Map<CitizenToken, Citizen>> followersOf = new ConcurrentHashMap<>();
+    //Reverse index, so that following a contender can find every recipient set which now includes the new follower
+    private final Map<CitizenToken, Set<CitizenToken>> followedBy = new ConcurrentHashMap<>();
+    private final Map<CitizenToken, Set<String>> recipientEmailAddresses = new ConcurrentHashMap<>();
+
+    /**
+     * Allocates nothing if the citizen already follows the contender
+     */
+    void follow(Citizen follower, CitizenToken contenderToken) {
+        if (addFollower(followersOf(contenderToken), follower, contenderToken)) {
+            invalidateRecipientsIncluding(contenderToken);
+        }
+    }
+
+    void follow(Collection<Citizen> newFollowers, CitizenToken contenderToken) {
+        Map<CitizenToken, Citizen> followers = followersOf(contenderToken);
+        boolean anyNewFollower = false;
+        for (Citizen follower : newFollowers) {
+            anyNewFollower |= addFollower(followers, follower, contenderToken);
+        }
+        if (anyNewFollower) {
+            invalidateRecipientsIncluding(contenderToken);
+        }
+    }
+
+    boolean isFollowerOf(CitizenToken citizenToken, CitizenToken contenderToken) {
+        return followersOf.getOrDefault(contenderToken, Collections.emptyMap()).containsKey(citizenToken);
+    }
+
+    Collection<Citizen> getFollowers(CitizenToken contenderToken) {
+        return Collections.unmodifiableCollection(followersOf.getOrDefault(contenderToken, Collections.emptyMap()).values());
+    }
+
+    /**
+     * @return the email addresses of the contender's followers and of their followers' followers, never including the contender
+     */
+    Set<String> getRecipientEmailAddresses(CitizenToken contenderToken) {
+        return recipientEmailAddresses.computeIfAbsent(contenderToken, this::collectRecipientEmailAddresses);
+    }
+
+    private Map<CitizenToken, Citizen> followersOf(CitizenToken contenderToken) {
+        Map<CitizenToken, Citizen> followers = followersOf.get(contenderToken);
+        return (followers != null) ? followers : followersOf.computeIfAbsent(contenderToken, token -> new ConcurrentHashMap<>());
+    }
+
+    private boolean addFollower(Map<CitizenToken, Citizen> followers, Citizen follower, CitizenToken contenderToken) {
+        if (followers.containsKey(follower.getCitizenToken()) || followers.putIfAbsent(follower.getCitizenToken(), follower) != null) {
+            return false;
+        }
+        followedBy.computeIfAbsent(follower.getCitizenToken(), token -> ConcurrentHashMap.newKeySet()).add(contenderToken);
+        return true;
+    }
+
+    private void invalidateRecipientsIncluding(CitizenToken contenderToken) {
+        //Invalidated after the graph has changed. A recipient set being computed holds its cache entry's lock,
+        //so it is either computed from the new graph or removed once it has been stored
+        recipientEmailAddresses.remove(contenderToken);
+        Set<CitizenToken> contendersFollowed = followedBy.get(contenderToken);
+        if (contendersFollowed != null) {
+            contendersFollowed.forEach(recipientEmailAddresses::remove);
+        }
+    }
+
+    private Set<String> collectRecipientEmailAddresses(CitizenToken contenderToken) {
+        Set<CitizenToken> visited = new HashSet<>();
+        Set<String> emailAddresses = new HashSet<>();
+        visited.add(contenderToken);
+        Collection<Citizen> followers = followersOf.getOrDefault(contenderToken, Collections.emptyMap()).values();
+        followers.forEach(follower -> addRecipient(follower, visited, emailAddresses));
+        //Only two hops are taken, so the traversal is bounded however long the chains of followers get
+        for (Citizen follower : followers) {
+            followersOf.getOrDefault(follower.getCitizenToken(), Collections.emptyMap()).values()
+                    .forEach(followerOfFollower -> addRecipient(followerOfFollower, visited, emailAddresses));
+        }
+        return Collections.unmodifiableSet(emailAddresses);
+    }
+
+    private static void addRecipient(Citizen recipient, Set<CitizenToken> visited, Set<String> emailAddresses) {
+        if (visited.add(recipient.getCitizenToken())) {
+            emailAddresses.add(recipient.getEmail());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package intuit.election.service;
+
+import intuit.election.domain.Histogram;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records values into a {@link Histogram} from many threads at once. Each thread records into one of a set of stripes
+ * chosen by its id, so threads on different cores rarely touch the same counts, and the stripes are added together when
+ * a snapshot is taken. A stripe is only allocated once a thread records into it.
+ *
+ * Recording is two atomic additions and never locks. A snapshot taken while values are being recorded may include the count
+ * of a value but not yet its sum, which only moves the mean by a fraction.
+ *
+ * Safe for concurrent use. Package private as this class is not intended to be used outside this package
+ */
+class HistogramRecorder {
+    private static final int STRIPES = Integer.highestOneBit(Math.min(Runtime.getRuntime().availableProcessors(), 32) * 2 - 1);
+    //The slot after the buckets holds the sum of the values
+    private static final int SUM = Histogram.BUCKETS;
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    void record(long value) {
+        AtomicLongArray stripe = stripeOfCurrentThread();
+        stripe.incrementAndGet(Histogram.bucketOf(value));
+        stripe.addAndGet(SUM, value);
+    }
+
+    Histogram snapshot() {
+        long[] counts = new long[Histogram.BUCKETS];
+        long sum = 0;
+        for (int stripeIndex = 0; stripeIndex < STRIPES; stripeIndex++) {
+            AtomicLongArray stripe = stripes.get(stripeIndex);
+            if (stripe != null) {
+                for (int bucket = 0; bucket < Histogram.BUCKETS; bucket++) {
+                    counts[bucket] += stripe.get(bucket);
+                }
+                sum += stripe.get(SUM);
+            }
+        }
+        return Histogram.of(counts, sum);
+    }
+
+    private AtomicLongArray stripeOfCurrentThread() {
+        int stripeIndex = (int) Thread.currentThread().getId() & (STRIPES - 1);
+        AtomicLongArray stripe = stripes.get(stripeIndex);
+        if (stripe == null) {
+            stripes.compareAndSet(stripeIndex, null, new AtomicLongArray(Histogram.BUCKETS + 1));
+            stripe = stripes.get(stripeIndex);
+        }
+        return stripe;
+    }
+}
@@ -0,0 +1,106 @@
+package intuit.election.service;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * The ids of the ideas each citizen has rated, held by the citizen's id. Only the ids are kept, as the ratings themselves are
+ * read from the ideas, so a citizen costs one array of ints with a slot for each idea they rated.
+ *
+ * Each citizen's ids are replaced by a copy with the id added or taken out, swapped in with a compare-and-set, so no lock is
+ * taken. A copy is only made the first time a citizen rates an idea or when they delete their rating, so changing a rating
+ * allocates nothing.
+ *
+ * Safe for concurrent use. Package private as this class is not intended to be used outside this package
+ */
+class IdeasRatedByCitizen {
+    private static final int[] NO_IDEAS = new int[0];
+
+    private final DenseIndex<int[]> ideaIdsByCitizen = new DenseIndex<>();
+
+    /**
+     * @return the ids of the ideas the citizen has rated, in no particular order
+     */
+    int[] get(int citizenId) {
+        int[] ideaIds = ideaIdsByCitizen.get(citizenId);
+        return (ideaIds == null) ? NO_IDEAS : ideaIds;
+    }
+
+    void add(int citizenId, int ideaId) {
+        while (true) {
+            int[] ideaIds = ideaIdsByCitizen.get(citizenId);
+            if (ideaIds == null) {
+                if (ideaIdsByCitizen.putIfAbsent(citizenId, new int[]{ideaId}) == null) {
+                    return;
+                }
+                continue;
+            }
+            if (indexOf(ideaIds, ideaId) >= 0) {
+                return;
+            }
+            int[] addedIdeaIds = Arrays.copyOf(ideaIds, ideaIds.length + 1);
+            addedIdeaIds[ideaIds.length] = ideaId;
+            if (ideaIdsByCitizen.compareAndSet(citizenId, ideaIds, addedIdeaIds)) {
+                return;
+            }
+        }
+    }
+
+    void remove(int citizenId, int ideaId) {
+        while (true) {
+            int[] ideaIds = ideaIdsByCitizen.get(citizenId);
+            int index = (ideaIds == null) ? -1 : indexOf(ideaIds, ideaId);
+            if (index < 0) {
+                return;
+            }
+            //The last id takes the place of the one taken out, as the ids are in no particular order
+            int[] removedIdeaIds = Arrays.copyOf(ideaIds, ideaIds.length - 1);
+            if (index < removedIdeaIds.length) {
+                removedIdeaIds[index] = ideaIds[ideaIds.length - 1];
+            }
+            if (ideaIdsByCitizen.compareAndSet(citizenId, ideaIds, removedIdeaIds)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes out every id the test picks in a single copy, so that taking out all of a citizen's ideas costs as much as the number of them
+     *
+     * @return the ids taken out
+     */
+    int[] removeIf(int citizenId, IntPredicate isRemoved) {
+        while (true) {
+            int[] ideaIds = ideaIdsByCitizen.get(citizenId);
+            if (ideaIds == null) {
+                return NO_IDEAS;
+            }
+            int[] keptIdeaIds = new int[ideaIds.length];
+            int[] removedIdeaIds = new int[ideaIds.length];
+            int kept = 0;
+            int removed = 0;
+            for (int ideaId : ideaIds) {
+                if (isRemoved.test(ideaId)) {
+                    removedIdeaIds[removed++] = ideaId;
+                } else {
+                    keptIdeaIds[kept++] = ideaId;
+                }
+            }
+            if (removed == 0) {
+                return NO_IDEAS;
+            }
+            if (ideaIdsByCitizen.compareAndSet(citizenId, ideaIds, Arrays.copyOf(keptIdeaIds, kept))) {
+                return Arrays.copyOf(removedIdeaIds, removed);
+            }
+        }
+    }
+
+    private static int indexOf(int[] ideaIds, int ideaId) {
+        for (int index = 0; index < ideaIds.length; index++) {
+            if (ideaIds[index] == ideaId) {
+                return index;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,370 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.ContenderHandle;
+import intuit.election.domain.ElectionMetrics;
+import intuit.election.domain.Histogram;
+import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.OperationMetrics;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RegistrationOutcome;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Measures the calls to an election: how many calls each method gets, how many are turned down, and a {@link Histogram}
+ * of how long they take. The number of followers emailed each time a contender adds an idea to their manifesto is recorded
+ * too, for an {@link ElectionService} or a {@link JournaledElection}, which can tell how many followers a contender has. Use {@link #getMetrics()} for a snapshot, or {@link #dumpMetricsEvery} to have the metrics written out as text.
+ *
+ * Every call is counted, but only a random sample of calls is timed, 1 in 32 by default. Reading the clock twice costs
+ * about as much as a rating, so timing every call would double the cost of the busiest path. Calls are counted in a
+ * {@link LongAdder} per method, which spreads the counts of busy threads over separate cells so that they never contend.
+ *
+ * Safe for concurrent use
+ */
+public class InstrumentedElection implements Election {
+    private static final int DEFAULT_SAMPLE_RATE = 32;
+    //Handed out in place of a start time for calls which are not timed
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final Election election;
+    private final int sampleMask;
+    private final long startTime = System.nanoTime();
+    private final List<OperationRecorder> operations = new ArrayList<>();
+    private final OperationRecorder getContenders = operation("getContenders");
+    private final OperationRecorder register = operation("register");
+    private final OperationRecorder getRegisteredCitizen = operation("getRegisteredCitizen");
+    private final OperationRecorder importCitizens = operation("importCitizens");
+    private final OperationRecorder isContender = operation("isContender");
+    private final OperationRecorder nominateMyself = operation("nominateMyself");
+    private final OperationRecorder getMyContenderDetails = operation("getMyContenderDetails");
+    private final OperationRecorder postMyManifesto = operation("postMyManifesto");
+    private final OperationRecorder addIdeaToMyManifesto = operation("addIdeaToMyManifesto");
+    private final OperationRecorder rateIdea = operation("rateIdea");
+    private final OperationRecorder getIdeaHandle = operation("getIdeaHandle");
+    private final OperationRecorder getContenderHandle = operation("getContenderHandle");
+    private final OperationRecorder rateIdeas = operation("rateIdeas");
+    private final OperationRecorder getMyRatingFor = operation("getMyRatingFor");
+    private final OperationRecorder iFollow = operation("iFollow");
+    private final OperationRecorder deleteRatingForIdea = operation("deleteRatingForIdea");
+    private final OperationRecorder getMyRatings = operation("getMyRatings");
+    private final OperationRecorder withdrawAllMyRatings = operation("withdrawAllMyRatings");
+    private final OperationRecorder getContenderWithHighestFinalRating = operation("getContenderWithHighestFinalRating");
+    private final OperationRecorder getTopContenders = operation("getTopContenders");
+    private final OperationRecorder getRank = operation("getRank");
+    private final OperationRecorder getLeaderboard = operation("getLeaderboard");
+    private final OperationRecorder subscribeToLeaderboard = operation("subscribeToLeaderboard");
+    private final HistogramRecorder followerChainSizes = new HistogramRecorder();
+    private ScheduledExecutorService dumper;
+
+    private InstrumentedElection(Election election, int sampleRate) {
+        if (sampleRate < 1 || Integer.bitCount(sampleRate) != 1) {
+            throw new UnsupportedOperationException("Sample rate must be a power of 2: " + sampleRate);
+        }
+        this.election = election;
+        this.sampleMask = sampleRate - 1;
+    }
+
+    public static InstrumentedElection of(Election election) {
+        return of(election, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * @param sampleRate times 1 in this many calls, which must be a power of 2. Use 1 to time every call
+     */
+    public static InstrumentedElection of(Election election, int sampleRate) {
+        return new InstrumentedElection(election, sampleRate);
+    }
+
+    public ElectionMetrics getMetrics() {
+        List<OperationMetrics> operationMetrics = new ArrayList<>(operations.size());
+        operations.forEach(operation -> operationMetrics.add(operation.snapshot()));
+        return ElectionMetrics.of(System.nanoTime() - startTime, Collections.unmodifiableList(operationMetrics), followerChainSizes.snapshot());
+    }
+
+    /**
+     * @return the metrics as a table, with a row for each method which has been called
+     */
+    public String dumpMetrics() {
+        return format(getMetrics(), null);
+    }
+
+    /**
+     * Writes the metrics out as text once per interval on a daemon thread, along with the rate of calls since the previous dump.
+     * Cancel the returned future to stop
+     */
+    public synchronized Future<?> dumpMetricsEvery(long interval, TimeUnit unit, Consumer<String> out) {
+        if (interval < 1) {
+            throw new UnsupportedOperationException("Metrics must be dumped at least 1 " + unit.name().toLowerCase() + " apart");
+        }
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("election-metrics"));
+        }
+        ElectionMetrics[] previousMetrics = {getMetrics()};
+        return dumper.scheduleAtFixedRate(() -> {
+            ElectionMetrics metrics = getMetrics();
+            out.accept(format(metrics, previousMetrics[0]));
+            previousMetrics[0] = metrics;
+        }, interval, interval, unit);
+    }
+
+    /**
+     * @param previousMetrics the metrics the rate of calls is worked out since, or null to work it out since the election was instrumented
+     */
+    static String format(ElectionMetrics metrics, ElectionMetrics previousMetrics) {
+        double seconds = (metrics.getElapsedNanos() - ((previousMetrics == null) ? 0 : previousMetrics.getElapsedNanos())) / 1e9;
+        StringBuilder text = new StringBuilder(String.format("Election metrics after %.1fs, latencies in microseconds%n", metrics.getElapsedNanos() / 1e9));
+        text.append(String.format("%-36s %12s %12s %10s %10s %10s %10s %10s %10s%n", "operation", "calls", "calls/s", "failures", "mean", "p50", "p99", "p99.9", "max"));
+        for (OperationMetrics operation : metrics.getOperations()) {
+            if (operation.getCalls() == 0) {
+                continue;
+            }
+            long previousCalls = (previousMetrics == null) ? 0 : previousMetrics.getOperation(operation.getOperation()).map(OperationMetrics::getCalls).orElse(0L);
+            Histogram latencies = operation.getSampledLatencyNanos();
+            text.append(String.format("%-36s %12d %12.1f %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n", operation.getOperation(), operation.getCalls(),
+                    (seconds > 0) ? (operation.getCalls() - previousCalls) / seconds : 0.0, operation.getFailures(), latencies.getMean() / 1e3,
+                    latencies.getValueAtPercentile(50) / 1e3, latencies.getValueAtPercentile(99) / 1e3, latencies.getValueAtPercentile(99.9) / 1e3, latencies.getMax() / 1e3));
+        }
+        Histogram followers = metrics.getFollowerChainSizes();
+        text.append(String.format("Followers emailed per idea added: count=%d mean=%.1f p50=%d p99=%d max=%d%n", followers.getTotalCount(),
+                followers.getMean(), followers.getValueAtPercentile(50), followers.getValueAtPercentile(99), followers.getMax()));
+        return text.toString();
+    }
+
+    @Override
+    public Collection<Contender> getContenders() {
+        return call(getContenders, () -> election.getContenders());
+    }
+
+    @Override
+    public CitizenToken register(String citizenName, String citizenEmail) {
+        return call(register, () -> election.register(citizenName, citizenEmail));
+    }
+
+    @Override
+    public Optional<Citizen> getRegisteredCitizen(CitizenToken citizenToken) {
+        return call(getRegisteredCitizen, () -> election.getRegisteredCitizen(citizenToken));
+    }
+
+    /**
+     * Times the start of the import only, as the citizens are registered while the returned stream is consumed
+     */
+    @Override
+    public Stream<RegistrationOutcome> importCitizens(InputStream csv) {
+        return call(importCitizens, () -> election.importCitizens(csv));
+    }
+
+    @Override
+    public Stream<RegistrationOutcome> importCitizens(Path csvFile) throws IOException {
+        return call(importCitizens, () -> election.importCitizens(csvFile));
+    }
+
+    @Override
+    public boolean isContender(Citizen citizen) {
+        return call(isContender, () -> election.isContender(citizen));
+    }
+
+    @Override
+    public void nominateMyself(CitizenToken citizenToken) {
+        run(nominateMyself, () -> election.nominateMyself(citizenToken));
+    }
+
+    @Override
+    public Optional<Contender> getMyContenderDetails(CitizenToken citizenToken) {
+        return call(getMyContenderDetails, () -> election.getMyContenderDetails(citizenToken));
+    }
+
+    @Override
+    public void postMyManifesto(CitizenToken citizenToken, Manifesto manifesto) {
+        run(postMyManifesto, () -> election.postMyManifesto(citizenToken, manifesto));
+    }
+
+    @Override
+    public void addIdeaToMyManifesto(CitizenToken citizenToken, Idea idea) {
+        run(addIdeaToMyManifesto, () -> election.addIdeaToMyManifesto(citizenToken, idea));
+        //Read after the call and outside its timing, so a citizen who starts following in between is counted too
+        if (election instanceof FollowerChains) {
+            followerChainSizes.record(((FollowerChains) election).getFollowerChainSize(citizenToken));
+        }
+    }
+
+    @Override
+    public void rateIdea(CitizenToken citizenTokenOfRater, Idea idea, Rating rating) {
+        run(rateIdea, () -> election.rateIdea(citizenTokenOfRater, idea, rating));
+    }
+
+    @Override
+    public void rateIdea(CitizenToken citizenTokenOfRater, IdeaHandle idea, Rating rating) {
+        run(rateIdea, () -> election.rateIdea(citizenTokenOfRater, idea, rating));
+    }
+
+    @Override
+    public Optional<IdeaHandle> getIdeaHandle(CitizenToken contenderToken, Idea idea) {
+        return call(getIdeaHandle, () -> election.getIdeaHandle(contenderToken, idea));
+    }
+
+    @Override
+    public Optional<ContenderHandle> getContenderHandle(CitizenToken contenderToken) {
+        return call(getContenderHandle, () -> election.getContenderHandle(contenderToken));
+    }
+
+    @Override
+    public List<RatingOutcome> rateIdeas(Collection<RatingCommand> ratingCommands) {
+        return call(rateIdeas, () -> election.rateIdeas(ratingCommands));
+    }
+
+    @Override
+    public Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, Idea idea) {
+        return call(getMyRatingFor, () -> election.getMyRatingFor(ideaRatingCitizen, idea));
+    }
+
+    @Override
+    public Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, IdeaHandle idea) {
+        return call(getMyRatingFor, () -> election.getMyRatingFor(ideaRatingCitizen, idea));
+    }
+
+    @Override
+    public boolean iFollow(CitizenToken citizenToken, Contender contender) {
+        return call(iFollow, () -> election.iFollow(citizenToken, contender));
+    }
+
+    @Override
+    public void deleteRatingForIdea(CitizenToken ideaRatingCitizen, Idea ideaOfTheContender) {
+        run(deleteRatingForIdea, () -> election.deleteRatingForIdea(ideaRatingCitizen, ideaOfTheContender));
+    }
+
+    @Override
+    public void deleteRatingForIdea(CitizenToken ideaRatingCitizen, IdeaHandle ideaOfTheContender) {
+        run(deleteRatingForIdea, () -> election.deleteRatingForIdea(ideaRatingCitizen, ideaOfTheContender));
+    }
+
+    @Override
+    public Map<IdeaHandle, Rating> getMyRatings(CitizenToken ideaRatingCitizen) {
+        return call(getMyRatings, () -> election.getMyRatings(ideaRatingCitizen));
+    }
+
+    @Override
+    public Map<IdeaHandle, Rating> withdrawAllMyRatings(CitizenToken ideaRatingCitizen) {
+        return call(withdrawAllMyRatings, () -> election.withdrawAllMyRatings(ideaRatingCitizen));
+    }
+
+    @Override
+    public Optional<Contender> getContenderWithHighestFinalRating() {
+        return call(getContenderWithHighestFinalRating, () -> election.getContenderWithHighestFinalRating());
+    }
+
+    @Override
+    public List<Contender> getTopContenders(int numberOfContenders) {
+        return call(getTopContenders, () -> election.getTopContenders(numberOfContenders));
+    }
+
+    @Override
+    public Optional<Integer> getRank(Contender contender) {
+        return call(getRank, () -> election.getRank(contender));
+    }
+
+    @Override
+    public Optional<Integer> getRank(ContenderHandle contender) {
+        return call(getRank, () -> election.getRank(contender));
+    }
+
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(int fromRank, int numberOfEntries) {
+        return call(getLeaderboard, () -> election.getLeaderboard(fromRank, numberOfEntries));
+    }
+
+    @Override
+    public LeaderboardSubscription subscribeToLeaderboard(LeaderboardListener listener, long interval, TimeUnit unit) {
+        return call(subscribeToLeaderboard, () -> election.subscribeToLeaderboard(listener, interval, unit));
+    }
+
+    /**
+     * Counts the call, times it if it is one of the sample, and counts it as a failure if it throws
+     */
+    private <T, E extends Exception> T call(OperationRecorder operation, Call<T, E> call) throws E {
+        long callStartTime = operation.start();
+        try {
+            return call.call();
+        } catch (Exception e) {
+            operation.failed();
+            throw e;
+        } finally {
+            operation.stop(callStartTime);
+        }
+    }
+
+    private void run(OperationRecorder operation, Runnable call) {
+        call(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private OperationRecorder operation(String name) {
+        OperationRecorder operation = new OperationRecorder(name);
+        operations.add(operation);
+        return operation;
+    }
+
+    @FunctionalInterface
+    private interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private class OperationRecorder {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final HistogramRecorder sampledLatencies = new HistogramRecorder();
+
+        private OperationRecorder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return the time the call started if it is to be timed, otherwise {@link #NOT_TIMED}
+         */
+        private long start() {
+            calls.increment();
+            //The random generator's state is kept in the thread, so drawing from it is cheaper than reading the clock
+            return ((ThreadLocalRandom.current().nextInt() & sampleMask) == 0) ? System.nanoTime() : NOT_TIMED;
+        }
+
+        private void stop(long callStartTime) {
+            if (callStartTime != NOT_TIMED) {
+                sampledLatencies.record(System.nanoTime() - callStartTime);
+            }
+        }
+
+        private void failed() {
+            failures.increment();
+        }
+
+        private OperationMetrics snapshot() {
+            return OperationMetrics.of(name, calls.sum(), failures.sum(), sampledLatencies.snapshot());
+        }
+    }
+}
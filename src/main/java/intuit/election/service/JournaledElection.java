@@ -0,0 +1,593 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.ContenderHandle;
+import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RegistrationOutcome;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Records every call which changes the election in an {@link ElectionJournal}, and replays the journal when it is opened
+ * so that the election carries on where it left off. Citizens keep their tokens across a restart.
+ *
+ * Records refer to citizens by their dense id and to ideas by the order in which they were first published, which keeps
+ * the record of a rating to a few bytes. A call by a citizen is only journaled once the election has matched their whole token
+ * against its registry, so a token of another election carrying the same id is turned down before anything is journaled, and the
+ * id in each record stands for the citizen it is replayed as. Ideas are told apart by their description and the contender who published them, as
+ * different contenders can publish ideas with the same description. Calls by the same citizen are journaled in the order they were made, by taking one of
+ * a fixed set of locks chosen by the citizen's id. Ideas are journaled before they are published, so a rating can never be
+ * journaled ahead of the idea it rates; an idea which then fails to be published is skipped when the journal is replayed.
+ *
+ * Calls return without waiting for the disk. Records are flushed to the disk in the background every few milliseconds, so the
+ * latest calls can be lost if the machine stops. Use {@link #commit()} to wait until everything so far is on the disk.
+ *
+ * A {@link #snapshot(Path)} records the state of the election along with the position in the journal it was taken from, without
+ * stopping the election. The snapshot is fuzzy: it is not the state of the election at any one moment, as it may hold some of the
+ * changes made while it was being written and not others. It is only correct together with the journal after its position, which
+ * is why it can only be read by opening the election with both. Opening the election from a snapshot reads the snapshot and then
+ * replays the journal after that position, ignoring calls which are already in the snapshot.
+ */
+public class JournaledElection implements Election, FollowerChains, Closeable {
+    private static final int CITIZEN_LOCKS = 64;
+    private static final int SNAPSHOT_MAGIC = 0x454C534E;
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 20;
+
+    private final ElectionService election;
+    private final ElectionJournal journal;
+    private final ReentrantLock[] citizenLocks = new ReentrantLock[CITIZEN_LOCKS];
+    //Guarded by ideaOrdinals, so that ideas are given ordinals in the order they are journaled.
+    //Ideas are published while the lock is held too, so that a snapshot never starts between journaling an idea and publishing it
+    private final Map<JournaledIdea, Integer> ideaOrdinals = new ConcurrentHashMap<>();
+    private final List<JournaledIdea> ideasByOrdinal = new ArrayList<>();
+    //The same ordinals by the id of each idea's handle, filled in the first time the idea is rated or has a rating deleted
+    private final DenseIndex<Integer> ideaOrdinalsByHandle = new DenseIndex<>();
+
+    JournaledElection(ElectionService election, ElectionJournal journal) throws IOException {
+        this(election, journal, 0, Collections.emptyList());
+    }
+
+    /**
+     * @param ideasByOrdinal the ordinals given to ideas before the position the journal is replayed from
+     */
+    private JournaledElection(ElectionService election, ElectionJournal journal, long replayFromPosition, List<JournaledIdea> ideasByOrdinal) throws IOException {
+        this.election = election;
+        this.journal = journal;
+        for (int lock = 0; lock < CITIZEN_LOCKS; lock++) {
+            citizenLocks[lock] = new ReentrantLock();
+        }
+        ideasByOrdinal.forEach(idea -> assignOrdinal(idea.contenderId, idea.idea));
+        journal.replay(new Replayer(), replayFromPosition);
+    }
+
+    /**
+     * Opens the journal, creating it if it does not exist, and replays it into the election, which should be empty
+     */
+    public static JournaledElection open(Path journalFile, ElectionService election) throws IOException {
+        return new JournaledElection(election, ElectionJournal.open(journalFile));
+    }
+
+    /**
+     * Restores the election from the snapshot, if there is one, and then replays the journal from where the snapshot was taken.
+     * The election should be empty
+     */
+    public static JournaledElection open(Path journalFile, Path snapshotFile, ElectionService election) throws IOException {
+        if (!Files.exists(snapshotFile)) {
+            return open(journalFile, election);
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile), SNAPSHOT_BUFFER_SIZE))) {
+            int version = (in.readInt() == SNAPSHOT_MAGIC) ? in.readInt() : -1;
+            if (version != SNAPSHOT_VERSION) {
+                throw new UnsupportedOperationException("File is not a snapshot of an election");
+            }
+            long journalPosition = in.readLong();
+            int numberOfIdeas = in.readInt();
+            List<JournaledIdea> ideasByOrdinal = new ArrayList<>(numberOfIdeas);
+            for (int ordinal = 0; ordinal < numberOfIdeas; ordinal++) {
+                Idea idea = Idea.of(ElectionSnapshot.readString(in));
+                ideasByOrdinal.add(new JournaledIdea(in.readInt(), idea));
+            }
+            election.restoreSnapshot(in);
+            return new JournaledElection(election, ElectionJournal.open(journalFile), journalPosition, ideasByOrdinal);
+        }
+    }
+
+    @Override
+    public CitizenToken register(String citizenName, String citizenEmail) {
+        CitizenToken citizenToken = election.register(citizenName, citizenEmail);
+        //No other call can use the token before it is returned, so it cannot be journaled ahead of the registration
+        journal.appendCitizenRegistered(citizenToken.id(), election.getTokenValue(citizenToken), citizenName, citizenEmail);
+        return citizenToken;
+    }
+
+    /**
+     * Each citizen is journaled as soon as they are registered, before their token is handed out
+     */
+    @Override
+    public Stream<RegistrationOutcome> importCitizens(InputStream csv) {
+        return election.importCitizens(csv, outcome -> {
+            CitizenToken citizenToken = outcome.getCitizenToken().get();
+            journal.appendCitizenRegistered(citizenToken.id(), election.getTokenValue(citizenToken), outcome.getCitizenName(), outcome.getCitizenEmail());
+        });
+    }
+
+    @Override
+    public Stream<RegistrationOutcome> importCitizens(Path csvFile) throws IOException {
+        return importCitizens(Files.newInputStream(csvFile));
+    }
+
+    @Override
+    public void nominateMyself(CitizenToken citizenToken) {
+        ReentrantLock citizenLock = lockFor(citizenToken);
+        citizenLock.lock();
+        try {
+            election.nominateMyself(citizenToken);
+            journal.appendContenderNominated(citizenToken.id());
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public void postMyManifesto(CitizenToken citizenToken, Manifesto manifesto) {
+        if (!election.getMyContenderDetails(citizenToken).isPresent()) {
+            //Turned down without changing anything, so there is nothing to journal
+            election.postMyManifesto(citizenToken, manifesto);
+            return;
+        }
+        ReentrantLock citizenLock = lockFor(citizenToken);
+        citizenLock.lock();
+        try {
+            List<Idea> ideas = new ArrayList<>(manifesto.getIdeas());
+            synchronized (ideaOrdinals) {
+                ideas.forEach(idea -> assignOrdinal(citizenToken.id(), idea));
+                journal.appendManifestoPosted(citizenToken.id(), ideas);
+                election.postMyManifesto(citizenToken, manifesto);
+            }
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public void addIdeaToMyManifesto(CitizenToken citizenToken, Idea idea) {
+        if (!election.getMyContenderDetails(citizenToken).isPresent()) {
+            election.addIdeaToMyManifesto(citizenToken, idea);
+            return;
+        }
+        ReentrantLock citizenLock = lockFor(citizenToken);
+        citizenLock.lock();
+        try {
+            synchronized (ideaOrdinals) {
+                assignOrdinal(citizenToken.id(), idea);
+                journal.appendIdeaAdded(citizenToken.id(), idea);
+                election.addIdeaToMyManifesto(citizenToken, idea);
+            }
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public void rateIdea(CitizenToken citizenTokenOfRater, Idea idea, Rating rating) {
+        ReentrantLock citizenLock = lockFor(citizenTokenOfRater);
+        citizenLock.lock();
+        try {
+            election.rateIdea(citizenTokenOfRater, idea, rating);
+            //The idea was rated, so it has been published and has an ordinal
+            journal.appendIdeaRated(citizenTokenOfRater.id(), ordinalOf(election.getIdeaHandle(idea).get()), rating.value());
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public void rateIdea(CitizenToken citizenTokenOfRater, IdeaHandle idea, Rating rating) {
+        ReentrantLock citizenLock = lockFor(citizenTokenOfRater);
+        citizenLock.lock();
+        try {
+            election.rateIdea(citizenTokenOfRater, idea, rating);
+            journal.appendIdeaRated(citizenTokenOfRater.id(), ordinalOf(idea), rating.value());
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public int getFollowerChainSize(CitizenToken contenderToken) {
+        return election.getFollowerChainSize(contenderToken);
+    }
+
+    @Override
+    public Optional<IdeaHandle> getIdeaHandle(CitizenToken contenderToken, Idea idea) {
+        return election.getIdeaHandle(contenderToken, idea);
+    }
+
+    @Override
+    public Optional<ContenderHandle> getContenderHandle(CitizenToken contenderToken) {
+        return election.getContenderHandle(contenderToken);
+    }
+
+    /**
+     * Holds the locks of every rater in the batch while it is applied, so their ratings are journaled in the same order
+     * as any they make at the same time outside the batch
+     */
+    @Override
+    public List<RatingOutcome> rateIdeas(Collection<RatingCommand> ratingCommands) {
+        boolean[] locksNeeded = new boolean[CITIZEN_LOCKS];
+        ratingCommands.forEach(command -> locksNeeded[lockIndexFor(command.getCitizenTokenOfRater())] = true);
+        //Always taken in the same order, so that two batches cannot deadlock
+        for (int lock = 0; lock < CITIZEN_LOCKS; lock++) {
+            if (locksNeeded[lock]) {
+                citizenLocks[lock].lock();
+            }
+        }
+        try {
+            List<RatingOutcome> outcomes = election.rateIdeas(ratingCommands);
+            for (RatingOutcome outcome : outcomes) {
+                if (outcome.isAccepted()) {
+                    RatingCommand command = outcome.getCommand();
+                    journal.appendIdeaRated(command.getCitizenTokenOfRater().id(), ordinalOf(election.getIdeaHandle(command.getIdea()).get()), command.getRating().value());
+                }
+            }
+            return outcomes;
+        } finally {
+            for (int lock = CITIZEN_LOCKS - 1; lock >= 0; lock--) {
+                if (locksNeeded[lock]) {
+                    citizenLocks[lock].unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void deleteRatingForIdea(CitizenToken ideaRatingCitizen, Idea ideaOfTheContender) {
+        ReentrantLock citizenLock = lockFor(ideaRatingCitizen);
+        citizenLock.lock();
+        try {
+            election.deleteRatingForIdea(ideaRatingCitizen, ideaOfTheContender);
+            //Nothing can have been deleted for an idea which was never published
+            election.getIdeaHandle(ideaOfTheContender).ifPresent(ideaHandle -> journal.appendRatingDeleted(ideaRatingCitizen.id(), ordinalOf(ideaHandle)));
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteRatingForIdea(CitizenToken ideaRatingCitizen, IdeaHandle ideaOfTheContender) {
+        ReentrantLock citizenLock = lockFor(ideaRatingCitizen);
+        citizenLock.lock();
+        try {
+            election.deleteRatingForIdea(ideaRatingCitizen, ideaOfTheContender);
+            //Nothing can have been deleted through a handle given out by another election
+            if (election.getIdeaHandle(ideaOfTheContender.getContender().getCitizenToken(), ideaOfTheContender.getIdea()).orElse(null) == ideaOfTheContender) {
+                journal.appendRatingDeleted(ideaRatingCitizen.id(), ordinalOf(ideaOfTheContender));
+            }
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<IdeaHandle, Rating> getMyRatings(CitizenToken ideaRatingCitizen) {
+        return election.getMyRatings(ideaRatingCitizen);
+    }
+
+    /**
+     * Journaled as a deletion of each rating withdrawn
+     */
+    @Override
+    public Map<IdeaHandle, Rating> withdrawAllMyRatings(CitizenToken ideaRatingCitizen) {
+        ReentrantLock citizenLock = lockFor(ideaRatingCitizen);
+        citizenLock.lock();
+        try {
+            Map<IdeaHandle, Rating> withdrawnRatings = election.withdrawAllMyRatings(ideaRatingCitizen);
+            withdrawnRatings.keySet().forEach(ideaHandle -> journal.appendRatingDeleted(ideaRatingCitizen.id(), ordinalOf(ideaHandle)));
+            return withdrawnRatings;
+        } finally {
+            citizenLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the election while it carries on changing. The snapshot is written to a temporary file first,
+     * so the previous snapshot is only replaced once the new one is complete.
+     *
+     * The snapshot on its own may not be consistent, see {@link JournaledElection}. Keep the journal after the snapshot's
+     * position, as the election is only restored correctly by replaying it on top of the snapshot
+     */
+    public void snapshot(Path snapshotFile) throws IOException {
+        long journalPosition;
+        List<JournaledIdea> ideas;
+        synchronized (ideaOrdinals) {
+            //Every call journaled before this position has been applied, so the snapshot will include it
+            journalPosition = journal.position();
+            ideas = new ArrayList<>(ideasByOrdinal);
+        }
+        Path partialSnapshotFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".partial");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partialSnapshotFile), SNAPSHOT_BUFFER_SIZE))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(journalPosition);
+            out.writeInt(ideas.size());
+            for (JournaledIdea idea : ideas) {
+                ElectionSnapshot.writeString(out, idea.idea.getDescription());
+                out.writeInt(idea.contenderId);
+            }
+            election.writeSnapshot(out);
+        }
+        Files.move(partialSnapshotFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Waits until every call journaled so far has been forced to the disk
+     */
+    public void commit() {
+        journal.commit();
+    }
+
+    /**
+     * Closes the journal and then the election it journals
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            journal.close();
+        } finally {
+            election.close();
+        }
+    }
+
+    @Override
+    public Collection<Contender> getContenders() {
+        return election.getContenders();
+    }
+
+    @Override
+    public Optional<Citizen> getRegisteredCitizen(CitizenToken citizenToken) {
+        return election.getRegisteredCitizen(citizenToken);
+    }
+
+    @Override
+    public boolean isContender(Citizen citizen) {
+        return election.isContender(citizen);
+    }
+
+    @Override
+    public Optional<Contender> getMyContenderDetails(CitizenToken citizenToken) {
+        return election.getMyContenderDetails(citizenToken);
+    }
+
+    @Override
+    public Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, Idea idea) {
+        return election.getMyRatingFor(ideaRatingCitizen, idea);
+    }
+
+    @Override
+    public Optional<Rating> getMyRatingFor(CitizenToken ideaRatingCitizen, IdeaHandle idea) {
+        return election.getMyRatingFor(ideaRatingCitizen, idea);
+    }
+
+    @Override
+    public boolean iFollow(CitizenToken citizenToken, Contender contender) {
+        return election.iFollow(citizenToken, contender);
+    }
+
+    @Override
+    public Optional<Contender> getContenderWithHighestFinalRating() {
+        return election.getContenderWithHighestFinalRating();
+    }
+
+    @Override
+    public List<Contender> getTopContenders(int numberOfContenders) {
+        return election.getTopContenders(numberOfContenders);
+    }
+
+    @Override
+    public Optional<Integer> getRank(Contender contender) {
+        return election.getRank(contender);
+    }
+
+    @Override
+    public Optional<Integer> getRank(ContenderHandle contender) {
+        return election.getRank(contender);
+    }
+
+    @Override
+    public List<LeaderboardEntry> getLeaderboard(int fromRank, int numberOfEntries) {
+        return election.getLeaderboard(fromRank, numberOfEntries);
+    }
+
+    @Override
+    public LeaderboardSubscription subscribeToLeaderboard(LeaderboardListener listener, long interval, TimeUnit unit) {
+        return election.subscribeToLeaderboard(listener, interval, unit);
+    }
+
+    private void assignOrdinal(int contenderId, Idea idea) {
+        JournaledIdea journaledIdea = new JournaledIdea(contenderId, idea);
+        if (ideaOrdinals.putIfAbsent(journaledIdea, ideaOrdinals.size()) == null) {
+            ideasByOrdinal.add(journaledIdea);
+        }
+    }
+
+    /**
+     * @param ideaHandle the handle of an idea published by this election, so that it was given an ordinal before it was published
+     */
+    private int ordinalOf(IdeaHandle ideaHandle) {
+        Integer ordinal = ideaOrdinalsByHandle.get(ideaHandle.getId());
+        if (ordinal == null) {
+            ordinal = ideaOrdinals.get(new JournaledIdea(ideaHandle.getContender().getCitizenToken().id(), ideaHandle.getIdea()));
+            ideaOrdinalsByHandle.put(ideaHandle.getId(), ordinal);
+        }
+        return ordinal;
+    }
+
+    private ReentrantLock lockFor(CitizenToken citizenToken) {
+        return citizenLocks[lockIndexFor(citizenToken)];
+    }
+
+    private static int lockIndexFor(CitizenToken citizenToken) {
+        return citizenToken.id() & (CITIZEN_LOCKS - 1);
+    }
+
+    /**
+     * Applies each record to the election without journaling it again. Ideas are given ordinals in the same order as when
+     * they were journaled. Calls which are already reflected in the election, because they were made while a snapshot
+     * was being written, are ignored
+     */
+    private class Replayer implements ElectionJournal.Replay {
+        private CitizenToken[] citizenTokens = new CitizenToken[1024];
+
+        private Replayer() {
+            election.getRegisteredCitizens().forEach(citizen -> addCitizenToken(citizen.getCitizenToken()));
+        }
+
+        @Override
+        public void citizenRegistered(int citizenId, UUID tokenValue, String citizenName, String citizenEmail) {
+            if (citizenTokenFor(citizenId) == null) {
+                addCitizenToken(election.restoreCitizen(citizenName, citizenEmail, tokenValue, citizenId));
+            }
+        }
+
+        @Override
+        public void contenderNominated(int citizenId) {
+            CitizenToken citizenToken = citizenTokenFor(citizenId);
+            if (citizenToken != null && !election.getMyContenderDetails(citizenToken).isPresent()) {
+                election.nominateMyself(citizenToken);
+            }
+        }
+
+        @Override
+        public void manifestoPosted(int citizenId, List<Idea> ideas) {
+            ideas.forEach(idea -> assignOrdinal(citizenId, idea));
+            try {
+                election.postMyManifesto(citizenTokenFor(citizenId), Manifesto.of(ideas.toArray(new Idea[0])));
+            } catch (UnsupportedOperationException e) {
+                //The manifesto was turned down when it was first posted, or has already been restored from a snapshot
+            }
+        }
+
+        @Override
+        public void ideaAdded(int citizenId, Idea idea) {
+            assignOrdinal(citizenId, idea);
+            Optional<Contender> contender = election.getMyContenderDetails(citizenTokenFor(citizenId));
+            if (contender.isPresent() && contender.get().getManifesto() != null && contender.get().getManifesto().getIdeas().contains(idea)) {
+                return;
+            }
+            try {
+                election.restoreIdeaInManifesto(citizenTokenFor(citizenId), idea);
+            } catch (UnsupportedOperationException e) {
+                //The idea was turned down when it was first added
+            }
+        }
+
+        @Override
+        public void ideaRated(int raterId, int ideaOrdinal, int rating) {
+            CitizenToken citizenToken = citizenTokenFor(raterId);
+            if (citizenToken == null) {
+                return;
+            }
+            IdeaHandle ideaHandle = ideaHandleFor(ideaOrdinal);
+            if (ideaHandle != null) {
+                election.rateIdea(citizenToken, ideaHandle, Rating.of(rating));
+            }
+        }
+
+        @Override
+        public void ratingDeleted(int raterId, int ideaOrdinal) {
+            CitizenToken citizenToken = citizenTokenFor(raterId);
+            if (citizenToken == null) {
+                return;
+            }
+            IdeaHandle ideaHandle = ideaHandleFor(ideaOrdinal);
+            if (ideaHandle != null) {
+                election.deleteRatingForIdea(citizenToken, ideaHandle);
+            }
+        }
+
+        /**
+         * @return null if the contender the idea was journaled for did not publish it, in which case it was never rated
+         */
+        private IdeaHandle ideaHandleFor(int ideaOrdinal) {
+            JournaledIdea journaledIdea = ideasByOrdinal.get(ideaOrdinal);
+            if (journaledIdea.handle == null) {
+                CitizenToken contenderToken = citizenTokenFor(journaledIdea.contenderId);
+                journaledIdea.handle = (contenderToken == null) ? null : election.getIdeaHandle(contenderToken, journaledIdea.idea).orElse(null);
+            }
+            return journaledIdea.handle;
+        }
+
+        /**
+         * @return null if the id was not issued by the registry, in which case the call it was journaled for changed nothing
+         */
+        private CitizenToken citizenTokenFor(int citizenId) {
+            return (citizenId >= 0 && citizenId < citizenTokens.length) ? citizenTokens[citizenId] : null;
+        }
+
+        private void addCitizenToken(CitizenToken citizenToken) {
+            if (citizenToken.id() >= citizenTokens.length) {
+                citizenTokens = Arrays.copyOf(citizenTokens, Math.max(citizenToken.id() + 1, citizenTokens.length * 2));
+            }
+            citizenTokens[citizenToken.id()] = citizenToken;
+        }
+    }
+
+    /**
+     * An idea as published by a contender, which is what an ordinal stands for
+     */
+    private static class JournaledIdea {
+        private final int contenderId;
+        private final Idea idea;
+        //Looked up the first time the idea is rated while the journal is replayed
+        private IdeaHandle handle;
+
+        private JournaledIdea(int contenderId, Idea idea) {
+            this.contenderId = contenderId;
+            this.idea = idea;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof JournaledIdea)) {
+                return false;
+            }
+            JournaledIdea journaledIdea = (JournaledIdea) other;
+            return contenderId == journaledIdea.contenderId && idea.equals(journaledIdea.idea);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * contenderId + idea.hashCode();
+        }
+    }
+}
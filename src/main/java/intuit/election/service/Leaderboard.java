@@ -0,0 +1,264 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.ContenderHandle;
+import intuit.election.domain.LeaderboardEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Orders the contenders by their final rating, highest first. Contenders with the same final rating are ordered by
+ * who was rated first, so the order is deterministic.
+ *
+ * The contenders are kept in an array in order of their final rating, and each contender knows their place in it. Updating a
+ * contender works out their final rating afresh from the integer totals of their ideas and moves them along the array to their
+ * new place, which costs as many moves as places gained or lost and allocates nothing once they are on the leaderboard. The
+ * leader is read without locking and the top of the leaderboard and any contender's rank are read straight from the array.
+ *
+ * Every update holds the leaderboard's lock, so updates of different contenders wait for each other, and a move costs O(n) at
+ * worst rather than O(log n). That is the price of updates which allocate nothing and ranks read in constant time: a concurrent
+ * ordered index would let each contender be updated on their own in O(log n), but allocates a node on every move.
+ *
+ * Contenders with a disqualifying idea are left off the leaderboard, but their final rating is still kept up to date
+ * so that they return to their place if their ideas stop being disqualifying.
+ *
+ * Safe for concurrent use. Package private as this class is not intended to be used outside this package
+ */
+class Leaderboard {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Works out a contender's final rating and whether they are disqualified afresh from the ratings of their ideas
+     */
+    interface ContenderFigures {
+        /**
+         * @return the contender as they are now, which the leaderboard hands out
+         */
+        Contender getContender();
+
+        double getFinalRating();
+
+        boolean isDisqualified();
+    }
+
+    private final Map<CitizenToken, RankedContender> rankedContenders = new ConcurrentHashMap<>();
+    //The same contenders by the id of their handle, filled in the first time each is updated through their handle
+    private final DenseIndex<RankedContender> rankedContendersByHandle = new DenseIndex<>();
+    private final AtomicLong nextArrival = new AtomicLong();
+    //The contenders who are not disqualified, highest final rating first. Guarded by the leaderboard's lock
+    private RankedContender[] highestFirst = new RankedContender[INITIAL_CAPACITY];
+    private int numberRanked;
+    //Set while holding the leaderboard's lock, so the contender polled most often is read without taking it
+    private volatile RankedContender leader;
+    //Only ever incremented, so a reader has seen every change if the version has not moved since it last looked
+    private final LongAdder changes = new LongAdder();
+    //Only changed when a contender becomes disqualified or stops being disqualified, which is rare next to ratings
+    private final LongAdder disqualificationChanges = new LongAdder();
+
+    /**
+     * Works out the contender's final rating and whether they are disqualified afresh from their figures, placing them on the
+     * leaderboard if they are not on it yet. Call this after every change to the ratings of their ideas
+     */
+    void update(Contender contender, ContenderFigures contenderFigures) {
+        RankedContender rankedContender = rankedContenders.get(contender.getCitizenToken());
+        if (rankedContender == null) {
+            rankedContender = rankedContenders.computeIfAbsent(contender.getCitizenToken(), token -> new RankedContender(contenderFigures, nextArrival.getAndIncrement()));
+        }
+        refresh(rankedContender);
+    }
+
+    /**
+     * Finds the contender by their handle rather than by hashing their token
+     */
+    void update(ContenderHandle contenderHandle, Contender contender, ContenderFigures contenderFigures) {
+        RankedContender rankedContender = rankedContendersByHandle.get(contenderHandle.getId());
+        if (rankedContender == null) {
+            rankedContender = rankedContenders.computeIfAbsent(contender.getCitizenToken(), token -> new RankedContender(contenderFigures, nextArrival.getAndIncrement()));
+            rankedContendersByHandle.put(contenderHandle.getId(), rankedContender);
+        }
+        refresh(rankedContender);
+    }
+
+    /**
+     * Updates the contender only if they are already on the leaderboard
+     */
+    void updateIfRanked(Contender contender) {
+        RankedContender rankedContender = rankedContenders.get(contender.getCitizenToken());
+        if (rankedContender != null) {
+            refresh(rankedContender);
+        }
+    }
+
+    void updateIfRanked(ContenderHandle contenderHandle, Contender contender) {
+        RankedContender rankedContender = rankedContendersByHandle.get(contenderHandle.getId());
+        if (rankedContender == null) {
+            updateIfRanked(contender);
+        } else {
+            refresh(rankedContender);
+        }
+    }
+
+    /**
+     * Reads the contender's figures while holding the leaderboard's lock, so updates racing each other are applied one at a
+     * time and the last one leaves figures which include every rating that landed before it, and then moves the contender
+     * along the ranking to their new place
+     */
+    private synchronized void refresh(RankedContender rankedContender) {
+        double finalRating = rankedContender.contenderFigures.getFinalRating();
+        boolean disqualified = rankedContender.contenderFigures.isDisqualified();
+        if (disqualified != rankedContender.disqualified) {
+            disqualificationChanges.increment();
+        }
+        rankedContender.finalRating = finalRating;
+        rankedContender.disqualified = disqualified;
+        if (disqualified) {
+            unrank(rankedContender);
+        } else {
+            reposition(rankedContender);
+        }
+        leader = (numberRanked == 0) ? null : highestFirst[0];
+        changes.increment();
+    }
+
+    /**
+     * Shifts the contenders between the contender's old place and their new one along by one, which costs as many moves as
+     * places gained or lost and allocates nothing
+     */
+    private void reposition(RankedContender rankedContender) {
+        int position = rankedContender.position;
+        if (position < 0) {
+            if (numberRanked == highestFirst.length) {
+                highestFirst = Arrays.copyOf(highestFirst, highestFirst.length * 2);
+            }
+            position = numberRanked++;
+        }
+        while (position > 0 && isRankedAbove(rankedContender, highestFirst[position - 1])) {
+            place(highestFirst[position - 1], position);
+            position--;
+        }
+        while (position < numberRanked - 1 && isRankedAbove(highestFirst[position + 1], rankedContender)) {
+            place(highestFirst[position + 1], position);
+            position++;
+        }
+        place(rankedContender, position);
+    }
+
+    private void unrank(RankedContender rankedContender) {
+        if (rankedContender.position < 0) {
+            return;
+        }
+        for (int position = rankedContender.position; position < numberRanked - 1; position++) {
+            place(highestFirst[position + 1], position);
+        }
+        highestFirst[--numberRanked] = null;
+        rankedContender.position = -1;
+    }
+
+    private void place(RankedContender rankedContender, int position) {
+        highestFirst[position] = rankedContender;
+        rankedContender.position = position;
+    }
+
+    private static boolean isRankedAbove(RankedContender rankedContender, RankedContender other) {
+        return rankedContender.finalRating > other.finalRating
+                || (rankedContender.finalRating == other.finalRating && rankedContender.arrival < other.arrival);
+    }
+
+    boolean isDisqualified(CitizenToken contenderToken) {
+        RankedContender rankedContender = rankedContenders.get(contenderToken);
+        return rankedContender != null && rankedContender.disqualified;
+    }
+
+    /**
+     * @return a version which goes up whenever anything on the leaderboard may have changed
+     */
+    long getVersion() {
+        return changes.sum();
+    }
+
+    /**
+     * @return a version which goes up whenever a contender may have become disqualified or stopped being disqualified
+     */
+    long getDisqualificationVersion() {
+        return disqualificationChanges.sum();
+    }
+
+    Optional<Double> getFinalRating(CitizenToken contenderToken) {
+        RankedContender rankedContender = rankedContenders.get(contenderToken);
+        return (rankedContender == null) ? Optional.empty() : Optional.of(rankedContender.finalRating);
+    }
+
+    Optional<Contender> getLeader() {
+        RankedContender currentLeader = leader;
+        return (currentLeader == null) ? Optional.empty() : Optional.of(currentLeader.getContender());
+    }
+
+    synchronized List<Contender> getTop(int numberOfContenders) {
+        List<Contender> topContenders = new ArrayList<>(Math.min(numberOfContenders, numberRanked));
+        for (int position = 0; position < Math.min(numberOfContenders, numberRanked); position++) {
+            topContenders.add(highestFirst[position].getContender());
+        }
+        return topContenders;
+    }
+
+    /**
+     * Ranks start at 1 for the contender with the highest final rating. Each contender knows their own place, so this costs
+     * the same however many contenders there are
+     */
+    synchronized Optional<Integer> getRank(CitizenToken contenderToken) {
+        RankedContender rankedContender = rankedContenders.get(contenderToken);
+        return (rankedContender == null || rankedContender.position < 0) ? Optional.empty() : Optional.of(rankedContender.position + 1);
+    }
+
+    synchronized List<LeaderboardEntry> getEntries(int fromRank, int numberOfEntries) {
+        if (fromRank < 1 || numberOfEntries < 0) {
+            throw new UnsupportedOperationException("Leaderboard ranks start at 1 and the number of entries cannot be negative");
+        }
+        List<LeaderboardEntry> entries = new ArrayList<>();
+        int toRank = (int) Math.min((long) fromRank + numberOfEntries - 1, numberRanked);
+        for (int rank = fromRank; rank <= toRank; rank++) {
+            RankedContender rankedContender = highestFirst[rank - 1];
+            entries.add(LeaderboardEntry.of(rank, rankedContender.getContender(), rankedContender.finalRating));
+        }
+        return entries;
+    }
+
+    List<Contender> getContendersInArrivalOrder() {
+        return rankedContenders.values().stream()
+                .sorted(Comparator.comparingLong(rankedContender -> rankedContender.arrival))
+                .map(RankedContender::getContender)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Holds the contender's final rating and disqualification as last worked out from their figures, and their place in the ranking.
+     * Only changed while holding the leaderboard's lock
+     */
+    private static class RankedContender {
+        private final ContenderFigures contenderFigures;
+        private final long arrival;
+        private volatile double finalRating;
+        private volatile boolean disqualified;
+        //-1 while the contender is disqualified or has not been placed yet
+        private int position = -1;
+
+        private RankedContender(ContenderFigures contenderFigures, long arrival) {
+            this.contenderFigures = contenderFigures;
+            this.arrival = arrival;
+        }
+
+        private Contender getContender() {
+            return contenderFigures.getContender();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package intuit.election.service;
+
+import intuit.election.domain.LeaderboardUpdate;
+
+/**
+ * Receives coalesced changes to the leaderboard, see {@link Election#subscribeToLeaderboard}
+ */
+public interface LeaderboardListener {
+    void leaderboardChanged(LeaderboardUpdate update);
+}
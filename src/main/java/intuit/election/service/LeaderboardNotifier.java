@@ -0,0 +1,62 @@
+package intuit.election.service;
+
+import intuit.election.domain.LeaderboardEntry;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Drives the {@link LeaderboardSubscription}s of an election. A single ticker thread checks each subscription at its own
+ * interval, and updates are handed to a separate pool of threads so that a slow subscriber never holds up the ticker.
+ * Nothing is added to the rating path: the ticker notices changes through a version which ratings already keep up to date.
+ *
+ * The threads are daemons which are only started by the first subscription, and are stopped by {@link #close()}.
+ *
+ * Safe for concurrent use. Package private as this class is not intended to be used outside this package
+ */
+class LeaderboardNotifier implements Closeable {
+    private final LongSupplier leaderboardVersion;
+    private final Supplier<List<LeaderboardEntry>> leaderboard;
+    private ScheduledExecutorService ticker;
+    private ExecutorService deliverers;
+    private boolean closed;
+
+    LeaderboardNotifier(LongSupplier leaderboardVersion, Supplier<List<LeaderboardEntry>> leaderboard) {
+        this.leaderboardVersion = leaderboardVersion;
+        this.leaderboard = leaderboard;
+    }
+
+    synchronized LeaderboardSubscription subscribe(LeaderboardListener listener, long interval, TimeUnit unit) {
+        if (interval < 1) {
+            throw new UnsupportedOperationException("Leaderboard updates must be at least 1 " + unit.name().toLowerCase() + " apart");
+        }
+        if (closed) {
+            throw new UnsupportedOperationException("Election has been closed");
+        }
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("leaderboard-ticker"));
+            deliverers = Executors.newCachedThreadPool(new DaemonThreadFactory("leaderboard-subscriber"));
+        }
+        LeaderboardSubscription subscription = new LeaderboardSubscription(listener, leaderboardVersion, leaderboard, deliverers);
+        subscription.startTicking(ticker.scheduleWithFixedDelay(subscription::tick, interval, interval, unit));
+        return subscription;
+    }
+
+    /**
+     * Stops the ticker, so no subscription is sent another update, and lets updates already being handled by subscribers finish
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (ticker != null) {
+            ticker.shutdownNow();
+            deliverers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.LeaderboardUpdate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * One subscriber's view of the leaderboard. On each tick of its interval the subscription checks whether the leaderboard
+ * has changed at all, and if it has, sends the subscriber what changed since the last update it was sent. However many
+ * ratings arrive within an interval, the subscriber is sent at most one update for them.
+ *
+ * Updates are sent on a thread of their own, one at a time. While a subscriber is still handling an update, later ticks
+ * are skipped and their changes are folded into the next update, so a slow subscriber falls behind on its own without
+ * holding up ratings or other subscribers.
+ */
+public class LeaderboardSubscription {
+    private final LeaderboardListener listener;
+    private final LongSupplier leaderboardVersion;
+    private final Supplier<List<LeaderboardEntry>> leaderboard;
+    private final Executor deliverers;
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    private final AtomicLong failedDeliveries = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile Future<?> ticks;
+    //Only used on the ticking thread
+    private long versionSent = -1;
+    private List<LeaderboardEntry> leaderboardSent = Collections.emptyList();
+
+    LeaderboardSubscription(LeaderboardListener listener, LongSupplier leaderboardVersion, Supplier<List<LeaderboardEntry>> leaderboard, Executor deliverers) {
+        this.listener = listener;
+        this.leaderboardVersion = leaderboardVersion;
+        this.leaderboard = leaderboard;
+        this.deliverers = deliverers;
+    }
+
+    /**
+     * Stops any more updates being sent. An update already being handled by the subscriber carries on
+     */
+    public void cancel() {
+        cancelled = true;
+        if (ticks != null) {
+            ticks.cancel(false);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return the number of updates which the subscriber failed to handle by throwing an exception
+     */
+    public long getFailedDeliveries() {
+        return failedDeliveries.get();
+    }
+
+    void startTicking(Future<?> ticks) {
+        this.ticks = ticks;
+        if (cancelled) {
+            ticks.cancel(false);
+        }
+    }
+
+    void tick() {
+        if (cancelled || delivering.get()) {
+            return;
+        }
+        //Read before the leaderboard, so a change made while it is read is sent again on the next tick rather than missed
+        long version = leaderboardVersion.getAsLong();
+        if (version == versionSent) {
+            return;
+        }
+        List<LeaderboardEntry> currentLeaderboard = leaderboard.get();
+        LeaderboardUpdate update = changesSince(leaderboardSent, currentLeaderboard);
+        versionSent = version;
+        if (update.getChangedEntries().isEmpty() && update.getRemovedContenders().isEmpty()) {
+            return;
+        }
+        leaderboardSent = currentLeaderboard;
+        delivering.set(true);
+        deliverers.execute(() -> deliver(update));
+    }
+
+    private void deliver(LeaderboardUpdate update) {
+        try {
+            if (!cancelled) {
+                listener.leaderboardChanged(update);
+            }
+        } catch (RuntimeException e) {
+            //A subscriber which fails on one update is still sent the next one
+            failedDeliveries.incrementAndGet();
+        } finally {
+            delivering.set(false);
+        }
+    }
+
+    static LeaderboardUpdate changesSince(List<LeaderboardEntry> previousLeaderboard, List<LeaderboardEntry> currentLeaderboard) {
+        Map<CitizenToken, LeaderboardEntry> previousEntries = new LinkedHashMap<>();
+        previousLeaderboard.forEach(entry -> previousEntries.put(entry.getContender().getCitizenToken(), entry));
+        List<LeaderboardEntry> changedEntries = new ArrayList<>();
+        for (LeaderboardEntry entry : currentLeaderboard) {
+            LeaderboardEntry previousEntry = previousEntries.remove(entry.getContender().getCitizenToken());
+            if (!entry.equals(previousEntry)) {
+                changedEntries.add(entry);
+            }
+        }
+        List<Contender> removedContenders = new ArrayList<>();
+        previousEntries.values().forEach(entry -> removedContenders.add(entry.getContender()));
+        return LeaderboardUpdate.of(Collections.unmodifiableList(currentLeaderboard), Collections.unmodifiableList(changedEntries),
+                Collections.unmodifiableList(removedContenders), !Objects.equals(leaderOf(previousLeaderboard), leaderOf(currentLeaderboard)));
+    }
+
+    private static Contender leaderOf(List<LeaderboardEntry> leaderboard) {
+        return leaderboard.isEmpty() ? null : leaderboard.get(0).getContender();
+    }
+}
@@ -2,90 +2,424 @@ package intuit.election.service;
 
 import intuit.election.domain.CitizenToken;
 import intuit.election.domain.Contender;
+import intuit.election.domain.ContenderHandle;
 import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.LeaderboardEntry;
 import intuit.election.domain.RatedIdea;
 import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RatingStore;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
- * Package private as this service is not intended to be used outside this package
+ * Package private as this service is not intended to be used outside this package.
+ *
+ * Safe for concurrent use. A rating is exchanged in the idea's store and added to its running totals without taking a lock.
+ * The contender who published it is then moved to their new place on the {@link Leaderboard}, whose lock every rating takes, so
+ * ratings of any contenders wait for each other while a contender is moved. Rating an idea allocates nothing once the rater has
+ * rated it before.
+ *
+ * The ratings of each idea are kept in a store created when the idea is published, on the heap by default. Pass
+ * {@link RatingStore#offHeap()} for very large electorates, so that only the totals and indexes stay on the heap.
+ *
+ * Each published idea is given an {@link IdeaHandle} and each contender a {@link ContenderHandle}, whose ids index the ideas and
+ * the leaderboard directly. Contenders can publish ideas with the same description: rating through a handle rates that contender's
+ * idea, while rating by the description alone rates the first of them to be published.
+ *
+ * The ids of the ideas each citizen has rated are also kept, so that a citizen's ratings can be listed or withdrawn without
+ * looking at every idea. Only the ids are kept, as the ratings are read from the ideas, and they are swapped in without a lock.
+ *
+ * Ratings are keyed by the id of the rater's token alone, and the registries of different elections hand out the same ids, so
+ * callers only pass tokens which the election's registry has matched whole, as {@link ElectionService} does
  */
 class RatedIdeaService {
-    private final Map<Idea, RatedIdea> ratedIdeas = new HashMap<>();
-    private final Map<Contender, Double> finalRating = new HashMap<>();
+    private static final String IDEA_NOT_PUBLISHED_MSG = "This idea has not been published";
+    private static final String OWN_IDEA_MSG = "Contenders cannot rate their own ideas";
+    static final String RATER_NOT_REGISTERED_MSG = "Citizen is not registered";
+    //The first idea published with each description, which is the one rated when an idea is rated by its description
+    private final Map<Idea, PublishedIdea> ideasByDescription = new ConcurrentHashMap<>();
+    private final DenseIndex<PublishedIdea> ideasById = new DenseIndex<>();
+    private final Map<CitizenToken, ContenderHandle> contenderHandles = new ConcurrentHashMap<>();
+    //The ideas of each contender by the id of their handle
+    private final DenseIndex<ContenderIdeas> ideasByContender = new DenseIndex<>();
+    private final IdeasRatedByCitizen ideasRatedByCitizen = new IdeasRatedByCitizen();
+    //Guarded by the service's lock, which is only taken to publish an idea
+    private int nextIdeaId;
+    private int nextContenderId;
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final Supplier<RatingStore> ratingStores;
 
-    void publishIdeaToBeRated(Idea idea, Contender contender) {
-        ratedIdeas.put(idea, RatedIdea.of(idea, contender));
+    RatedIdeaService() {
+        this(RatingStore::onHeap);
     }
 
-    void rateIdea(CitizenToken citizenTokenOfRater, Idea idea, Rating rating) {
-        RatedIdea ratedIdea = ratedIdeas.get(idea);
-        if (ratedIdea==null) {
-            throw new UnsupportedOperationException("This idea has not been published");
+    RatedIdeaService(Supplier<RatingStore> ratingStores) {
+        this.ratingStores = ratingStores;
+    }
+
+    /**
+     * Publishing an idea the contender has already published keeps its ratings and returns the handle it was first given
+     */
+    IdeaHandle publishIdeaToBeRated(Idea idea, Contender contender) {
+        return publish(idea, contender).handle;
+    }
+
+    private synchronized PublishedIdea publish(Idea idea, Contender contender) {
+        PublishedIdea lastWithSameDescription = null;
+        for (PublishedIdea published = ideasByDescription.get(idea); published != null; published = published.nextWithSameDescription) {
+            if (published.isPublishedBy(contender.getCitizenToken())) {
+                return published;
+            }
+            lastWithSameDescription = published;
+        }
+        ContenderHandle contenderHandle = contenderHandles.computeIfAbsent(contender.getCitizenToken(), token -> ContenderHandle.of(nextContenderId++, token));
+        ContenderIdeas contenderIdeas = ideasByContender.get(contenderHandle.getId());
+        if (contenderIdeas == null) {
+            contenderIdeas = new ContenderIdeas(contender);
+            ideasByContender.put(contenderHandle.getId(), contenderIdeas);
+        }
+        PublishedIdea published = new PublishedIdea(IdeaHandle.of(nextIdeaId++, idea, contenderHandle), RatedIdea.of(idea, contender, ratingStores.get()), contenderIdeas);
+        contenderIdeas.add(published.ratedIdea, contender);
+        ideasById.put(published.handle.getId(), published);
+        if (lastWithSameDescription == null) {
+            ideasByDescription.put(idea, published);
+        } else {
+            lastWithSameDescription.nextWithSameDescription = published;
+        }
+        return published;
+    }
+
+    /**
+     * @return the handle of the first idea published with the description
+     */
+    Optional<IdeaHandle> getIdeaHandle(Idea idea) {
+        PublishedIdea published = ideasByDescription.get(idea);
+        return (published == null) ? Optional.empty() : Optional.of(published.handle);
+    }
+
+    Optional<IdeaHandle> getIdeaHandle(CitizenToken contenderToken, Idea idea) {
+        for (PublishedIdea published = ideasByDescription.get(idea); published != null; published = published.nextWithSameDescription) {
+            if (published.isPublishedBy(contenderToken)) {
+                return Optional.of(published.handle);
+            }
         }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the handle of the contender, who is given one when their first idea is published
+     */
+    Optional<ContenderHandle> getContenderHandle(CitizenToken contenderToken) {
+        return Optional.ofNullable(contenderHandles.get(contenderToken));
+    }
+
+    /**
+     * @return the contender who published the idea, so that callers do not need to look them up again
+     */
+    Contender rateIdea(CitizenToken citizenTokenOfRater, Idea idea, Rating rating) {
+        return rateIdea(citizenTokenOfRater, ideasByDescription.get(idea), rating);
+    }
+
+    Contender rateIdea(CitizenToken citizenTokenOfRater, IdeaHandle ideaHandle, Rating rating) {
+        return rateIdea(citizenTokenOfRater, publishedIdea(ideaHandle), rating);
+    }
+
+    private Contender rateIdea(CitizenToken citizenTokenOfRater, PublishedIdea published, Rating rating) {
+        if (published==null) {
+            throw new UnsupportedOperationException(IDEA_NOT_PUBLISHED_MSG);
+        }
+        RatedIdea ratedIdea = published.ratedIdea;
         if (citizenTokenOfRater.equals(ratedIdea.getContender().getCitizenToken())) {
-            throw new UnsupportedOperationException("Contenders cannot rate their own ideas");
+            throw new UnsupportedOperationException(OWN_IDEA_MSG);
+        }
+
+        addRating(published, citizenTokenOfRater, rating);
+        leaderboard.update(published.handle.getContender(), ratedIdea.getContender(), published.contenderIdeas);
+        return published.contenderIdeas.getContender();
+    }
+
+    /**
+     * @return null if the handle was not given out by this service
+     */
+    private PublishedIdea publishedIdea(IdeaHandle ideaHandle) {
+        PublishedIdea published = ideasById.get(ideaHandle.getId());
+        //A handle given out by another election can have the id of one of this election's ideas
+        return (published != null && published.handle == ideaHandle) ? published : null;
+    }
+
+    /**
+     * Rates a batch of ideas, looking each idea up once and updating each contender on the leaderboard once
+     * for the whole batch. A command that cannot be applied, including one from a rater who is not registered, is rejected on its
+     * own without failing the rest of the batch.
+     *
+     * @param isRegistered matches the rater's whole token against the registry, as the id it carries is only used once it has
+     * @return the outcome of each command, in the same order as the commands
+     */
+    List<RatingOutcome> rateIdeas(List<RatingCommand> ratingCommands, Predicate<CitizenToken> isRegistered) {
+        Map<Idea, List<Integer>> commandsByIdea = new LinkedHashMap<>();
+        for (int i = 0; i < ratingCommands.size(); i++) {
+            commandsByIdea.computeIfAbsent(ratingCommands.get(i).getIdea(), idea -> new ArrayList<>()).add(i);
         }
 
-        ratedIdea.addRating(citizenTokenOfRater, rating);
+        RatingOutcome[] outcomes = new RatingOutcome[ratingCommands.size()];
+        Map<CitizenToken, PublishedIdea> ratedContenders = new LinkedHashMap<>();
+        commandsByIdea.forEach((idea, commandIndexes) -> {
+            PublishedIdea published = ideasByDescription.get(idea);
+            for (int commandIndex : commandIndexes) {
+                RatingCommand command = ratingCommands.get(commandIndex);
+                if (!isRegistered.test(command.getCitizenTokenOfRater())) {
+                    outcomes[commandIndex] = RatingOutcome.rejected(command, RATER_NOT_REGISTERED_MSG);
+                } else if (published == null) {
+                    outcomes[commandIndex] = RatingOutcome.rejected(command, IDEA_NOT_PUBLISHED_MSG);
+                } else if (published.isPublishedBy(command.getCitizenTokenOfRater())) {
+                    outcomes[commandIndex] = RatingOutcome.rejected(command, OWN_IDEA_MSG);
+                } else {
+                    addRating(published, command.getCitizenTokenOfRater(), command.getRating());
+                    ratedContenders.putIfAbsent(published.handle.getContender().getCitizenToken(), published);
+                    outcomes[commandIndex] = RatingOutcome.accepted(command);
+                }
+            }
+        });
 
-        Contender contender = ratedIdea.getContender();
-        Collection<Idea> manifestoIdeas = contender.getManifesto().getIdeas();
+        ratedContenders.values().forEach(published ->
+                leaderboard.update(published.handle.getContender(), published.ratedIdea.getContender(), published.contenderIdeas));
+        return Arrays.asList(outcomes);
+    }
 
-        double currentFinalRating = manifestoIdeas.stream()
-                                    .map(ratedIdeas::get)
-                                    .map(RatedIdea::getAverageRating)
-                                    .filter(Optional::isPresent)
-                                    .map(Optional::get)
-                                    .mapToDouble(Double::doubleValue)
-                                    .sum();
+    /**
+     * Adds the rating to the idea, and the idea to the ideas the rater has rated if they had not rated it before, leaving the
+     * contender's place on the leaderboard to the caller
+     */
+    private void addRating(PublishedIdea published, CitizenToken citizenTokenOfRater, Rating rating) {
+        if (published.ratedIdea.addRating(citizenTokenOfRater, rating) == RatingStore.NO_RATING) {
+            ideasRatedByCitizen.add(citizenTokenOfRater.id(), published.handle.getId());
+        }
+    }
 
-        finalRating.put(contender, currentFinalRating);
+    /**
+     * A contender is disqualified while any of their ideas has been rated less than 5 by more than 3 voters
+     */
+    boolean isDisqualified(Contender contender) {
+        return leaderboard.isDisqualified(contender.getCitizenToken());
+    }
+
+    /**
+     * @return a version which goes up whenever the leaderboard may have changed
+     */
+    long getLeaderboardVersion() {
+        return leaderboard.getVersion();
+    }
+
+    /**
+     * @return a version which goes up whenever a contender may have become disqualified or stopped being disqualified
+     */
+    long getDisqualificationVersion() {
+        return leaderboard.getDisqualificationVersion();
     }
 
     Optional<Contender> getIdeaPublisher(Idea idea) {
-        RatedIdea ratedIdea = ratedIdeas.get(idea);
-        if (ratedIdea!=null) {
-            return Optional.of(ratedIdeas.get(idea).getContender());
+        PublishedIdea published = ideasByDescription.get(idea);
+        if (published!=null) {
+            return Optional.of(published.contenderIdeas.getContender());
         } else {
             return Optional.empty();
         }
     }
 
     Optional<Rating> getCitizensRatingFor(CitizenToken ideaRatingCitizen, Idea idea) {
-        RatedIdea ratedIdea = ratedIdeas.get(idea);
-        if (ratedIdea!=null) {
-            return Optional.ofNullable(ratedIdea.getRatings().get(ideaRatingCitizen));
+        return getCitizensRatingFor(ideaRatingCitizen, ideasByDescription.get(idea));
+    }
+
+    Optional<Rating> getCitizensRatingFor(CitizenToken ideaRatingCitizen, IdeaHandle ideaHandle) {
+        return getCitizensRatingFor(ideaRatingCitizen, publishedIdea(ideaHandle));
+    }
+
+    private Optional<Rating> getCitizensRatingFor(CitizenToken ideaRatingCitizen, PublishedIdea published) {
+        if (published!=null) {
+            return published.ratedIdea.getRating(ideaRatingCitizen);
         } else {
             return Optional.empty();
         }
     }
 
     void deleteCitizensRatingFor(CitizenToken citizenTokenOfRater, Idea idea) {
-        RatedIdea ratedIdea = ratedIdeas.get(idea);
-        if (ratedIdea!=null) {
-            ratedIdea.deleteRating(citizenTokenOfRater);
+        deleteCitizensRatingFor(citizenTokenOfRater, ideasByDescription.get(idea));
+    }
+
+    void deleteCitizensRatingFor(CitizenToken citizenTokenOfRater, IdeaHandle ideaHandle) {
+        deleteCitizensRatingFor(citizenTokenOfRater, publishedIdea(ideaHandle));
+    }
+
+    private void deleteCitizensRatingFor(CitizenToken citizenTokenOfRater, PublishedIdea published) {
+        if (published!=null) {
+            deleteRating(published, citizenTokenOfRater);
+            leaderboard.updateIfRanked(published.handle.getContender(), published.ratedIdea.getContender());
+        }
+    }
+
+    /**
+     * Deletes the rating from the idea, and the idea from the ideas the rater has rated, leaving the contender's place on the
+     * leaderboard to the caller
+     *
+     * @return the deleted rating, or {@link RatingStore#NO_RATING} if the rater had not rated the idea
+     */
+    private byte deleteRating(PublishedIdea published, CitizenToken citizenTokenOfRater) {
+        byte deletedRating = published.ratedIdea.deleteRating(citizenTokenOfRater);
+        if (deletedRating != RatingStore.NO_RATING) {
+            ideasRatedByCitizen.remove(citizenTokenOfRater.id(), published.handle.getId());
+            //The rater may have rated the idea again from another thread before its id was taken out, so it is put back
+            if (published.ratedIdea.getRating(citizenTokenOfRater).isPresent()) {
+                ideasRatedByCitizen.add(citizenTokenOfRater.id(), published.handle.getId());
+            }
+        }
+        return deletedRating;
+    }
+
+    /**
+     * Looks only at the ideas the citizen has rated, however many ideas have been published. An idea whose rating the citizen
+     * deleted while rating it again from another thread can be left among the ideas they rated, so ideas without their rating are skipped
+     *
+     * @return the citizen's rating of each idea they have rated, in no particular order
+     */
+    Map<IdeaHandle, Rating> getCitizensRatings(CitizenToken citizenToken) {
+        Map<IdeaHandle, Rating> citizensRatings = new HashMap<>();
+        for (int ideaId : ideasRatedByCitizen.get(citizenToken.id())) {
+            PublishedIdea published = ideasById.get(ideaId);
+            published.ratedIdea.getRating(citizenToken).ifPresent(rating -> citizensRatings.put(published.handle, rating));
+        }
+        return Collections.unmodifiableMap(citizensRatings);
+    }
+
+    /**
+     * Deletes every rating the citizen has made, one idea at a time, and then updates each contender whose ideas were rated
+     * once for all of them. Ratings the citizen makes while theirs are being withdrawn may be kept
+     *
+     * @return the ratings withdrawn, in no particular order
+     */
+    Map<IdeaHandle, Rating> withdrawCitizensRatings(CitizenToken citizenToken) {
+        Map<IdeaHandle, Rating> withdrawnRatings = new HashMap<>();
+        Map<CitizenToken, PublishedIdea> ratedContenders = new HashMap<>();
+        for (int ideaId : ideasRatedByCitizen.get(citizenToken.id())) {
+            PublishedIdea published = ideasById.get(ideaId);
+            byte deletedRating = published.ratedIdea.deleteRating(citizenToken);
+            if (deletedRating != RatingStore.NO_RATING) {
+                withdrawnRatings.put(published.handle, Rating.of(deletedRating));
+                ratedContenders.putIfAbsent(published.handle.getContender().getCitizenToken(), published);
+            }
+        }
+        //The ids are taken out together rather than one copy at a time, and any idea rated again in the meantime is put back
+        for (int ideaId : ideasRatedByCitizen.removeIf(citizenToken.id(), ideaId -> !ideasById.get(ideaId).ratedIdea.getRating(citizenToken).isPresent())) {
+            if (ideasById.get(ideaId).ratedIdea.getRating(citizenToken).isPresent()) {
+                ideasRatedByCitizen.add(citizenToken.id(), ideaId);
+            }
+        }
+        ratedContenders.values().forEach(published -> leaderboard.updateIfRanked(published.handle.getContender(), published.ratedIdea.getContender()));
+        return Collections.unmodifiableMap(withdrawnRatings);
+    }
+
+    /**
+     * @return every published idea, in the order they were published
+     */
+    Collection<RatedIdea> getRatedIdeas() {
+        List<RatedIdea> ratedIdeas = new ArrayList<>();
+        for (PublishedIdea published : ideasById.toList()) {
+            ratedIdeas.add(published.ratedIdea);
+        }
+        return Collections.unmodifiableList(ratedIdeas);
+    }
+
+    /**
+     * Puts back an idea without its ratings, e.g. when an election is restored from a snapshot. The ratings are then restored
+     * into the idea returned. Call {@link #restoreLeaderboard(List)} once every idea has been restored
+     */
+    RatedIdea restoreRatedIdea(Idea idea, Contender contender) {
+        return publish(idea, contender).ratedIdea;
+    }
+
+    /**
+     * @return the contenders on the leaderboard, including any who are disqualified, in the order they were first rated
+     */
+    List<Contender> getRankedContenders() {
+        return leaderboard.getContendersInArrivalOrder();
+    }
+
+    /**
+     * Places the contenders on the leaderboard in the order given, working out their final ratings and whether they are disqualified
+     * from the ratings of their ideas. The leaderboard is expected to be empty
+     */
+    void restoreLeaderboard(List<Contender> rankedContenders) {
+        for (Contender contender : rankedContenders) {
+            ContenderHandle contenderHandle = contenderHandles.get(contender.getCitizenToken());
+            leaderboard.update(contender, (contenderHandle == null) ? new ContenderIdeas(contender) : ideasByContender.get(contenderHandle.getId()));
+        }
+        //The ratings were restored straight into the ideas, so the ideas each citizen rated are gathered from them
+        for (PublishedIdea published : ideasById.toList()) {
+            published.ratedIdea.forEachRating((citizenId, rating) -> ideasRatedByCitizen.add(citizenId, published.handle.getId()));
         }
     }
 
     public Optional<Double> getFinalRatingFor(Contender contender) {
-        return Optional.ofNullable(finalRating.get(contender));
+        return leaderboard.getFinalRating(contender.getCitizenToken());
     }
 
     public Optional<Contender> getContenderWithHighestFinalRating() {
-        Optional<Map.Entry<Contender, Double>> maxEntry =
-                finalRating.entrySet()
-                .stream()
-                .max(Comparator.comparing(Map.Entry::getValue));
-        if (maxEntry.isPresent()) {
-            return Optional.of(maxEntry.get().getKey());
-        } else {
+        return leaderboard.getLeader();
+    }
+
+    List<Contender> getTopContenders(int numberOfContenders) {
+        return leaderboard.getTop(numberOfContenders);
+    }
+
+    Optional<Integer> getRank(Contender contender) {
+        return leaderboard.getRank(contender.getCitizenToken());
+    }
+
+    Optional<Integer> getRank(ContenderHandle contenderHandle) {
+        //A handle given out by another election is not recognised, even for a citizen who is a contender in both
+        if (contenderHandles.get(contenderHandle.getCitizenToken()) != contenderHandle) {
             return Optional.empty();
         }
+        return leaderboard.getRank(contenderHandle.getCitizenToken());
+    }
+
+    List<LeaderboardEntry> getLeaderboard(int fromRank, int numberOfEntries) {
+        return leaderboard.getEntries(fromRank, numberOfEntries);
+    }
+
+    /**
+     * An idea along with the handle it was given when it was published. Ideas of different contenders with the same description
+     * are chained together in the order they were published
+     */
+    private static class PublishedIdea {
+        private final IdeaHandle handle;
+        private final RatedIdea ratedIdea;
+        //The ideas of the contender who published this one, shared by all of them
+        private final ContenderIdeas contenderIdeas;
+        //Only set while holding the service's lock
+        private volatile PublishedIdea nextWithSameDescription;
+
+        private PublishedIdea(IdeaHandle handle, RatedIdea ratedIdea, ContenderIdeas contenderIdeas) {
+            this.handle = handle;
+            this.ratedIdea = ratedIdea;
+            this.contenderIdeas = contenderIdeas;
+        }
+
+        private boolean isPublishedBy(CitizenToken contenderToken) {
+            return handle.getContender().getCitizenToken().equals(contenderToken);
+        }
     }
 }
@@ -0,0 +1,240 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Idea;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.OperationMetrics;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingStore;
+import intuit.election.stub.CountingEmailService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Simulates election day against an {@link InstrumentedElection}: citizens register, contenders nominate themselves and post
+ * their manifestos, and then citizens rate ideas from several threads at once. Ideas are picked with a skewed
+ * {@link PopularityDistribution}, each idea has an appeal which decides how well it is rated, and some ratings are deleted
+ * again. Contenders hold back the last idea of their manifesto and add it while citizens vote, which emails their followers.
+ * See {@link Workload} for the settings.
+ *
+ * While citizens vote, a report line gives the throughput, latency, heap usage and current leader, and each change of leader
+ * is noted. The run ends with the metrics of every method, the heap usage and how the leader changed over the day.
+ *
+ * Run with {@code ./gradlew simulate -PsimulationArgs="citizens=100000 threads=4"}
+ */
+public class ElectionSimulation {
+    //Each thread remembers this many of its latest ratings, and deletes one of them at random
+    private static final int RECENT_RATINGS = 64;
+    private static final int BYTES_PER_MEGABYTE = 1 << 20;
+
+    private final Workload workload;
+    private final CountingEmailService emailService = new CountingEmailService();
+    private final InstrumentedElection election;
+    private final CitizenToken[] citizens;
+    private final Idea[] ideas;
+    private final double[] appealOfIdea;
+    private final boolean[] divisiveIdea;
+    //1 once the idea has been published, as citizens only rate ideas they have seen
+    private final AtomicIntegerArray publishedIdeas;
+    private final PopularityDistribution popularity;
+    private final LongAdder ratingsMade = new LongAdder();
+    private final LongAdder ratingsDeleted = new LongAdder();
+    private final LongAdder callsTurnedDown = new LongAdder();
+    private final List<String> leaderChanges = Collections.synchronizedList(new ArrayList<>());
+    private long votingStartTime;
+
+    private ElectionSimulation(Workload workload) {
+        this.workload = workload;
+        RatedIdeaService ratedIdeaService = new RatedIdeaService(workload.offHeap ? RatingStore::offHeap : RatingStore::onHeap);
+        election = InstrumentedElection.of(new ElectionService(new CitizenRegistry(), new ContenderService(), ratedIdeaService, emailService));
+        citizens = new CitizenToken[workload.citizens];
+        ideas = new Idea[workload.contenders * workload.ideasPerManifesto];
+        appealOfIdea = new double[ideas.length];
+        divisiveIdea = new boolean[ideas.length];
+        publishedIdeas = new AtomicIntegerArray(ideas.length);
+        Random random = new Random(workload.seed);
+        for (int idea = 0; idea < ideas.length; idea++) {
+            ideas[idea] = Idea.of("idea " + (idea % workload.ideasPerManifesto) + " of contender " + (idea / workload.ideasPerManifesto));
+            appealOfIdea[idea] = random.nextDouble();
+            divisiveIdea[idea] = random.nextDouble() < workload.divisiveIdeaRatio;
+        }
+        popularity = new PopularityDistribution(ideas.length, workload.popularitySkew, workload.seed);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        new ElectionSimulation(Workload.fromArgs(args)).run();
+    }
+
+    private void run() throws InterruptedException {
+        System.out.println("Simulating " + workload);
+        inPhase("Registering citizens", workload.citizens, thread -> {
+            for (int citizen = thread; citizen < citizens.length; citizen += workload.threads) {
+                String name = (citizen < workload.contenders) ? "contender " + citizen : "citizen " + citizen;
+                citizens[citizen] = election.register(name, name.replace(" ", "") + "@email.com");
+            }
+        });
+        inPhase("Posting manifestos", workload.contenders, thread -> {
+            for (int contender = thread; contender < workload.contenders; contender += workload.threads) {
+                election.nominateMyself(citizens[contender]);
+                Idea[] manifesto = new Idea[Math.max(workload.ideasPerManifesto - 1, 1)];
+                System.arraycopy(ideas, contender * workload.ideasPerManifesto, manifesto, 0, manifesto.length);
+                election.postMyManifesto(citizens[contender], Manifesto.of(manifesto));
+                for (int idea = 0; idea < manifesto.length; idea++) {
+                    publishedIdeas.set(contender * workload.ideasPerManifesto + idea, 1);
+                }
+            }
+        });
+
+        votingStartTime = System.nanoTime();
+        LeaderboardSubscription leaderboardSubscription = election.subscribeToLeaderboard(update -> {
+            if (update.isLeaderChanged()) {
+                leaderChanges.add(String.format("%8.1fs  %s", secondsSince(votingStartTime),
+                        update.getLeader().map(leader -> describe(update.getLeaderboard().get(0))).orElse("no leader")));
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        long[] ratingsAtLastReport = {0};
+        reporter.scheduleAtFixedRate(() -> ratingsAtLastReport[0] = report(ratingsAtLastReport[0]),
+                workload.reportEverySeconds, workload.reportEverySeconds, TimeUnit.SECONDS);
+
+        SplittableRandom seeds = new SplittableRandom(workload.seed);
+        SplittableRandom[] randomOfThread = new SplittableRandom[workload.threads];
+        for (int thread = 0; thread < workload.threads; thread++) {
+            randomOfThread[thread] = seeds.split();
+        }
+        inPhase("Voting", workload.ratings, thread -> vote(thread, randomOfThread[thread], workload.ratings / workload.threads
+                + ((thread < workload.ratings % workload.threads) ? 1 : 0)));
+
+        reporter.shutdownNow();
+        leaderboardSubscription.cancel();
+        finalReport();
+    }
+
+    /**
+     * The thread adds the last idea of the contenders it posted the manifestos of, spread evenly across its calls
+     */
+    private void vote(int thread, SplittableRandom random, long calls) {
+        int[] recentVoters = new int[RECENT_RATINGS];
+        int[] recentIdeas = new int[RECENT_RATINGS];
+        int recentRatings = 0;
+        int nextContenderToAddIdea = (workload.ideasPerManifesto > 1) ? thread : workload.contenders;
+        long callsBetweenIdeasAdded = Math.max(calls / (workload.contenders / workload.threads + 1), 1);
+        for (long call = 0; call < calls; call++) {
+            try {
+                if (call % callsBetweenIdeasAdded == callsBetweenIdeasAdded - 1 && nextContenderToAddIdea < workload.contenders) {
+                    int idea = (nextContenderToAddIdea + 1) * workload.ideasPerManifesto - 1;
+                    election.addIdeaToMyManifesto(citizens[nextContenderToAddIdea], ideas[idea]);
+                    publishedIdeas.set(idea, 1);
+                    nextContenderToAddIdea += workload.threads;
+                } else if (recentRatings > 0 && random.nextDouble() < workload.deleteRatio) {
+                    int recent = random.nextInt(Math.min(recentRatings, RECENT_RATINGS));
+                    election.deleteRatingForIdea(citizens[recentVoters[recent]], ideas[recentIdeas[recent]]);
+                    ratingsDeleted.increment();
+                } else {
+                    //Contenders are the first citizens, and only the others vote
+                    int voter = workload.contenders + random.nextInt(citizens.length - workload.contenders);
+                    int idea = popularity.nextIdea(random);
+                    while (publishedIdeas.get(idea) == 0) {
+                        idea = popularity.nextIdea(random);
+                    }
+                    election.rateIdea(citizens[voter], ideas[idea], Rating.of(ratingOf(idea, random)));
+                    recentVoters[recentRatings % RECENT_RATINGS] = voter;
+                    recentIdeas[recentRatings % RECENT_RATINGS] = idea;
+                    recentRatings++;
+                    ratingsMade.increment();
+                }
+            } catch (UnsupportedOperationException e) {
+                callsTurnedDown.increment();
+            }
+        }
+    }
+
+    /**
+     * Ideas with more appeal are rated higher. Only divisive ideas are ever rated below 5, so only their contenders can be disqualified
+     */
+    private int ratingOf(int idea, SplittableRandom random) {
+        int lowestRating = divisiveIdea[idea] ? 0 : 5;
+        return lowestRating + (int) Math.round((10 - lowestRating) * (0.6 * appealOfIdea[idea] + 0.4 * random.nextDouble()));
+    }
+
+    /**
+     * Runs the phase on every thread and waits for it to finish
+     */
+    private void inPhase(String phase, long calls, IntConsumer work) throws InterruptedException {
+        long phaseStartTime = System.nanoTime();
+        Thread[] threads = new Thread[workload.threads];
+        for (int thread = 0; thread < threads.length; thread++) {
+            int threadIndex = thread;
+            threads[thread] = new Thread(() -> work.accept(threadIndex), "simulation-" + thread);
+            threads[thread].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = secondsSince(phaseStartTime);
+        System.out.printf("%s: %d calls in %.1fs, %.0f calls/s, heap %dMB%n", phase, calls, seconds, calls / seconds, heapUsed() / BYTES_PER_MEGABYTE);
+    }
+
+    /**
+     * @return the number of ratings made so far, which the next report works out the throughput from
+     */
+    private long report(long ratingsAtLastReport) {
+        long ratings = ratingsMade.sum();
+        OperationMetrics rateIdea = election.getMetrics().getOperation("rateIdea").get();
+        List<LeaderboardEntry> leader = election.getLeaderboard(1, 1);
+        System.out.printf("%8.1fs  ratings %d (%.0f/s)  deleted %d  turned down %d  rateIdea p50 %.1fus p99 %.1fus  heap %dMB  qualified %d/%d  leader %s%n",
+                secondsSince(votingStartTime), ratings, (double) (ratings - ratingsAtLastReport) / workload.reportEverySeconds,
+                ratingsDeleted.sum(), callsTurnedDown.sum(), rateIdea.getSampledLatencyNanos().getValueAtPercentile(50) / 1e3,
+                rateIdea.getSampledLatencyNanos().getValueAtPercentile(99) / 1e3, heapUsed() / BYTES_PER_MEGABYTE,
+                election.getContenders().size(), workload.contenders, leader.isEmpty() ? "none" : describe(leader.get(0)));
+        return ratings;
+    }
+
+    private void finalReport() {
+        System.out.println();
+        System.out.print(election.dumpMetrics());
+        System.out.printf("Ratings made %d, deleted %d, calls turned down %d, emails sent %d%n",
+                ratingsMade.sum(), ratingsDeleted.sum(), callsTurnedDown.sum(), emailService.getMessagesSent());
+        System.out.printf("Heap used %dMB, peak %dMB%n", heapUsed() / BYTES_PER_MEGABYTE, peakHeapUsed() / BYTES_PER_MEGABYTE);
+        System.out.println("Changes of leader:");
+        leaderChanges.forEach(System.out::println);
+        System.out.println("Final leaderboard:");
+        election.getLeaderboard(1, 5).forEach(entry -> System.out.println("    " + describe(entry)));
+    }
+
+    private static String describe(LeaderboardEntry entry) {
+        return String.format("%d. %s (%.2f)", entry.getRank(), entry.getContender().getName(), entry.getFinalRating());
+    }
+
+    private static double secondsSince(long startTime) {
+        return (System.nanoTime() - startTime) / 1e9;
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long peakHeapUsed() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,45 @@
+package intuit.election.service;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Picks ideas with a Zipf distribution, so that a few ideas get most of the ratings and the rest get a long tail.
+ * Ranks are shuffled across the ideas with the workload's seed, so the most popular ideas are not simply those of the
+ * first contenders. Picking an idea is a binary search of the cumulative probabilities.
+ *
+ * Immutable, so it can be shared by every thread, each with a random generator of its own
+ */
+class PopularityDistribution {
+    private final double[] cumulativeProbabilities;
+    private final int[] ideaOfRank;
+
+    PopularityDistribution(int numberOfIdeas, double skew, long seed) {
+        cumulativeProbabilities = new double[numberOfIdeas];
+        double total = 0;
+        for (int rank = 0; rank < numberOfIdeas; rank++) {
+            total += 1 / Math.pow(rank + 1, skew);
+            cumulativeProbabilities[rank] = total;
+        }
+        for (int rank = 0; rank < numberOfIdeas; rank++) {
+            cumulativeProbabilities[rank] /= total;
+        }
+        ideaOfRank = new int[numberOfIdeas];
+        Arrays.setAll(ideaOfRank, rank -> rank);
+        Random shuffler = new Random(seed);
+        for (int rank = numberOfIdeas - 1; rank > 0; rank--) {
+            int other = shuffler.nextInt(rank + 1);
+            int idea = ideaOfRank[rank];
+            ideaOfRank[rank] = ideaOfRank[other];
+            ideaOfRank[other] = idea;
+        }
+    }
+
+    int nextIdea(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        //A miss gives the insertion point, which is the first rank whose cumulative probability is above the draw
+        rank = (rank < 0) ? -rank - 1 : rank;
+        return ideaOfRank[Math.min(rank, ideaOfRank.length - 1)];
+    }
+}
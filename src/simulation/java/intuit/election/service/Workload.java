@@ -0,0 +1,82 @@
+package intuit.election.service;
+
+import intuit.election.domain.Manifesto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The shape of a simulated election day. Every setting has a default and can be overridden with a {@code name=value}
+ * argument, e.g. {@code citizens=100000 threads=8 popularitySkew=1.2}.
+ *
+ * The same seed always produces the same workload from each thread: the same citizens, manifestos, and ratings in the
+ * same order. Only the interleaving of the threads varies from run to run.
+ */
+class Workload {
+    long seed = 42;
+    int citizens = 1000000;
+    int contenders = 500;
+    int ideasPerManifesto = 3;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long ratings = 20000000;
+    //Exponent of the Zipf distribution of ideas' popularity: 0 rates every idea as often, higher values favour a few ideas
+    double popularitySkew = 1.1;
+    //Share of calls which delete one of the thread's recent ratings rather than rating an idea
+    double deleteRatio = 0.02;
+    //Share of ideas which some citizens dislike, so that they get low ratings and can disqualify their contender
+    double divisiveIdeaRatio = 0.2;
+    boolean offHeap = false;
+    int reportEverySeconds = 5;
+
+    static Workload fromArgs(String[] args) {
+        Workload workload = new Workload();
+        for (String arg : args) {
+            String[] setting = arg.split("=", 2);
+            if (setting.length != 2) {
+                throw new UnsupportedOperationException("Settings must be given as name=value: " + arg);
+            }
+            workload.set(setting[0], setting[1]);
+        }
+        if (workload.contenders < 1 || workload.contenders >= workload.citizens) {
+            throw new UnsupportedOperationException("There must be at least 1 contender and more citizens than contenders");
+        }
+        if (workload.ideasPerManifesto < Manifesto.MIN_IDEAS || workload.ideasPerManifesto > Manifesto.MAX_IDEAS) {
+            throw new UnsupportedOperationException(String.format("Ideas per manifesto must be between %d and %d", Manifesto.MIN_IDEAS, Manifesto.MAX_IDEAS));
+        }
+        return workload;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "seed": seed = Long.parseLong(value); break;
+            case "citizens": citizens = Integer.parseInt(value); break;
+            case "contenders": contenders = Integer.parseInt(value); break;
+            case "ideasPerManifesto": ideasPerManifesto = Integer.parseInt(value); break;
+            case "threads": threads = Integer.parseInt(value); break;
+            case "ratings": ratings = Long.parseLong(value); break;
+            case "popularitySkew": popularitySkew = Double.parseDouble(value); break;
+            case "deleteRatio": deleteRatio = Double.parseDouble(value); break;
+            case "divisiveIdeaRatio": divisiveIdeaRatio = Double.parseDouble(value); break;
+            case "offHeap": offHeap = Boolean.parseBoolean(value); break;
+            case "reportEverySeconds": reportEverySeconds = Integer.parseInt(value); break;
+            default: throw new UnsupportedOperationException("Unknown setting: " + name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("seed", seed);
+        settings.put("citizens", citizens);
+        settings.put("contenders", contenders);
+        settings.put("ideasPerManifesto", ideasPerManifesto);
+        settings.put("threads", threads);
+        settings.put("ratings", ratings);
+        settings.put("popularitySkew", popularitySkew);
+        settings.put("deleteRatio", deleteRatio);
+        settings.put("divisiveIdeaRatio", divisiveIdeaRatio);
+        settings.put("offHeap", offHeap);
+        settings.put("reportEverySeconds", reportEverySeconds);
+        return settings.toString();
+    }
+}
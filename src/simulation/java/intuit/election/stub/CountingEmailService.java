@@ -0,0 +1,32 @@
+package intuit.election.stub;
+
+import intuit.election.service.EmailService;
+
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages it is asked to send rather than printing them, as the simulation emails far too many followers to print
+ */
+public class CountingEmailService implements EmailService {
+    private final LongAdder messagesSent = new LongAdder();
+
+    @Override
+    public void sendMessage(String emailAddress, String message) {
+        messagesSent.increment();
+    }
+
+    @Override
+    public void sendMessages(Set<String> emailAddresses, String message) {
+        messagesSent.add(emailAddresses.size());
+    }
+
+    @Override
+    public boolean messageSent(String emailAddress, String message) {
+        return false;
+    }
+
+    public long getMessagesSent() {
+        return messagesSent.sum();
+    }
+}
@@ -0,0 +1,63 @@
+package intuit.election.domain;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+public class HistogramTest {
+
+    @Test
+    public void smallValuesAreCountedExactly() {
+        Histogram histogram = histogramOf(3, 7, 7, 63);
+
+        assertThat(histogram.getTotalCount(), is(4L));
+        assertThat(histogram.getMin(), is(3L));
+        assertThat(histogram.getMax(), is(63L));
+        assertThat(histogram.getValueAtPercentile(50), is(7L));
+        assertThat(histogram.getMean(), is(20.0));
+    }
+
+    @Test
+    public void largeValuesAreReadBackWithinThreePercent() {
+        for (long value = 64; value < 1L << 40; value = value * 3 + 1) {
+            long readBack = histogramOf(value).getValueAtPercentile(100);
+            assertThat((double) readBack, closeTo(value, value * 0.03));
+        }
+    }
+
+    @Test
+    public void percentilesAreTakenAcrossHistogramsAddedTogether() {
+        long[] firstValues = new long[900];
+        long[] secondValues = new long[100];
+        Arrays.fill(firstValues, 100);
+        Arrays.fill(secondValues, 100000);
+
+        Histogram histogram = histogramOf(firstValues).plus(histogramOf(secondValues)).plus(Histogram.EMPTY);
+
+        assertThat(histogram.getTotalCount(), is(1000L));
+        assertThat(histogram.getValueAtPercentile(90), is(histogramOf(100).getMax()));
+        assertThat(histogram.getValueAtPercentile(91), is(histogramOf(100000).getMax()));
+        assertThat(histogram.getMean(), is(10090.0));
+    }
+
+    @Test
+    public void emptyHistogramReadsAsZero() {
+        assertThat(Histogram.EMPTY.getValueAtPercentile(99), is(0L));
+        assertThat(Histogram.EMPTY.getMax(), is(0L));
+        assertThat(Histogram.EMPTY.getMean(), is(0.0));
+    }
+
+    private static Histogram histogramOf(long... values) {
+        long[] counts = new long[Histogram.BUCKETS];
+        long sum = 0;
+        for (long value : values) {
+            counts[Histogram.bucketOf(value)]++;
+            sum += value;
+        }
+        return Histogram.of(counts, sum);
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.rules.ExpectedException;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 
 public class ManifestoTest {
 
@@ -101,4 +102,45 @@ public class ManifestoTest {
 
         manifesto.remove(FIRST_IDEA);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void cannotAddAnIdeaToAnImmutableCopyOfTheManifesto() {
+        Manifesto manifesto = Manifesto.of(FIRST_IDEA).toImmutable();
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Manifesto of a published contender cannot be changed");
+
+        manifesto.add(SECOND_IDEA);
+    }
+
+    @Test
+    public void immutableCopyIsNotChangedWhenTheManifestoIsChanged() {
+        Manifesto manifesto = Manifesto.of(FIRST_IDEA);
+        Manifesto immutableManifesto = manifesto.toImmutable();
+
+        manifesto.add(SECOND_IDEA);
+
+        assertThat(immutableManifesto.getIdeas(), contains(FIRST_IDEA));
+    }
+
+    @Test
+    public void manifestoWithAnIdeaAddedIsACopy() {
+        Manifesto manifesto = Manifesto.of(FIRST_IDEA).toImmutable();
+
+        Manifesto manifestoWithIdea = manifesto.withIdea(SECOND_IDEA);
+
+        assertThat(manifesto.getIdeas(), contains(FIRST_IDEA));
+        assertThat(manifestoWithIdea.getIdeas(), contains(FIRST_IDEA, SECOND_IDEA));
+        assertThat(manifestoWithIdea, is(Manifesto.of(FIRST_IDEA, SECOND_IDEA)));
+    }
+
+    @Test
+    public void cannotAddAnIdeaToACopyIfManifestoAlreadyContainsThreeIdeas() {
+        Manifesto manifesto = Manifesto.of(FIRST_IDEA, SECOND_IDEA, THIRD_IDEA).toImmutable();
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Manifesto cannot have more than 3 ideas");
+
+        manifesto.withIdea(FOURTH_IDEA);
+    }
+}
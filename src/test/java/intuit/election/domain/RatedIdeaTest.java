@@ -3,10 +3,17 @@ package intuit.election.domain;
 import intuit.election.stub.StubbedCitizenToken;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.hamcrest.Matchers.anEmptyMap;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 
 public class RatedIdeaTest {
@@ -20,7 +27,7 @@ public class RatedIdeaTest {
     public void initialIdeaWillHaveNoRatingsAndNoAverageRating() {
         RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
 
-        assertThat(ratedIdea.getRatings(), is(anEmptyMap()));
+        assertThat(ratedIdea.getNumberOfRatings(), is(0));
         assertThat(ratedIdea.getAverageRating(), is(Optional.empty()));
     }
 
@@ -31,7 +38,7 @@ public class RatedIdeaTest {
         Rating citizensRating = Rating.of(SOME_VALID_RATING_VALUE);
         ratedIdea.addRating(citizenTokenOfRater, citizensRating);
 
-        assertThat(ratedIdea.getRatings().get(citizenTokenOfRater), is(citizensRating));
+        assertThat(ratedIdea.getRating(citizenTokenOfRater), is(Optional.of(citizensRating)));
     }
 
     @Test
@@ -43,7 +50,7 @@ public class RatedIdeaTest {
 
         ratedIdea.deleteRating(citizenTokenOfRater);
 
-        assertThat(ratedIdea.getRatings().containsKey(citizenTokenOfRater), is(false));
+        assertThat(ratedIdea.getRating(citizenTokenOfRater), is(Optional.empty()));
     }
 
     @Test
@@ -63,12 +70,173 @@ public class RatedIdeaTest {
         assertThat(ratedIdea.getAverageRating(), is(Optional.of(expectedAverageRating)));
     }
 
+    @Test
+    public void averageRatingForAnIdeaReflectsACitizenChangingTheirRating() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        CitizenToken citizenTokenOfRater = new StubbedCitizenToken();
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_VALID_RATING_VALUE));
+        ratedIdea.addRating(new StubbedCitizenToken(), Rating.of(SOME_OTHER_VALID_RATING_VALUE));
 
-    @Test(expected = UnsupportedOperationException.class)
-    public void cannotModifyTheRatingsOfTheIdea() {
+        byte replacedRating = ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_OTHER_VALID_RATING_VALUE));
+
+        assertThat(ratedIdea.getAverageRating(), is(Optional.of((double) SOME_OTHER_VALID_RATING_VALUE)));
+        assertThat(replacedRating, is((byte) SOME_VALID_RATING_VALUE));
+    }
+
+    @Test
+    public void averageRatingForAnIdeaReflectsACitizenDeletingTheirRating() {
         RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
         CitizenToken citizenTokenOfRater = new StubbedCitizenToken();
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_VALID_RATING_VALUE));
+        ratedIdea.addRating(new StubbedCitizenToken(), Rating.of(SOME_OTHER_VALID_RATING_VALUE));
+
+        byte deletedRating = ratedIdea.deleteRating(citizenTokenOfRater);
+
+        assertThat(ratedIdea.getAverageRating(), is(Optional.of((double) SOME_OTHER_VALID_RATING_VALUE)));
+        assertThat(deletedRating, is((byte) SOME_VALID_RATING_VALUE));
+    }
+
+    @Test
+    public void deletingTheOnlyRatingOfAnIdeaLeavesItWithNoAverageRating() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        CitizenToken citizenTokenOfRater = new StubbedCitizenToken();
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_VALID_RATING_VALUE));
+
+        ratedIdea.deleteRating(citizenTokenOfRater);
+
+        assertThat(ratedIdea.getAverageRating(), is(Optional.empty()));
+        assertThat(ratedIdea.getAverageRatingOrZero(), is(0.0));
+    }
+
+    @Test
+    public void ideaIsDisqualifyingOnceMoreThanThreeVotersRateItLessThanFive() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        IntStream.range(0, 3).forEach(rater -> ratedIdea.addRating(new StubbedCitizenToken(), Rating.of(4)));
+        ratedIdea.addRating(new StubbedCitizenToken(), Rating.of(5));
+        assertThat(ratedIdea.isDisqualifying(), is(false));
 
-        ratedIdea.getRatings().put(citizenTokenOfRater, Rating.of(SOME_VALID_RATING_VALUE));
+        ratedIdea.addRating(new StubbedCitizenToken(), Rating.of(0));
+
+        assertThat(ratedIdea.isDisqualifying(), is(true));
+    }
+
+    @Test
+    public void ideaStopsBeingDisqualifyingWhenALowRatingIsChangedOrDeleted() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        List<CitizenToken> raters = IntStream.range(0, 5).mapToObj(rater -> new StubbedCitizenToken()).collect(Collectors.toList());
+        raters.forEach(rater -> ratedIdea.addRating(rater, Rating.of(1)));
+
+        ratedIdea.addRating(raters.get(0), Rating.of(9));
+        assertThat(ratedIdea.isDisqualifying(), is(true));
+        ratedIdea.deleteRating(raters.get(1));
+
+        assertThat(ratedIdea.isDisqualifying(), is(false));
+    }
+
+    @Test
+    public void averageRatingIsConsistentWhenCitizensRateAndDeleteConcurrently() throws InterruptedException {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        List<CitizenToken> raters = IntStream.range(0, 1000).mapToObj(rater -> new StubbedCitizenToken()).collect(Collectors.toList());
+        ExecutorService ratingThreads = Executors.newFixedThreadPool(8);
+
+        raters.forEach(rater -> ratingThreads.execute(() -> {
+            ratedIdea.addRating(rater, Rating.of(SOME_OTHER_VALID_RATING_VALUE));
+            ratedIdea.deleteRating(rater);
+            ratedIdea.addRating(rater, Rating.of(SOME_VALID_RATING_VALUE));
+        }));
+        ratingThreads.shutdown();
+        ratingThreads.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertThat(ratedIdea.getNumberOfRatings(), is(raters.size()));
+        assertThat(ratedIdea.getAverageRating(), is(Optional.of((double) SOME_VALID_RATING_VALUE)));
+    }
+
+    @Test
+    public void everyRatingIsKeptWhenTheIdeaGrowsWhileCitizensRateItConcurrently() throws InterruptedException {
+        for (RatingStore ratingStore : new RatingStore[]{RatingStore.onHeap(), RatingStore.offHeap()}) {
+            RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER, ratingStore);
+            List<CitizenToken> raters = IntStream.range(0, 100000).mapToObj(rater -> new StubbedCitizenToken()).collect(Collectors.toList());
+            ExecutorService ratingThreads = Executors.newFixedThreadPool(8);
+
+            IntStream.range(0, raters.size()).forEach(rater -> ratingThreads.execute(() -> ratedIdea.addRating(raters.get(rater), Rating.of(rater % 10))));
+            ratingThreads.shutdown();
+            ratingThreads.awaitTermination(1, TimeUnit.MINUTES);
+
+            assertThat(ratedIdea.getNumberOfRatings(), is(raters.size()));
+            assertThat(ratedIdea.getAverageRating(), is(Optional.of(4.5)));
+            assertThat(ratedIdea.getNumberOfLowRatings(), is(raters.size() / 2));
+            assertThat(IntStream.range(0, raters.size()).allMatch(rater -> ratedIdea.getRating(raters.get(rater)).equals(Optional.of(Rating.of(rater % 10)))), is(true));
+        }
+    }
+
+    @Test
+    public void ratingsOfManyCitizensAreKeptAsTheIdeaGrows() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        List<CitizenToken> raters = IntStream.range(0, 10000).mapToObj(rater -> new StubbedCitizenToken()).collect(Collectors.toList());
+
+        IntStream.range(0, raters.size()).forEach(rater -> ratedIdea.addRating(raters.get(rater), Rating.of(rater % 11)));
+        IntStream.range(0, raters.size()).filter(rater -> rater % 2 == 0).forEach(rater -> ratedIdea.deleteRating(raters.get(rater)));
+
+        assertThat(ratedIdea.getNumberOfRatings(), is(raters.size() / 2));
+        assertThat(ratedIdea.getRating(raters.get(4321)), is(Optional.of(Rating.of(4321 % 11))));
+        assertThat(ratedIdea.getRating(raters.get(4320)), is(Optional.empty()));
+    }
+
+    @Test
+    public void citizenCanRateAgainAfterDeletingTheirRating() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        CitizenToken citizenTokenOfRater = new StubbedCitizenToken();
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_VALID_RATING_VALUE));
+        ratedIdea.deleteRating(citizenTokenOfRater);
+
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_OTHER_VALID_RATING_VALUE));
+
+        assertThat(ratedIdea.getRating(citizenTokenOfRater), is(Optional.of(Rating.of(SOME_OTHER_VALID_RATING_VALUE))));
+        assertThat(ratedIdea.getAverageRating(), is(Optional.of((double) SOME_OTHER_VALID_RATING_VALUE)));
+    }
+
+    @Test
+    public void deletingARatingThatWasNeverMadeDoesNotChangeTheAverage() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        ratedIdea.addRating(new StubbedCitizenToken(), Rating.of(SOME_VALID_RATING_VALUE));
+
+        byte deletedRating = ratedIdea.deleteRating(new StubbedCitizenToken());
+
+        assertThat(deletedRating, is(RatingStore.NO_RATING));
+        assertThat(ratedIdea.getNumberOfRatings(), is(1));
+    }
+
+    @Test
+    public void ratingsRestoredInBulkCanBeVisitedAndCountTowardsTheAverage() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER);
+        CitizenToken citizenTokenOfRater = new StubbedCitizenToken();
+
+        ratedIdea.restoreRatings(new int[]{citizenTokenOfRater.id(), citizenTokenOfRater.id() + 1000, citizenTokenOfRater.id() + 2000}, new byte[]{2, 3, 7}, 3);
+
+        assertThat(ratedIdea.getRating(citizenTokenOfRater), is(Optional.of(Rating.of(2))));
+        assertThat(ratedIdea.getAverageRating(), is(Optional.of(4.0)));
+        assertThat(ratedIdea.isDisqualifying(), is(false));
+        int[] visitedRatingTotal = new int[1];
+        ratedIdea.forEachRating((citizenId, rating) -> visitedRatingTotal[0] += rating);
+        assertThat(visitedRatingTotal[0], is(12));
+    }
+
+    @Test
+    public void ratingsKeptOffHeapAreAddedChangedDeletedAndVisitedLikeThoseOnTheHeap() {
+        RatedIdea ratedIdea = RatedIdea.of(SOME_IDEA, SOME_CONTENDER, RatingStore.offHeap());
+        CitizenToken citizenTokenOfRater = new StubbedCitizenToken();
+        int[] citizenIds = {citizenTokenOfRater.id() + 2, citizenTokenOfRater.id() + 100000, citizenTokenOfRater.id() + 5000000};
+        ratedIdea.restoreRatings(citizenIds, new byte[]{0, 10, 3}, citizenIds.length);
+
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_VALID_RATING_VALUE));
+        ratedIdea.addRating(citizenTokenOfRater, Rating.of(SOME_OTHER_VALID_RATING_VALUE));
+        ratedIdea.deleteRating(new StubbedCitizenToken());
+
+        assertThat(ratedIdea.getRating(citizenTokenOfRater), is(Optional.of(Rating.of(SOME_OTHER_VALID_RATING_VALUE))));
+        assertThat(ratedIdea.getNumberOfRatings(), is(4));
+        assertThat(ratedIdea.getAverageRating(), is(Optional.of(17 / 4.0)));
+        List<Integer> visitedCitizenIds = new ArrayList<>();
+        ratedIdea.forEachRating((citizenId, rating) -> visitedCitizenIds.add(citizenId));
+        assertThat(visitedCitizenIds, contains(citizenTokenOfRater.id(), citizenIds[0], citizenIds[1], citizenIds[2]));
     }
-}
\ No newline at end of file
+}
@@ -6,6 +6,7 @@ import org.junit.rules.ExpectedException;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 
 public class RatingTest {
 
@@ -19,6 +20,11 @@ public class RatingTest {
         assertThat(rating.value(), is(valueBetween0And10));
     }
 
+    @Test
+    public void theSameRatingInstanceIsReturnedForTheSameValue() {
+        assertThat(Rating.of(7), is(sameInstance(Rating.of(7))));
+    }
+
     @Test
     public void ratingCannotBeLessThan0() {
         exceptionRule.expect(UnsupportedOperationException.class);
@@ -0,0 +1,225 @@
+package intuit.election.service;
+
+import intuit.election.service.AsyncEmailService.BackpressurePolicy;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class AsyncEmailServiceTest {
+    private static final String SOME_MESSAGE = "some message";
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
+    private final RecordingMailSink mailSink = new RecordingMailSink();
+    private AsyncEmailService emailService;
+
+    @After
+    public void shutdown() {
+        mailSink.release();
+        emailService.shutdown();
+    }
+
+    @Test
+    public void messagesAreSentToEveryRecipientOnceFlushed() {
+        emailService = new AsyncEmailService(mailSink, 10, 2, 10, BackpressurePolicy.BLOCK);
+
+        emailService.sendMessages(someRecipients(25), SOME_MESSAGE);
+        emailService.sendMessage("single@email.com", "another message");
+        emailService.flush();
+
+        assertThat(mailSink.sentMessages.size(), is(26));
+        assertThat(emailService.messageSent("recipient7@email.com", SOME_MESSAGE), is(true));
+        assertThat(emailService.messageSent("single@email.com", "another message"), is(true));
+    }
+
+    @Test
+    public void recipientsOfAMessageAreSentInBatches() {
+        emailService = new AsyncEmailService(mailSink, 10, 1, 10, BackpressurePolicy.BLOCK);
+
+        emailService.sendMessages(someRecipients(25), SOME_MESSAGE);
+        emailService.flush();
+
+        assertThat(mailSink.batchSizes, contains(10, 10, 5));
+    }
+
+    @Test
+    public void batchesAreDroppedWhenTheQueueIsFullAndThePolicyIsToDrop() throws InterruptedException {
+        mailSink.holdUntilReleased();
+        emailService = new AsyncEmailService(mailSink, 1, 1, 1, BackpressurePolicy.DROP);
+
+        emailService.sendMessage("first@email.com", SOME_MESSAGE);
+        mailSink.awaitFirstBatch();
+        emailService.sendMessage("queued@email.com", SOME_MESSAGE);
+        emailService.sendMessage("dropped@email.com", SOME_MESSAGE);
+        mailSink.release();
+        emailService.flush();
+
+        assertThat(emailService.getDroppedBatches(), is(1L));
+        assertThat(emailService.messageSent("queued@email.com", SOME_MESSAGE), is(true));
+        assertThat(emailService.messageSent("dropped@email.com", SOME_MESSAGE), is(false));
+    }
+
+    @Test
+    public void callerSendsTheBatchWhenTheQueueIsFullAndThePolicyIsCallerRuns() throws InterruptedException {
+        mailSink.holdUntilReleased();
+        emailService = new AsyncEmailService(mailSink, 1, 1, 1, BackpressurePolicy.CALLER_RUNS);
+
+        emailService.sendMessage("first@email.com", SOME_MESSAGE);
+        mailSink.awaitFirstBatch();
+        emailService.sendMessage("queued@email.com", SOME_MESSAGE);
+        mailSink.sendOnCallerWithoutHolding();
+        emailService.sendMessage("caller@email.com", SOME_MESSAGE);
+
+        assertThat(mailSink.senderOf("caller@email.com"), is(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void everyBatchIsSentWhenTheCallerIsBlockedByAFullQueue() {
+        emailService = new AsyncEmailService(mailSink, 1, 2, 3, BackpressurePolicy.BLOCK);
+
+        for (int message = 0; message < 20; message++) {
+            emailService.sendMessages(someRecipients(10), SOME_MESSAGE + message);
+        }
+        emailService.flush();
+
+        assertThat(mailSink.batchSizes.size(), is(80));
+        assertThat(mailSink.batchSizes, everyItem(lessThanOrEqualTo(3)));
+        assertThat(emailService.getDroppedBatches(), is(0L));
+    }
+
+    @Test
+    public void failingBatchesDoNotPreventTheQueueFromDraining() throws InterruptedException {
+        emailService = new AsyncEmailService(new FailingMailSink(), 10, 1, 1, BackpressurePolicy.BLOCK);
+
+        emailService.sendMessages(someRecipients(3), SOME_MESSAGE);
+
+        assertThat(emailService.awaitDrained(10, TimeUnit.SECONDS), is(true));
+        assertThat(emailService.getFailedBatches(), is(3L));
+    }
+
+    @Test
+    public void messagesSentAfterShutdownAreRejectedWithoutLeavingFlushWaiting() throws InterruptedException {
+        emailService = new AsyncEmailService(mailSink, 1, 1, 1, BackpressurePolicy.BLOCK);
+        emailService.shutdown();
+
+        try {
+            emailService.sendMessage("late@email.com", SOME_MESSAGE);
+        } catch (RejectedExecutionException e) {
+            //The service can no longer send email
+        }
+
+        assertThat(emailService.awaitDrained(10, TimeUnit.SECONDS), is(true));
+        assertThat(emailService.messageSent("late@email.com", SOME_MESSAGE), is(false));
+    }
+
+    @Test
+    public void recipientsPerBatchMustBeAtLeastOne() {
+        emailService = new AsyncEmailService(mailSink, 1, 1, 1, BackpressurePolicy.BLOCK);
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Queue capacity, number of workers and recipients per batch must all be at least 1");
+
+        new AsyncEmailService(mailSink, 1, 1, 0, BackpressurePolicy.BLOCK);
+    }
+
+    private static Set<String> someRecipients(int numberOfRecipients) {
+        Set<String> recipients = new LinkedHashSet<>();
+        for (int recipient = 0; recipient < numberOfRecipients; recipient++) {
+            recipients.add("recipient" + recipient + "@email.com");
+        }
+        return recipients;
+    }
+
+    private static class RecordingMailSink implements EmailService {
+        private final Map<String, String> sentMessages = new ConcurrentHashMap<>();
+        private final Map<String, String> senders = new ConcurrentHashMap<>();
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch firstBatch = new CountDownLatch(1);
+        private volatile CountDownLatch hold = new CountDownLatch(0);
+        private volatile String callerThread;
+
+        @Override
+        public void sendMessage(String emailAddress, String message) {
+            sendMessages(new LinkedHashSet<>(Arrays.asList(emailAddress)), message);
+        }
+
+        @Override
+        public void sendMessages(Set<String> emailAddresses, String message) {
+            firstBatch.countDown();
+            if (!Thread.currentThread().getName().equals(callerThread)) {
+                try {
+                    hold.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batchSizes.add(emailAddresses.size());
+            emailAddresses.forEach(emailAddress -> {
+                sentMessages.put(emailAddress, message);
+                senders.put(emailAddress, Thread.currentThread().getName());
+            });
+        }
+
+        @Override
+        public boolean messageSent(String emailAddress, String message) {
+            return message.equals(sentMessages.get(emailAddress));
+        }
+
+        private void holdUntilReleased() {
+            hold = new CountDownLatch(1);
+        }
+
+        private void sendOnCallerWithoutHolding() {
+            callerThread = Thread.currentThread().getName();
+        }
+
+        private void awaitFirstBatch() throws InterruptedException {
+            firstBatch.await(10, TimeUnit.SECONDS);
+        }
+
+        private void release() {
+            hold.countDown();
+        }
+
+        private String senderOf(String emailAddress) {
+            return senders.get(emailAddress);
+        }
+    }
+
+    private static class FailingMailSink implements EmailService {
+        @Override
+        public void sendMessage(String emailAddress, String message) {
+            throw new IllegalStateException("Mail sink unavailable");
+        }
+
+        @Override
+        public void sendMessages(Set<String> emailAddresses, String message) {
+            throw new IllegalStateException("Mail sink unavailable");
+        }
+
+        @Override
+        public boolean messageSent(String emailAddress, String message) {
+            return false;
+        }
+    }
+}
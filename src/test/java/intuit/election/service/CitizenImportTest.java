@@ -0,0 +1,105 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.RegistrationOutcome;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class CitizenImportTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ElectionService election = new ElectionService(new CitizenRegistry(), new ContenderService(), new RatedIdeaService(), new ConsoleEmailService());
+
+    @Test
+    public void citizensAreRegisteredWithTheTokensHandedOut() {
+        List<RegistrationOutcome> outcomes = importCitizens("name,email\nsome citizen,somecitizen@email.com\n\nanother citizen,anothercitizen@email.com\n");
+
+        assertThat(outcomes.stream().map(RegistrationOutcome::getLine).collect(Collectors.toList()), contains(2L, 4L));
+        for (RegistrationOutcome outcome : outcomes) {
+            CitizenToken citizenToken = outcome.getCitizenToken().get();
+            assertThat(election.getRegisteredCitizen(citizenToken).get().getName(), is(outcome.getCitizenName()));
+        }
+    }
+
+    @Test
+    public void quotedFieldsCanHoldCommasQuotesAndLineBreaks() {
+        List<RegistrationOutcome> outcomes = importCitizens("\"Smith, \"\"Jo\"\"\",jo@email.com\n\"two\nlines\",twolines@email.com\nafter,after@email.com\n");
+
+        assertThat(outcomes.stream().map(RegistrationOutcome::getCitizenName).collect(Collectors.toList()), contains("Smith, \"Jo\"", "two\nlines", "after"));
+        assertThat(outcomes.get(2).getLine(), is(4L));
+    }
+
+    @Test
+    public void rowsWhichCannotBeRegisteredAreReportedWithTheReason() {
+        election.register("registered citizen", "registered@email.com");
+
+        List<RegistrationOutcome> rejects = importCitizens("some citizen,somecitizen@email.com\n"
+                + "registered citizen,REGISTERED@email.com\n"
+                + "no email address\n"
+                + "some citizen, SomeCitizen@email.com\n").stream()
+                .filter(outcome -> !outcome.isAccepted())
+                .collect(Collectors.toList());
+
+        assertThat(rejects.stream().map(RegistrationOutcome::getLine).collect(Collectors.toList()), contains(2L, 3L, 4L));
+        assertThat(rejects.get(0).getRejectionReason(), is(Optional.of(CitizenRegistry.ALREADY_REGISTERED_MSG)));
+        assertThat(rejects.get(1).getRejectionReason(), is(Optional.of(CitizenImport.MISSING_FIELDS_MSG)));
+        assertThat(rejects.get(2).getRejectionReason(), is(Optional.of(CitizenRegistry.ALREADY_REGISTERED_MSG)));
+    }
+
+    @Test
+    public void firstOfTheRepeatedRowsIsRegisteredAcrossManyBatches() {
+        StringBuilder csv = new StringBuilder();
+        for (int citizen = 0; citizen < 20000; citizen++) {
+            csv.append("citizen ").append(citizen % 15000).append(",citizen").append(citizen % 15000).append("@email.com\n");
+        }
+
+        List<RegistrationOutcome> outcomes = importCitizens(csv.toString());
+
+        assertThat(outcomes.size(), is(20000));
+        assertThat(outcomes.stream().filter(RegistrationOutcome::isAccepted).count(), is(15000L));
+        assertThat(outcomes.stream().limit(15000).allMatch(RegistrationOutcome::isAccepted), is(true));
+        assertThat(election.getStatistics().getRegisteredCitizens(), is(15000L));
+    }
+
+    @Test
+    public void fileIsOnlyReadAsFarAsTheOutcomesTaken() throws IOException {
+        Path csvFile = temporaryFolder.newFile("citizens.csv").toPath();
+        StringBuilder csv = new StringBuilder();
+        for (int citizen = 0; citizen < 100000; citizen++) {
+            csv.append("citizen ").append(citizen).append(",citizen").append(citizen).append("@email.com\n");
+        }
+        Files.write(csvFile, csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        try (Stream<RegistrationOutcome> outcomes = election.importCitizens(csvFile)) {
+            assertThat(outcomes.limit(10).count(), is(10L));
+        }
+
+        //Only the first batch was registered
+        assertThat(election.getStatistics().getRegisteredCitizens() < 100000, is(true));
+    }
+
+    private List<RegistrationOutcome> importCitizens(String csv) {
+        InputStream in = new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+        try (Stream<RegistrationOutcome> outcomes = election.importCitizens(in)) {
+            return outcomes.collect(Collectors.toList());
+        }
+    }
+}
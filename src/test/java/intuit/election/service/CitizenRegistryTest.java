@@ -8,8 +8,16 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
@@ -32,6 +40,39 @@ public class CitizenRegistryTest {
         assertThat(citizenToken, is(not(nullValue())));
     }
 
+    @Test
+    public void citizensAreGivenConsecutiveIdsInTheOrderTheyRegister() {
+        CitizenToken firstCitizenToken = citizenRegistry.register("firstName", "first@email");
+        CitizenToken secondCitizenToken = citizenRegistry.register("secondName", "second@email");
+
+        assertThat(secondCitizenToken.id(), is(firstCitizenToken.id() + 1));
+    }
+
+    @Test
+    public void citizenWhoIsTurnedAwayDoesNotUseUpAnId() {
+        CitizenToken firstCitizenToken = citizenRegistry.register("firstName", "first@email");
+        try {
+            citizenRegistry.register("firstName", "FIRST@email");
+        } catch (UnsupportedOperationException alreadyRegistered) {
+            //Expected, the next citizen should still be given the next id
+        }
+
+        CitizenToken secondCitizenToken = citizenRegistry.register("secondName", "second@email");
+
+        assertThat(secondCitizenToken.id(), is(firstCitizenToken.id() + 1));
+    }
+
+    @Test
+    public void registriesOfDifferentElectionsDoNotShareCitizens() {
+        CitizenRegistry anotherCitizenRegistry = new CitizenRegistry();
+        CitizenToken citizenToken = citizenRegistry.register("someName", "someEmail@email");
+
+        CitizenToken anotherCitizenToken = anotherCitizenRegistry.register("someName", "someEmail@email");
+
+        assertThat(anotherCitizenToken.id(), is(0));
+        assertThat(anotherCitizenRegistry.get(citizenToken), is(Optional.empty()));
+    }
+
     @Test
     public void citizensCanRetrieveTheirCitizenDetailsUsingTheirUniqueToken() {
         String expectedCitizenName = "someOtherName";
@@ -49,6 +90,13 @@ public class CitizenRegistryTest {
         assertThat(citizenRegistry.get(new UnrecognisedToken()), is(Optional.empty()));
     }
 
+    @Test
+    public void citizenDetailsAreNotReturnedForATokenWhichOnlyGuessesTheIdOfACitizen() {
+        CitizenToken citizenToken = citizenRegistry.register("someName", "someEmail@email");
+
+        assertThat(citizenRegistry.get(citizenToken::id), is(Optional.empty()));
+    }
+
     @Test
     public void citizenCannotRegisterMoreThanOnce() {
         String citizenName = "yetAnotherCitizen";
@@ -61,5 +109,73 @@ public class CitizenRegistryTest {
         citizenRegistry.register(citizenName, citizenEmail);
     }
 
-    private class UnrecognisedToken implements CitizenToken{};
+    @Test
+    public void citizenCannotRegisterAgainWithADifferentlyCasedEmailAddress() {
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Citizens can only register once");
+
+        citizenRegistry.register("caseSensitiveCitizen", "someone@email.com");
+        citizenRegistry.register("caseSensitiveCitizen", " SomeOne@Email.com ");
+    }
+
+    @Test
+    public void citizensWithDifferentNamesCanShareAnEmailAddress() {
+        CitizenToken firstCitizenToken = citizenRegistry.register("firstCitizen", "shared@email.com");
+        CitizenToken secondCitizenToken = citizenRegistry.register("secondCitizen", "shared@email.com");
+
+        assertThat(citizenRegistry.findByEmail("Shared@Email.com"), containsInAnyOrder(citizenRegistry.get(firstCitizenToken).get(), citizenRegistry.get(secondCitizenToken).get()));
+    }
+
+    @Test
+    public void noCitizensAreFoundForAnUnregisteredEmailAddress() {
+        assertThat(citizenRegistry.findByEmail("unregistered@email.com"), is(empty()));
+    }
+
+    @Test
+    public void onlyOneOfManySimultaneousRegistrationsOfTheSameCitizenSucceeds() throws InterruptedException {
+        int numberOfAttempts = 50;
+        AtomicInteger successfulRegistrations = new AtomicInteger();
+        CountDownLatch startingGun = new CountDownLatch(1);
+        ExecutorService registrants = Executors.newFixedThreadPool(8);
+
+        IntStream.range(0, numberOfAttempts).forEach(attempt -> registrants.execute(() -> {
+            try {
+                startingGun.await();
+                citizenRegistry.register("eagerCitizen", "eager@email.com");
+                successfulRegistrations.incrementAndGet();
+            } catch (UnsupportedOperationException | InterruptedException e) {
+                //Expected for every attempt but one
+            }
+        }));
+        startingGun.countDown();
+        registrants.shutdown();
+        registrants.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertThat(successfulRegistrations.get(), is(1));
+        assertThat(citizenRegistry.findByEmail("eager@email.com").size(), is(1));
+    }
+
+    @Test
+    public void everyCitizenRegisteredFromManyThreadsCanBeFoundByTheirToken() throws InterruptedException {
+        int numberOfCitizens = 20000;
+        CitizenToken[] citizenTokens = new CitizenToken[numberOfCitizens];
+        ExecutorService registrants = Executors.newFixedThreadPool(8);
+
+        IntStream.range(0, numberOfCitizens).forEach(citizen -> registrants.execute(() ->
+                citizenTokens[citizen] = citizenRegistry.register("citizen " + citizen, "citizen" + citizen + "@email.com")));
+        registrants.shutdown();
+        registrants.awaitTermination(1, TimeUnit.MINUTES);
+
+        for (int citizen = 0; citizen < numberOfCitizens; citizen++) {
+            assertThat(citizenRegistry.get(citizenTokens[citizen]).get().getName(), is("citizen " + citizen));
+        }
+        assertThat(citizenRegistry.getNumberOfCitizens(), is(numberOfCitizens));
+    }
+
+    private class UnrecognisedToken implements CitizenToken{
+        @Override
+        public int id() {
+            return -1;
+        }
+    };
 }
\ No newline at end of file
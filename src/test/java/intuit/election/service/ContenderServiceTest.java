@@ -19,6 +19,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItem;
@@ -86,6 +87,20 @@ public class ContenderServiceTest {
         contenderService.getContenders().remove(someCitizenContenderDetails);
     }
 
+    @Test
+    public void contendersAlreadyReadAreNotChangedByLaterNominations() {
+        contenderService.nominate(A_CONTENDER_CITIZEN);
+        Collection<Contender> contendersBefore = contenderService.getContenders();
+        long rosterVersionBefore = contenderService.getRosterVersion();
+
+        contenderService.nominate(ANOTHER_CONTENDER_CITIZEN);
+        contenderService.postManifesto(A_CONTENDER_TOKEN, SOME_MANIFESTO);
+
+        assertThat(contendersBefore, contains(Contender.of(A_CONTENDER_CITIZEN, null)));
+        assertThat(contenderService.getContenders(), contains(CONTENDER_WITH_MANIFESTO, Contender.of(ANOTHER_CONTENDER_CITIZEN, null)));
+        assertThat(contenderService.getRosterVersion(), is(rosterVersionBefore + 2));
+    }
+
     @Test
     public void contenderCanPostAManifestoIfTheyHaveNotDoneSoAlready() {
         Manifesto manifesto = Manifesto.of(Idea.of("some idea"));
@@ -132,6 +147,21 @@ public class ContenderServiceTest {
         assertThat(contenderService.getContender(CONTENDER_WITH_MANIFESTO.getCitizenToken()).get().getManifesto().getIdeas(), hasItem(someNewIdea));
     }
 
+    @Test
+    public void contendersAlreadyReadAreNotChangedByIdeasAddedLater() {
+        Manifesto manifesto = Manifesto.of(Idea.of("some idea"));
+        contenderService.nominate(CONTENDER_WITH_MANIFESTO.getCitizen());
+        contenderService.postManifesto(CONTENDER_WITH_MANIFESTO.getCitizenToken(), manifesto);
+        Contender contenderBefore = contenderService.getContender(CONTENDER_WITH_MANIFESTO.getCitizenToken()).get();
+
+        contenderService.addIdeaToManifesto(CONTENDER_WITH_MANIFESTO.getCitizenToken(), Idea.of("some new idea"));
+        manifesto.add(Idea.of("some idea added to the manifesto posted"));
+
+        assertThat(contenderBefore.getManifesto().getIdeas(), contains(Idea.of("some idea")));
+        assertThat(contenderService.getContender(CONTENDER_WITH_MANIFESTO.getCitizenToken()).get().getManifesto().getIdeas(),
+                contains(Idea.of("some idea"), Idea.of("some new idea")));
+    }
+
     @Test
     public void contenderCannotAddAnIdeaIfTheyHaveNotPostedAManifesto() {
         contenderService.nominate(CONTENDER_WITH_MANIFESTO.getCitizen());
@@ -190,4 +220,26 @@ public class ContenderServiceTest {
 
         assertThat(emailAddressesOfFollowerChain, containsInAnyOrder(FIRST_FOLLOWER_CITIZEN.getEmail(), SECOND_FOLLOWER_CITIZEN.getEmail(), THIRD_FOLLOWER_CITIZEN.getEmail()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void citizenIsOnlyEmailedOnceHoweverManyTimesTheyStartFollowingAContender() {
+        contenderService.nominate(CONTENDER_WITH_MANIFESTO.getCitizen());
+        contenderService.startFollowing(FIRST_FOLLOWER_CITIZEN, CONTENDER_WITH_MANIFESTO);
+        contenderService.startFollowing(FIRST_FOLLOWER_CITIZEN, CONTENDER_WITH_MANIFESTO);
+
+        assertThat(contenderService.getEmailAddressesOfFollowerChain(CONTENDER_WITH_MANIFESTO), containsInAnyOrder(FIRST_FOLLOWER_CITIZEN.getEmail()));
+    }
+
+    @Test
+    public void willGetTheEmailAddressesOfTheFollowersOfAFollowerWhoIsAContender() {
+        contenderService.nominate(CONTENDER_WITH_MANIFESTO.getCitizen());
+        contenderService.nominate(ANOTHER_CONTENDER_CITIZEN);
+        Contender followingContender = contenderService.getContender(ANOTHER_CONTENDER_TOKEN).get();
+        contenderService.startFollowing(ANOTHER_CONTENDER_CITIZEN, CONTENDER_WITH_MANIFESTO);
+        contenderService.startFollowing(SECOND_FOLLOWER_CITIZEN, followingContender);
+
+        Set<String> emailAddressesOfFollowerChain = contenderService.getEmailAddressesOfFollowerChain(CONTENDER_WITH_MANIFESTO);
+
+        assertThat(emailAddressesOfFollowerChain, containsInAnyOrder(ANOTHER_CONTENDER_CITIZEN.getEmail(), SECOND_FOLLOWER_CITIZEN.getEmail()));
+    }
+}
@@ -0,0 +1,118 @@
+package intuit.election.service;
+
+import intuit.election.domain.AuditDiscrepancy;
+import intuit.election.domain.AuditReport;
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Idea;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingStore;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+
+public class ElectionAuditTest {
+    private static final Idea FIRST_IDEA = Idea.of("audited first idea");
+    private static final Idea SECOND_IDEA = Idea.of("audited second idea");
+    private static final Idea OTHER_CONTENDERS_IDEA = Idea.of("audited idea of another contender");
+
+    private RatedIdeaService ratedIdeaService;
+    private ElectionService election;
+
+    @Test
+    public void recountMatchesTheRunningTotalsOfBothRatingStores() {
+        for (Supplier<RatingStore> ratingStores : Arrays.<Supplier<RatingStore>>asList(RatingStore::onHeap, RatingStore::offHeap)) {
+            CitizenToken[] voters = electionWithRatings(ratingStores, 100000);
+
+            election.deleteRatingForIdea(voters[0], FIRST_IDEA);
+            election.rateIdea(voters[1], SECOND_IDEA, Rating.of(10));
+
+            AuditReport report = election.audit(new ForkJoinPool(4));
+            assertThat(report.getDiscrepancies(), is(empty()));
+            assertThat(report.getIdeasAudited(), is(3));
+            assertThat(report.getContendersAudited(), is(2));
+            assertThat(report.getRatingsRecounted(), is(2L * voters.length));
+        }
+    }
+
+    @Test
+    public void finalRatingWhichNoLongerMatchesTheRatingsIsReported() {
+        CitizenToken[] voters = electionWithRatings(RatingStore::onHeap, 10);
+
+        //Rating the idea directly leaves the contender's place on the leaderboard as it was
+        ratedIdeaService.getRatedIdeas().stream()
+                .filter(ratedIdea -> ratedIdea.getIdea().equals(OTHER_CONTENDERS_IDEA))
+                .forEach(ratedIdea -> ratedIdea.addRating(voters[0], Rating.of(0)));
+
+        AuditReport report = election.audit();
+        assertThat(report.isClean(), is(false));
+        assertThat(report.getDiscrepancies(), hasItem(AuditDiscrepancy.of("Final rating of contender: other contender", 5.4, 6.0)));
+    }
+
+    @Test
+    public void auditFindsNothingWrongWhileVotingCarriesOn() throws InterruptedException {
+        CitizenToken[] voters = electionWithRatings(RatingStore::onHeap, 100000);
+        ExecutorService raters = Executors.newFixedThreadPool(4);
+        for (int rater = 0; rater < 4; rater++) {
+            int firstVoter = rater;
+            raters.execute(() -> {
+                for (int voter = firstVoter; voter < voters.length; voter += 4) {
+                    election.rateIdea(voters[voter], (voter % 2 == 0) ? FIRST_IDEA : OTHER_CONTENDERS_IDEA, Rating.of(voter % 11));
+                }
+            });
+        }
+
+        AuditReport report = election.audit();
+        raters.shutdown();
+        raters.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertThat(report.getDiscrepancies(), is(empty()));
+        assertThat(election.audit().getDiscrepancies(), is(empty()));
+    }
+
+    @Test
+    public void auditsStartedTogetherOnOnePoolBothFinishCleanly() throws Exception {
+        CitizenToken[] voters = electionWithRatings(RatingStore::onHeap, 300000);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ExecutorService auditors = Executors.newFixedThreadPool(2);
+
+        Future<AuditReport> firstAudit = auditors.submit(() -> election.audit(pool));
+        Future<AuditReport> secondAudit = auditors.submit(() -> election.audit(pool));
+        auditors.shutdown();
+
+        assertThat(firstAudit.get(1, TimeUnit.MINUTES).getRatingsRecounted(), is(2L * voters.length));
+        assertThat(secondAudit.get(1, TimeUnit.MINUTES).getDiscrepancies(), is(empty()));
+    }
+
+    /**
+     * @return the voters, each of whom has rated the first idea and the other contender's idea
+     */
+    private CitizenToken[] electionWithRatings(Supplier<RatingStore> ratingStores, int numberOfVoters) {
+        ratedIdeaService = new RatedIdeaService(ratingStores);
+        election = new ElectionService(new CitizenRegistry(), new ContenderService(), ratedIdeaService, new ConsoleEmailService());
+        CitizenToken contender = election.register("some contender", "somecontender@email.com");
+        CitizenToken otherContender = election.register("other contender", "othercontender@email.com");
+        election.nominateMyself(contender);
+        election.nominateMyself(otherContender);
+        election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA, SECOND_IDEA));
+        election.postMyManifesto(otherContender, Manifesto.of(OTHER_CONTENDERS_IDEA));
+        CitizenToken[] voters = new CitizenToken[numberOfVoters];
+        for (int voter = 0; voter < voters.length; voter++) {
+            voters[voter] = election.register("voter " + voter, "voter" + voter + "@email.com");
+            election.rateIdea(voters[voter], FIRST_IDEA, Rating.of(voter % 11));
+            election.rateIdea(voters[voter], OTHER_CONTENDERS_IDEA, Rating.of(6));
+        }
+        return voters;
+    }
+}
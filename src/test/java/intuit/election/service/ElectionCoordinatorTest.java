@@ -0,0 +1,135 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.ElectionStatistics;
+import intuit.election.domain.Idea;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ElectionCoordinatorTest {
+    private static final Idea FIRST_CITY_IDEA = Idea.of("first city idea");
+    private static final Idea SECOND_CITY_IDEA = Idea.of("second city idea");
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
+    private final ElectionCoordinator coordinator = new ElectionCoordinator();
+
+    @Test
+    public void citiesHaveIndependentElections() {
+        Election firstCity = coordinator.addCity("first city", new ConsoleEmailService());
+        Election secondCity = coordinator.addCity("second city", new ConsoleEmailService(), RatingStore::offHeap);
+
+        CitizenToken firstCityCitizen = firstCity.register("some citizen", "somecitizen@email.com");
+        CitizenToken secondCityCitizen = secondCity.register("some citizen", "somecitizen@email.com");
+
+        //Each city numbers its own citizens from 0 and only recognises the tokens it issued
+        assertThat(firstCityCitizen.id(), is(0));
+        assertThat(secondCityCitizen.id(), is(0));
+        assertThat(firstCity.getRegisteredCitizen(secondCityCitizen), is(Optional.empty()));
+        assertThat(coordinator.getCities(), contains("first city", "second city"));
+    }
+
+    @Test
+    public void winnersAndStatisticsAreWorkedOutForEveryCity() {
+        Election firstCity = coordinator.addCity("first city", new ConsoleEmailService());
+        Election secondCity = coordinator.addCity("second city", new ConsoleEmailService());
+        coordinator.addCity("third city", new ConsoleEmailService());
+        CitizenToken firstCityContender = contenderWithIdea(firstCity, FIRST_CITY_IDEA);
+        CitizenToken secondCityContender = contenderWithIdea(secondCity, SECOND_CITY_IDEA);
+        firstCity.rateIdea(firstCity.register("first voter", "firstvoter@email.com"), FIRST_CITY_IDEA, Rating.of(8));
+        secondCity.rateIdea(secondCity.register("second voter", "secondvoter@email.com"), SECOND_CITY_IDEA, Rating.of(2));
+        secondCity.rateIdea(secondCity.register("third voter", "thirdvoter@email.com"), SECOND_CITY_IDEA, Rating.of(4));
+
+        assertThat(coordinator.getWinners().get("first city"), is(firstCity.getMyContenderDetails(firstCityContender)));
+        assertThat(coordinator.getWinners().get("second city"), is(secondCity.getMyContenderDetails(secondCityContender)));
+        assertThat(coordinator.getWinners().get("third city"), is(Optional.empty()));
+        assertThat(coordinator.getStatistics().get("second city"), is(ElectionStatistics.of(3, 1, 1, 2)));
+        assertThat(coordinator.getTotalStatistics(), is(ElectionStatistics.of(5, 2, 2, 3)));
+    }
+
+    @Test
+    public void cityCanOnlyHaveOneElection() {
+        coordinator.addCity("some city", new ConsoleEmailService());
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("City already has an election: some city");
+
+        coordinator.addCity("some city", new ConsoleEmailService());
+    }
+
+    @Test
+    public void tokenOfAnotherCityCannotChangeTheRatingOfTheCitizenWithTheSameId() {
+        Election firstCity = coordinator.addCity("first city", new ConsoleEmailService());
+        Election secondCity = coordinator.addCity("second city", new ConsoleEmailService());
+        contenderWithIdea(firstCity, FIRST_CITY_IDEA);
+        CitizenToken firstCityVoter = firstCity.register("first city voter", "firstcityvoter@email.com");
+        contenderWithIdea(secondCity, SECOND_CITY_IDEA);
+        CitizenToken secondCityVoter = secondCity.register("second city voter", "secondcityvoter@email.com");
+        firstCity.rateIdea(firstCityVoter, FIRST_CITY_IDEA, Rating.of(9));
+        assertThat(secondCityVoter.id(), is(firstCityVoter.id()));
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Citizen is not registered");
+        try {
+            firstCity.rateIdea(secondCityVoter, FIRST_CITY_IDEA, Rating.of(0));
+        } finally {
+            assertThat(firstCity.getMyRatingFor(firstCityVoter, FIRST_CITY_IDEA), is(Optional.of(Rating.of(9))));
+        }
+    }
+
+    @Test
+    public void tokenOfAnotherCityCannotDeleteTheRatingOfTheCitizenWithTheSameId() {
+        Election firstCity = coordinator.addCity("first city", new ConsoleEmailService());
+        Election secondCity = coordinator.addCity("second city", new ConsoleEmailService());
+        contenderWithIdea(firstCity, FIRST_CITY_IDEA);
+        CitizenToken firstCityVoter = firstCity.register("first city voter", "firstcityvoter@email.com");
+        contenderWithIdea(secondCity, SECOND_CITY_IDEA);
+        CitizenToken secondCityVoter = secondCity.register("second city voter", "secondcityvoter@email.com");
+        firstCity.rateIdea(firstCityVoter, FIRST_CITY_IDEA, Rating.of(9));
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Citizen is not registered");
+        try {
+            firstCity.deleteRatingForIdea(secondCityVoter, FIRST_CITY_IDEA);
+        } finally {
+            assertThat(firstCity.getMyRatingFor(firstCityVoter, FIRST_CITY_IDEA), is(Optional.of(Rating.of(9))));
+        }
+    }
+
+    @Test
+    public void tokenOfAnotherCityCannotWithdrawTheRatingsOfTheCitizenWithTheSameId() {
+        Election firstCity = coordinator.addCity("first city", new ConsoleEmailService());
+        Election secondCity = coordinator.addCity("second city", new ConsoleEmailService());
+        contenderWithIdea(firstCity, FIRST_CITY_IDEA);
+        CitizenToken firstCityVoter = firstCity.register("first city voter", "firstcityvoter@email.com");
+        contenderWithIdea(secondCity, SECOND_CITY_IDEA);
+        CitizenToken secondCityVoter = secondCity.register("second city voter", "secondcityvoter@email.com");
+        firstCity.rateIdea(firstCityVoter, FIRST_CITY_IDEA, Rating.of(9));
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Citizen is not registered");
+        try {
+            firstCity.withdrawAllMyRatings(secondCityVoter);
+        } finally {
+            assertThat(firstCity.getMyRatings(firstCityVoter).size(), is(1));
+        }
+    }
+
+    private static CitizenToken contenderWithIdea(Election election, Idea idea) {
+        CitizenToken contender = election.register("some contender", "somecontender@email.com");
+        election.nominateMyself(contender);
+        election.postMyManifesto(contender, Manifesto.of(idea));
+        return contender;
+    }
+}
@@ -0,0 +1,175 @@
+package intuit.election.service;
+
+import intuit.election.domain.Idea;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+
+public class ElectionJournalTest {
+    private static final UUID TOKEN_VALUE = UUID.randomUUID();
+    private static final int SMALL_SEGMENT_SIZE = 64;
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void newJournalHasNothingToReplay() throws IOException {
+        try (ElectionJournal journal = ElectionJournal.open(journalFile())) {
+            RecordedEvents events = new RecordedEvents();
+
+            assertThat(journal.replay(events), is(0L));
+            assertThat(events.events, is(empty()));
+        }
+    }
+
+    @Test
+    public void everyKindOfRecordIsReplayedInTheOrderItWasAppended() throws IOException {
+        Path journalFile = journalFile();
+        try (ElectionJournal journal = ElectionJournal.open(journalFile)) {
+            journal.replay(new RecordedEvents());
+            journal.appendCitizenRegistered(0, TOKEN_VALUE, "some name", "someEmail@email.com");
+            journal.appendContenderNominated(0);
+            journal.appendManifestoPosted(0, Arrays.asList(Idea.of("first idea"), Idea.of("second idea")));
+            journal.appendIdeaAdded(0, Idea.of("third idea"));
+            journal.appendIdeaRated(1, 2, 7);
+            journal.appendRatingDeleted(1, 2);
+        }
+
+        assertThat(replay(journalFile, ElectionJournal.DEFAULT_SEGMENT_SIZE), contains(
+                "registered 0 " + TOKEN_VALUE + " some name someEmail@email.com",
+                "nominated 0",
+                "posted 0 [Idea(description=first idea), Idea(description=second idea)]",
+                "added 0 Idea(description=third idea)",
+                "rated 1 2 7",
+                "deleted 1 2"));
+    }
+
+    @Test
+    public void recordsCarryOnInTheNextSegmentWhenASegmentIsFull() throws IOException {
+        Path journalFile = journalFile();
+        try (ElectionJournal journal = ElectionJournal.open(journalFile, SMALL_SEGMENT_SIZE, 1)) {
+            journal.replay(new RecordedEvents());
+            for (int rater = 0; rater < 20; rater++) {
+                journal.appendIdeaRated(rater, 0, rater % 11);
+            }
+            journal.appendIdeaAdded(3, Idea.of("an idea which only just fits in a segment by itself"));
+            journal.appendRatingDeleted(4, 0);
+        }
+
+        List<String> events = replay(journalFile, SMALL_SEGMENT_SIZE);
+        assertThat(events, hasSize(22));
+        assertThat(events.get(19), is("rated 19 0 8"));
+        assertThat(events.get(21), is("deleted 4 0"));
+    }
+
+    @Test
+    public void appendingCarriesOnAfterTheLastRecordReplayed() throws IOException {
+        Path journalFile = journalFile();
+        try (ElectionJournal journal = ElectionJournal.open(journalFile, SMALL_SEGMENT_SIZE, 1)) {
+            journal.replay(new RecordedEvents());
+            journal.appendIdeaRated(1, 0, 5);
+        }
+        try (ElectionJournal journal = ElectionJournal.open(journalFile, SMALL_SEGMENT_SIZE, 1)) {
+            journal.replay(new RecordedEvents());
+            journal.appendIdeaRated(2, 0, 6);
+        }
+
+        assertThat(replay(journalFile, SMALL_SEGMENT_SIZE), contains("rated 1 0 5", "rated 2 0 6"));
+    }
+
+    @Test
+    public void recordWhichWasOnlyPartlyWrittenIsTheEndOfTheJournal() throws IOException {
+        Path journalFile = journalFile();
+        try (ElectionJournal journal = ElectionJournal.open(journalFile, SMALL_SEGMENT_SIZE, 1)) {
+            journal.replay(new RecordedEvents());
+            journal.appendIdeaRated(1, 0, 5);
+        }
+        //The fields of a second rating, without the length which is written once the rest of the record is in place
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.seek(14 + 4);
+            file.write(new byte[]{5, 0, 0, 0, 2, 0, 0, 0, 0, 6});
+        }
+
+        try (ElectionJournal journal = ElectionJournal.open(journalFile, SMALL_SEGMENT_SIZE, 1)) {
+            assertThat(journal.replay(new RecordedEvents()), is(14L));
+            journal.appendRatingDeleted(1, 0);
+        }
+
+        assertThat(replay(journalFile, SMALL_SEGMENT_SIZE), contains("rated 1 0 5", "deleted 1 0"));
+    }
+
+    @Test
+    public void recordCannotBeLargerThanASegment() throws IOException {
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Journal record is larger than a journal segment");
+
+        try (ElectionJournal journal = ElectionJournal.open(journalFile(), SMALL_SEGMENT_SIZE, 1)) {
+            journal.replay(new RecordedEvents());
+            journal.appendIdeaAdded(3, Idea.of("an idea which is far too long to fit in a single segment of the journal"));
+        }
+    }
+
+    private Path journalFile() {
+        return temporaryFolder.getRoot().toPath().resolve("election.journal");
+    }
+
+    private static List<String> replay(Path journalFile, int segmentSize) throws IOException {
+        try (ElectionJournal journal = ElectionJournal.open(journalFile, segmentSize, 1)) {
+            RecordedEvents events = new RecordedEvents();
+            journal.replay(events);
+            return events.events;
+        }
+    }
+
+    private static class RecordedEvents implements ElectionJournal.Replay {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void citizenRegistered(int citizenId, UUID tokenValue, String citizenName, String citizenEmail) {
+            events.add(String.format("registered %d %s %s %s", citizenId, tokenValue, citizenName, citizenEmail));
+        }
+
+        @Override
+        public void contenderNominated(int citizenId) {
+            events.add("nominated " + citizenId);
+        }
+
+        @Override
+        public void manifestoPosted(int citizenId, List<Idea> ideas) {
+            events.add("posted " + citizenId + " " + ideas);
+        }
+
+        @Override
+        public void ideaAdded(int citizenId, Idea idea) {
+            events.add("added " + citizenId + " " + idea);
+        }
+
+        @Override
+        public void ideaRated(int raterId, int ideaOrdinal, int rating) {
+            events.add("rated " + raterId + " " + ideaOrdinal + " " + rating);
+        }
+
+        @Override
+        public void ratingDeleted(int raterId, int ideaOrdinal) {
+            events.add("deleted " + raterId + " " + ideaOrdinal);
+        }
+    }
+}
@@ -4,11 +4,17 @@ import intuit.election.domain.Citizen;
 import intuit.election.domain.CitizenToken;
 import intuit.election.domain.Contender;
 import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
+import intuit.election.domain.LeaderboardEntry;
 import intuit.election.domain.Manifesto;
 import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
 import intuit.election.stub.StubbedCitizenToken;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -16,12 +22,16 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -31,6 +41,9 @@ public class ElectionServiceTest {
     private static final String SOME_CITIZEN_NAME = "someCitizenName";
     private static final String SOME_CITIZEN_EMAIL = "someCitizen@email.com";
 
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
     @Mock
     private CitizenRegistry mockCitizenRegistry;
     @Mock
@@ -105,6 +118,18 @@ public class ElectionServiceTest {
         assertThat(actualContenders, is(expectedContenders));
     }
 
+    @Test
+    public void disqualifiedContendersAreNotIncludedInTheContenders() {
+        Contender disqualifiedContender = Contender.of(Citizen.of(new StubbedCitizenToken(), SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL), Manifesto.of(Idea.of("someIdea")));
+        Contender contender = Contender.of(Citizen.of(new StubbedCitizenToken(), "someOtherCitizenName", "someOtherCitizen@email.com"), Manifesto.of(Idea.of("someOtherIdea")));
+        when(mockContenderService.getContenders()).thenReturn(Arrays.asList(disqualifiedContender, contender));
+        when(mockRatedIdeaService.isDisqualified(disqualifiedContender)).thenReturn(true);
+
+        Collection<Contender> actualContenders = electionService.getContenders();
+
+        assertThat(actualContenders, is(Collections.singletonList(contender)));
+    }
+
     @Test
     public void delegateContenderCheckToContenderService() {
         CitizenToken citizenToken = new StubbedCitizenToken();
@@ -168,12 +193,27 @@ public class ElectionServiceTest {
         Contender contender = aContenderWithAManifesto(contenderToken);
         Idea ideaToRate = contender.getManifesto().getIdeas().iterator().next();
         Rating rating = Rating.of(3);
+        when(mockCitizenRegistry.getOrNull(raterToken)).thenReturn(Citizen.of(raterToken, SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL));
 
         electionService.rateIdea(raterToken, ideaToRate, rating);
 
         verify(mockRatedIdeaService).rateIdea(raterToken, ideaToRate, rating);
     }
 
+    @Test
+    public void ratingFromACitizenWhoIsNotRegisteredIsRejectedBeforeAnythingIsRated() {
+        CitizenToken raterToken = new StubbedCitizenToken();
+        Idea ideaToRate = Idea.of("someIdea");
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Citizen is not registered");
+        try {
+            electionService.rateIdea(raterToken, ideaToRate, Rating.of(3));
+        } finally {
+            verifyZeroInteractions(mockRatedIdeaService, mockContenderService);
+        }
+    }
+
     @Test
     public void whenAnIdeaIsRatedMoreThan5ThenTheRaterBecomesAFollowerOfTheContender() {
         CitizenToken contenderToken = new StubbedCitizenToken();
@@ -182,8 +222,8 @@ public class ElectionServiceTest {
         Contender contender = aContenderWithAManifesto(contenderToken);
         Idea ideaToRate = contender.getManifesto().getIdeas().iterator().next();
         Rating rating = Rating.of(7);
-        when(mockCitizenRegistry.get(raterToken)).thenReturn(Optional.of(rater));
-        when(mockRatedIdeaService.getIdeaPublisher(ideaToRate)).thenReturn(Optional.of(contender));
+        when(mockCitizenRegistry.getOrNull(raterToken)).thenReturn(rater);
+        when(mockRatedIdeaService.rateIdea(raterToken, ideaToRate, rating)).thenReturn(contender);
 
         electionService.rateIdea(raterToken, ideaToRate, rating);
 
@@ -191,11 +231,50 @@ public class ElectionServiceTest {
         verify(mockContenderService).startFollowing(rater, contender);
     }
 
+    @Test
+    public void batchOfRatingsIsDelegatedToRatedIdeaServiceAndHighRatersFollowEachContenderOnce() {
+        Citizen firstRater = Citizen.of(new StubbedCitizenToken(), SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL);
+        Citizen secondRater = Citizen.of(new StubbedCitizenToken(), "someOtherCitizenName", "someOtherCitizen@email.com");
+        Idea firstIdea = Idea.of("firstIdea");
+        Idea secondIdea = Idea.of("secondIdea");
+        Contender contender = Contender.of(Citizen.of(new StubbedCitizenToken(), "someContenderName", "someContender@email.com"), Manifesto.of(firstIdea, secondIdea));
+        List<RatingCommand> ratingCommands = Arrays.asList(
+                RatingCommand.of(firstRater.getCitizenToken(), firstIdea, Rating.of(7)),
+                RatingCommand.of(secondRater.getCitizenToken(), secondIdea, Rating.of(8)),
+                RatingCommand.of(secondRater.getCitizenToken(), firstIdea, Rating.of(2)));
+        List<RatingOutcome> expectedOutcomes = Arrays.asList(
+                RatingOutcome.accepted(ratingCommands.get(0)),
+                RatingOutcome.accepted(ratingCommands.get(1)),
+                RatingOutcome.accepted(ratingCommands.get(2)));
+        when(mockRatedIdeaService.rateIdeas(eq(ratingCommands), any())).thenReturn(expectedOutcomes);
+        when(mockRatedIdeaService.getIdeaPublisher(firstIdea)).thenReturn(Optional.of(contender));
+        when(mockRatedIdeaService.getIdeaPublisher(secondIdea)).thenReturn(Optional.of(contender));
+        when(mockCitizenRegistry.get(firstRater.getCitizenToken())).thenReturn(Optional.of(firstRater));
+        when(mockCitizenRegistry.get(secondRater.getCitizenToken())).thenReturn(Optional.of(secondRater));
+
+        List<RatingOutcome> actualOutcomes = electionService.rateIdeas(ratingCommands);
+
+        assertThat(actualOutcomes, is(expectedOutcomes));
+        verify(mockContenderService).startFollowing(new HashSet<>(Arrays.asList(firstRater, secondRater)), contender);
+    }
+
+    @Test
+    public void rejectedRatingsInABatchDoNotStartAFollow() {
+        RatingCommand rejectedCommand = RatingCommand.of(new StubbedCitizenToken(), Idea.of("someIdea"), Rating.of(9));
+        when(mockRatedIdeaService.rateIdeas(eq(Collections.singletonList(rejectedCommand)), any()))
+                .thenReturn(Collections.singletonList(RatingOutcome.rejected(rejectedCommand, "This idea has not been published")));
+
+        electionService.rateIdeas(Collections.singletonList(rejectedCommand));
+
+        verifyZeroInteractions(mockContenderService);
+    }
+
     @Test
     public void ideaRatingRetrievalIsDelegatedToRatedIdeaService() {
         CitizenToken citizenToken = new StubbedCitizenToken();
         Idea someIdea = Idea.of("someIdea");
         Rating expectedRating = Rating.of(4);
+        when(mockCitizenRegistry.getOrNull(citizenToken)).thenReturn(Citizen.of(citizenToken, SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL));
         when(mockRatedIdeaService.getCitizensRatingFor(citizenToken, someIdea)).thenReturn(Optional.of(expectedRating));
 
         Rating actualRating = electionService.getMyRatingFor(citizenToken, someIdea).get();
@@ -207,6 +286,7 @@ public class ElectionServiceTest {
     public void ideaRatingDeletionIsDelegatedToRatedIdeaService() {
         CitizenToken citizenToken = new StubbedCitizenToken();
         Idea someIdea = Idea.of("someIdea");
+        when(mockCitizenRegistry.getOrNull(citizenToken)).thenReturn(Citizen.of(citizenToken, SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL));
 
         electionService.deleteRatingForIdea(citizenToken, someIdea);
 
@@ -239,6 +319,50 @@ public class ElectionServiceTest {
         assertThat(actualWinner, is(expectedWinner));
     }
 
+    @Test
+    public void retrievalOfTopContendersIsDelegatedToRatedIdeaService() {
+        Contender expectedLeader = Contender.of(Citizen.of(new StubbedCitizenToken(), SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL), Manifesto.of(Idea.of("someIdea")));
+        List<Contender> expectedTopContenders = Collections.singletonList(expectedLeader);
+        when(mockRatedIdeaService.getTopContenders(1)).thenReturn(expectedTopContenders);
+
+        List<Contender> actualTopContenders = electionService.getTopContenders(1);
+
+        assertThat(actualTopContenders, is(expectedTopContenders));
+    }
+
+    @Test
+    public void retrievalOfContenderRankIsDelegatedToRatedIdeaService() {
+        Contender contender = Contender.of(Citizen.of(new StubbedCitizenToken(), SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL), Manifesto.of(Idea.of("someIdea")));
+        when(mockRatedIdeaService.getRank(contender)).thenReturn(Optional.of(2));
+
+        Optional<Integer> actualRank = electionService.getRank(contender);
+
+        assertThat(actualRank, is(Optional.of(2)));
+    }
+
+    @Test
+    public void retrievalOfLeaderboardEntriesIsDelegatedToRatedIdeaService() {
+        Contender contender = Contender.of(Citizen.of(new StubbedCitizenToken(), SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL), Manifesto.of(Idea.of("someIdea")));
+        List<LeaderboardEntry> expectedEntries = Collections.singletonList(LeaderboardEntry.of(1, contender, 7.5));
+        when(mockRatedIdeaService.getLeaderboard(1, 10)).thenReturn(expectedEntries);
+
+        List<LeaderboardEntry> actualEntries = electionService.getLeaderboard(1, 10);
+
+        assertThat(actualEntries, is(expectedEntries));
+    }
+
+    @Test
+    public void withdrawalOfAllOfACitizensRatingsIsDelegatedToRatedIdeaService() {
+        CitizenToken citizenToken = new StubbedCitizenToken();
+        Map<IdeaHandle, Rating> expectedRatings = Collections.emptyMap();
+        when(mockCitizenRegistry.getOrNull(citizenToken)).thenReturn(Citizen.of(citizenToken, SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL));
+        when(mockRatedIdeaService.withdrawCitizensRatings(citizenToken)).thenReturn(expectedRatings);
+
+        Map<IdeaHandle, Rating> withdrawnRatings = electionService.withdrawAllMyRatings(citizenToken);
+
+        assertThat(withdrawnRatings, is(expectedRatings));
+    }
+
     Contender aContenderWithAManifesto(CitizenToken contenderToken) {
         Citizen citizen = Citizen.of(contenderToken, SOME_CITIZEN_NAME, SOME_CITIZEN_EMAIL);
         Manifesto manifesto = Manifesto.of(Idea.of("someIdea"));
@@ -0,0 +1,148 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.Idea;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingStore;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class ElectionSnapshotTest {
+    private static final Idea FIRST_IDEA = Idea.of("snapshot first idea");
+    private static final Idea SECOND_IDEA = Idea.of("snapshot second idea");
+    private static final Idea THIRD_IDEA = Idea.of("snapshot third idea");
+
+    private final CitizenRegistry citizenRegistry = CitizenRegistry.getInstance();
+
+    @After
+    public void teardown() {
+        citizenRegistry.reset();
+    }
+
+    @Test
+    public void electionIsRestoredExactlyAsItWasWhenTheSnapshotWasWritten() throws IOException {
+        ElectionService election = newElectionService();
+        CitizenToken firstContender = election.register("first contender", "firstcontender@email.com");
+        CitizenToken secondContender = election.register("second contender", "secondcontender@email.com");
+        CitizenToken contenderWithoutManifesto = election.register("third contender", "thirdcontender@email.com");
+        CitizenToken[] voters = new CitizenToken[5];
+        for (int voter = 0; voter < voters.length; voter++) {
+            voters[voter] = election.register("voter " + voter, "voter" + voter + "@email.com");
+        }
+        election.nominateMyself(firstContender);
+        election.nominateMyself(secondContender);
+        election.nominateMyself(contenderWithoutManifesto);
+        election.postMyManifesto(firstContender, Manifesto.of(FIRST_IDEA, SECOND_IDEA));
+        election.postMyManifesto(secondContender, Manifesto.of(THIRD_IDEA));
+        election.rateIdea(voters[0], THIRD_IDEA, Rating.of(6));
+        election.rateIdea(voters[0], FIRST_IDEA, Rating.of(9));
+        election.rateIdea(voters[1], FIRST_IDEA, Rating.of(3));
+        election.rateIdea(secondContender, SECOND_IDEA, Rating.of(6));
+        for (CitizenToken voter : voters) {
+            election.rateIdea(voter, SECOND_IDEA, Rating.of(2));
+        }
+        election.rateIdea(voters[4], SECOND_IDEA, Rating.of(9));
+
+        ElectionService restoredElection = restore(snapshotOf(election));
+
+        Contender restoredFirstContender = restoredElection.getMyContenderDetails(firstContender).get();
+        Contender restoredSecondContender = restoredElection.getMyContenderDetails(secondContender).get();
+        assertThat(restoredFirstContender.getManifesto().getIdeas(), contains(FIRST_IDEA, SECOND_IDEA));
+        assertThat(restoredElection.getMyContenderDetails(contenderWithoutManifesto).get().getManifesto(), is((Manifesto) null));
+        assertThat(restoredElection.getRegisteredCitizen(voters[3]).get().getName(), is("voter 3"));
+        assertThat(restoredElection.getMyRatingFor(voters[1], FIRST_IDEA), is(Optional.of(Rating.of(3))));
+        assertThat(restoredElection.getMyRatingFor(voters[4], SECOND_IDEA), is(Optional.of(Rating.of(9))));
+        assertThat(restoredElection.iFollow(voters[0], restoredSecondContender), is(true));
+        assertThat(restoredElection.iFollow(secondContender, restoredFirstContender), is(true));
+        assertThat(restoredElection.getLeaderboard(1, 3), contains(LeaderboardEntry.of(1, restoredSecondContender, 6)));
+        assertThat(restoredElection.getContenders().contains(restoredFirstContender), is(false));
+    }
+
+    @Test
+    public void ideaRatedByItsDescriptionIsStillTheFirstPublishedWhenRestored() throws IOException {
+        ElectionService election = newElectionService();
+        CitizenToken laterContender = election.register("later contender", "latercontender@email.com");
+        CitizenToken earlierContender = election.register("earlier contender", "earliercontender@email.com");
+        CitizenToken voter = election.register("some voter", "somevoter@email.com");
+        election.nominateMyself(laterContender);
+        election.nominateMyself(earlierContender);
+        election.postMyManifesto(earlierContender, Manifesto.of(FIRST_IDEA));
+        election.postMyManifesto(laterContender, Manifesto.of(FIRST_IDEA));
+        election.rateIdea(voter, FIRST_IDEA, Rating.of(9));
+
+        ElectionService restoredElection = restore(snapshotOf(election));
+        restoredElection.deleteRatingForIdea(voter, FIRST_IDEA);
+        Optional<Rating> ratingAfterDeletion = restoredElection.getMyRatingFor(voter, restoredElection.getIdeaHandle(earlierContender, FIRST_IDEA).get());
+        restoredElection.rateIdea(voter, FIRST_IDEA, Rating.of(10));
+
+        assertThat(ratingAfterDeletion, is(Optional.empty()));
+        assertThat(restoredElection.getMyRatingFor(voter, restoredElection.getIdeaHandle(earlierContender, FIRST_IDEA).get()), is(Optional.of(Rating.of(10))));
+        assertThat(restoredElection.getMyRatingFor(voter, restoredElection.getIdeaHandle(laterContender, FIRST_IDEA).get()), is(Optional.empty()));
+    }
+
+    @Test
+    public void contenderWhoWasDisqualifiedIsStillDisqualifiedWhenRestored() throws IOException {
+        ElectionService election = newElectionService();
+        CitizenToken contender = election.register("some contender", "somecontender@email.com");
+        election.nominateMyself(contender);
+        election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+        for (int voter = 0; voter < 4; voter++) {
+            election.rateIdea(election.register("voter " + voter, "voter" + voter + "@email.com"), FIRST_IDEA, Rating.of(1));
+        }
+
+        ElectionService restoredElection = restore(snapshotOf(election));
+
+        assertThat(restoredElection.getContenders().isEmpty(), is(true));
+        assertThat(restoredElection.getContenderWithHighestFinalRating(), is(Optional.empty()));
+    }
+
+    @Test
+    public void ratingsCanBeRestoredIntoAnElectionWhichKeepsThemOffHeap() throws IOException {
+        ElectionService election = newElectionService();
+        CitizenToken contender = election.register("some contender", "somecontender@email.com");
+        CitizenToken voter = election.register("some voter", "somevoter@email.com");
+        election.nominateMyself(contender);
+        election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA, SECOND_IDEA));
+        election.rateIdea(voter, FIRST_IDEA, Rating.of(7));
+        election.rateIdea(voter, SECOND_IDEA, Rating.of(2));
+
+        ElectionService restoredElection = new ElectionService(citizenRegistry, new ContenderService(), new RatedIdeaService(RatingStore::offHeap), new ConsoleEmailService());
+        restoredElection.restoreSnapshot(new DataInputStream(new ByteArrayInputStream(snapshotOf(election))));
+
+        assertThat(restoredElection.getMyRatingFor(voter, SECOND_IDEA), is(Optional.of(Rating.of(2))));
+        assertThat(restoredElection.getLeaderboard(1, 1), contains(LeaderboardEntry.of(1, restoredElection.getMyContenderDetails(contender).get(), 9)));
+    }
+
+    private byte[] snapshotOf(ElectionService election) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            election.writeSnapshot(out);
+        }
+        citizenRegistry.reset();
+        return bytes.toByteArray();
+    }
+
+    private ElectionService restore(byte[] snapshot) throws IOException {
+        ElectionService election = newElectionService();
+        election.restoreSnapshot(new DataInputStream(new ByteArrayInputStream(snapshot)));
+        return election;
+    }
+
+    private ElectionService newElectionService() {
+        return new ElectionService(citizenRegistry, new ContenderService(), new RatedIdeaService(), new ConsoleEmailService());
+    }
+}
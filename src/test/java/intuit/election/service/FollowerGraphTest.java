@@ -0,0 +1,86 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.stub.StubbedCitizenToken;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class FollowerGraphTest {
+    private static final Citizen CONTENDER = aCitizen("contender");
+    private static final Citizen CONTENDER_WHO_FOLLOWS = aCitizen("contender who follows");
+    private static final Citizen FOLLOWER = aCitizen("follower");
+    private static final Citizen FOLLOWER_OF_FOLLOWER = aCitizen("follower of follower");
+    private static final Citizen DISTANT_FOLLOWER = aCitizen("distant follower");
+
+    private FollowerGraph followerGraph;
+
+    @Before
+    public void setup() {
+        followerGraph = new FollowerGraph();
+    }
+
+    @Test
+    public void citizenFollowsAContenderOnceHoweverOftenTheyStartFollowing() {
+        followerGraph.follow(FOLLOWER, CONTENDER.getCitizenToken());
+        followerGraph.follow(FOLLOWER, CONTENDER.getCitizenToken());
+
+        assertThat(followerGraph.isFollowerOf(FOLLOWER.getCitizenToken(), CONTENDER.getCitizenToken()), is(true));
+        assertThat(followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken()), containsInAnyOrder(FOLLOWER.getEmail()));
+    }
+
+    @Test
+    public void contenderWithNoFollowersHasNoRecipients() {
+        assertThat(followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken()), is(empty()));
+        assertThat(followerGraph.isFollowerOf(FOLLOWER.getCitizenToken(), CONTENDER.getCitizenToken()), is(false));
+    }
+
+    @Test
+    public void recipientsIncludeTheFollowersOfFollowersButGoNoFurther() {
+        followerGraph.follow(CONTENDER_WHO_FOLLOWS, CONTENDER.getCitizenToken());
+        followerGraph.follow(FOLLOWER_OF_FOLLOWER, CONTENDER_WHO_FOLLOWS.getCitizenToken());
+        followerGraph.follow(DISTANT_FOLLOWER, FOLLOWER_OF_FOLLOWER.getCitizenToken());
+
+        assertThat(followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken()),
+                containsInAnyOrder(CONTENDER_WHO_FOLLOWS.getEmail(), FOLLOWER_OF_FOLLOWER.getEmail()));
+    }
+
+    @Test
+    public void contenderIsNotARecipientOfTheirOwnNewsWhenTheyFollowTheirFollower() {
+        followerGraph.follow(CONTENDER_WHO_FOLLOWS, CONTENDER.getCitizenToken());
+        followerGraph.follow(CONTENDER, CONTENDER_WHO_FOLLOWS.getCitizenToken());
+
+        assertThat(followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken()), containsInAnyOrder(CONTENDER_WHO_FOLLOWS.getEmail()));
+    }
+
+    @Test
+    public void cachedRecipientsIncludeNewFollowersOfTheContender() {
+        followerGraph.follow(FOLLOWER, CONTENDER.getCitizenToken());
+        followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken());
+
+        followerGraph.follow(Arrays.asList(CONTENDER_WHO_FOLLOWS), CONTENDER.getCitizenToken());
+
+        assertThat(followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken()), containsInAnyOrder(FOLLOWER.getEmail(), CONTENDER_WHO_FOLLOWS.getEmail()));
+    }
+
+    @Test
+    public void cachedRecipientsIncludeNewFollowersOfTheContendersFollowers() {
+        followerGraph.follow(CONTENDER_WHO_FOLLOWS, CONTENDER.getCitizenToken());
+        followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken());
+
+        followerGraph.follow(FOLLOWER_OF_FOLLOWER, CONTENDER_WHO_FOLLOWS.getCitizenToken());
+
+        assertThat(followerGraph.getRecipientEmailAddresses(CONTENDER.getCitizenToken()),
+                containsInAnyOrder(CONTENDER_WHO_FOLLOWS.getEmail(), FOLLOWER_OF_FOLLOWER.getEmail()));
+    }
+
+    private static Citizen aCitizen(String name) {
+        return Citizen.of(new StubbedCitizenToken(), name, name.replace(' ', '.') + "@email.com");
+    }
+}
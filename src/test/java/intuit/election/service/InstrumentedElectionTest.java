@@ -0,0 +1,180 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.ElectionMetrics;
+import intuit.election.domain.Idea;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.OperationMetrics;
+import intuit.election.domain.Rating;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+public class InstrumentedElectionTest {
+    private static final Idea FIRST_IDEA = Idea.of("instrumented first idea");
+    private static final Idea SECOND_IDEA = Idea.of("instrumented second idea");
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final InstrumentedElection election = InstrumentedElection.of(newElectionService(), 1);
+
+    @Test
+    public void callsAndFailuresAreCountedPerMethod() {
+        CitizenToken contender = contenderWithIdea();
+        CitizenToken voter = election.register("some voter", "somevoter@email.com");
+        election.rateIdea(voter, FIRST_IDEA, Rating.of(3));
+        try {
+            election.rateIdea(voter, Idea.of("unpublished idea"), Rating.of(3));
+        } catch (UnsupportedOperationException e) {
+            //Counted as a failure
+        }
+
+        ElectionMetrics metrics = election.getMetrics();
+        OperationMetrics rateIdea = metrics.getOperation("rateIdea").get();
+        assertThat(rateIdea.getCalls(), is(2L));
+        assertThat(rateIdea.getFailures(), is(1L));
+        assertThat(rateIdea.getSampledLatencyNanos().getMax(), greaterThan(0L));
+        assertThat(metrics.getOperation("register").get().getCalls(), is(2L));
+        assertThat(metrics.getOperation("nominateMyself").get().getCalls(), is(1L));
+        assertThat(metrics.getOperation("getRank").get().getCalls(), is(0L));
+        assertThat(election.getMyContenderDetails(contender).isPresent(), is(true));
+    }
+
+    @Test
+    public void followersEmailedPerIdeaAreRecorded() {
+        CitizenToken contender = contenderWithIdea();
+        for (int follower = 0; follower < 3; follower++) {
+            election.rateIdea(election.register("follower " + follower, "follower" + follower + "@email.com"), FIRST_IDEA, Rating.of(9));
+        }
+
+        election.addIdeaToMyManifesto(contender, SECOND_IDEA);
+
+        assertThat(election.getMetrics().getFollowerChainSizes().getTotalCount(), is(1L));
+        assertThat(election.getMetrics().getFollowerChainSizes().getMax(), is(3L));
+    }
+
+    @Test
+    public void followersEmailedAreRecordedByEveryElectionInstrumentingTheSameService() {
+        ElectionService electionService = newElectionService();
+        InstrumentedElection firstElection = InstrumentedElection.of(electionService, 1);
+        InstrumentedElection secondElection = InstrumentedElection.of(electionService, 1);
+        CitizenToken contender = firstElection.register("some contender", "somecontender@email.com");
+        firstElection.nominateMyself(contender);
+        firstElection.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+        firstElection.rateIdea(firstElection.register("some follower", "somefollower@email.com"), FIRST_IDEA, Rating.of(9));
+
+        firstElection.addIdeaToMyManifesto(contender, SECOND_IDEA);
+        secondElection.addIdeaToMyManifesto(contender, Idea.of("instrumented third idea"));
+
+        assertThat(firstElection.getMetrics().getFollowerChainSizes().getTotalCount(), is(1L));
+        assertThat(secondElection.getMetrics().getFollowerChainSizes().getTotalCount(), is(1L));
+        assertThat(secondElection.getMetrics().getFollowerChainSizes().getMax(), is(1L));
+    }
+
+    @Test
+    public void anyElectionCanBeInstrumented() throws IOException {
+        try (JournaledElection journaledElection = JournaledElection.open(temporaryFolder.getRoot().toPath().resolve("election.journal"), newElectionService())) {
+            InstrumentedElection instrumentedElection = InstrumentedElection.of(journaledElection, 1);
+
+            CitizenToken contender = instrumentedElection.register("some contender", "somecontender@email.com");
+            instrumentedElection.nominateMyself(contender);
+            instrumentedElection.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            instrumentedElection.rateIdea(instrumentedElection.register("some follower", "somefollower@email.com"), FIRST_IDEA, Rating.of(9));
+            instrumentedElection.addIdeaToMyManifesto(contender, SECOND_IDEA);
+
+            assertThat(instrumentedElection.getMetrics().getOperation("register").get().getCalls(), is(2L));
+            assertThat(instrumentedElection.getMetrics().getFollowerChainSizes().getMax(), is(1L));
+        }
+    }
+
+    @Test
+    public void callsFromManyThreadsAreAllCounted() throws InterruptedException {
+        contenderWithIdea();
+        CitizenToken voter = election.register("some voter", "somevoter@email.com");
+        ExecutorService raters = Executors.newFixedThreadPool(4);
+        for (int rater = 0; rater < 4; rater++) {
+            raters.execute(() -> {
+                for (int rating = 0; rating < 10000; rating++) {
+                    election.rateIdea(voter, FIRST_IDEA, Rating.of(rating % 11));
+                }
+            });
+        }
+        raters.shutdown();
+        raters.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertThat(election.getMetrics().getOperation("rateIdea").get().getCalls(), is(40000L));
+    }
+
+    @Test
+    public void everyCallIsCountedWhenOnlySomeAreTimed() {
+        InstrumentedElection sampledElection = InstrumentedElection.of(newElectionService(), 8);
+        for (int registration = 0; registration < 1000; registration++) {
+            sampledElection.register("citizen " + registration, "citizen" + registration + "@email.com");
+        }
+
+        OperationMetrics register = sampledElection.getMetrics().getOperation("register").get();
+        assertThat(register.getCalls(), is(1000L));
+        assertThat(register.getSampledLatencyNanos().getTotalCount(), allOf(greaterThan(0L), lessThan(1000L)));
+    }
+
+    @Test
+    public void sampleRateMustBeAPowerOfTwo() {
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Sample rate must be a power of 2: 10");
+
+        InstrumentedElection.of(newElectionService(), 10);
+    }
+
+    @Test
+    public void metricsAreDumpedAsTextEveryInterval() throws InterruptedException {
+        contenderWithIdea();
+        BlockingQueue<String> dumps = new ArrayBlockingQueue<>(100);
+
+        Future<?> dumping = election.dumpMetricsEvery(10, TimeUnit.MILLISECONDS, dumps::offer);
+        String dump = dumps.poll(10, TimeUnit.SECONDS);
+        dumping.cancel(false);
+
+        assertThat(dump, containsString("postMyManifesto"));
+        assertThat(dump, not(containsString("getLeaderboard")));
+        assertThat(election.dumpMetrics(), containsString("Followers emailed per idea added: count=0"));
+    }
+
+    @Test
+    public void metricsCannotBeDumpedContinuously() {
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Metrics must be dumped at least 1 seconds apart");
+
+        election.dumpMetricsEvery(0, TimeUnit.SECONDS, System.out::println);
+    }
+
+    private static ElectionService newElectionService() {
+        return new ElectionService(new CitizenRegistry(), new ContenderService(), new RatedIdeaService(), new ConsoleEmailService());
+    }
+
+    private CitizenToken contenderWithIdea() {
+        CitizenToken contender = election.register("some contender", "somecontender@email.com");
+        election.nominateMyself(contender);
+        election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+        return contender;
+    }
+}
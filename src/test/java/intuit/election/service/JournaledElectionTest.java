@@ -0,0 +1,335 @@
+package intuit.election.service;
+
+import intuit.election.domain.CitizenToken;
+import intuit.election.domain.Contender;
+import intuit.election.domain.Idea;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.Manifesto;
+import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RegistrationOutcome;
+import intuit.election.stub.StubbedCitizenToken;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+public class JournaledElectionTest {
+    private static final Idea FIRST_IDEA = Idea.of("journaled first idea");
+    private static final Idea SECOND_IDEA = Idea.of("journaled second idea");
+    private static final Idea ADDED_IDEA = Idea.of("journaled added idea");
+    private static final String ADDED_IDEA_MESSAGE = "some contender added new idea to manifesto: journaled added idea";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final CitizenRegistry citizenRegistry = CitizenRegistry.getInstance();
+
+    @After
+    public void teardown() {
+        citizenRegistry.reset();
+    }
+
+    @Test
+    public void electionCarriesOnWhereItLeftOffWhenTheJournalIsReopened() throws IOException {
+        Path journalFile = journalFile();
+        CitizenToken contender;
+        CitizenToken voter;
+        CitizenToken anotherVoter;
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            anotherVoter = election.register("another voter", "anothervoter@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA, SECOND_IDEA));
+            election.rateIdea(voter, FIRST_IDEA, Rating.of(8));
+            election.rateIdeas(Arrays.asList(RatingCommand.of(anotherVoter, FIRST_IDEA, Rating.of(4)), RatingCommand.of(anotherVoter, SECOND_IDEA, Rating.of(2))));
+            election.addIdeaToMyManifesto(contender, ADDED_IDEA);
+            election.deleteRatingForIdea(anotherVoter, SECOND_IDEA);
+        }
+        citizenRegistry.reset();
+
+        ConsoleEmailService emailService = new ConsoleEmailService();
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(emailService))) {
+            Contender restoredContender = election.getMyContenderDetails(contender).get();
+            assertThat(restoredContender.getManifesto().getIdeas(), contains(FIRST_IDEA, SECOND_IDEA, ADDED_IDEA));
+            assertThat(election.getRegisteredCitizen(voter).get().getEmail(), is("somevoter@email.com"));
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.of(Rating.of(8))));
+            assertThat(election.getMyRatingFor(anotherVoter, FIRST_IDEA), is(Optional.of(Rating.of(4))));
+            assertThat(election.getMyRatingFor(anotherVoter, SECOND_IDEA), is(Optional.empty()));
+            assertThat(election.iFollow(voter, restoredContender), is(true));
+            assertThat(election.getContenderWithHighestFinalRating(), is(Optional.of(restoredContender)));
+            //Followers were emailed when the idea was first added, not again when it is replayed
+            assertThat(emailService.messageSent("somevoter@email.com", ADDED_IDEA_MESSAGE), is(false));
+        }
+    }
+
+    @Test
+    public void callsMadeAfterTheJournalIsReplayedAreJournaledToo() throws IOException {
+        Path journalFile = journalFile();
+        CitizenToken contender;
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+        }
+        citizenRegistry.reset();
+        CitizenToken voter;
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            voter = election.register("some voter", "somevoter@email.com");
+            election.rateIdea(voter, FIRST_IDEA, Rating.of(3));
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.of(Rating.of(3))));
+        }
+    }
+
+    @Test
+    public void ratingFromAnUnregisteredCitizenIsRejectedWithoutFailingTheRestOfTheBatch() throws IOException {
+        Path journalFile = journalFile();
+        CitizenToken unregisteredVoter = new StubbedCitizenToken();
+        CitizenToken voter;
+        RatingCommand unregisteredRating = RatingCommand.of(unregisteredVoter, FIRST_IDEA, Rating.of(9));
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            CitizenToken contender = election.register("some contender", "somecontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            RatingCommand validRating = RatingCommand.of(voter, FIRST_IDEA, Rating.of(7));
+
+            List<RatingOutcome> outcomes = election.rateIdeas(Arrays.asList(unregisteredRating, validRating));
+
+            assertThat(outcomes, contains(RatingOutcome.rejected(unregisteredRating, "Citizen is not registered"), RatingOutcome.accepted(validRating)));
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.of(Rating.of(7))));
+            assertThat(election.getLeaderboard(1, 1).get(0).getFinalRating(), is(7.0));
+        }
+    }
+
+    @Test
+    public void ratingsByATokenOfAnotherRegistryAreNeitherAppliedNorJournaled() throws IOException {
+        Path journalFile = journalFile();
+        CitizenToken voter;
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            CitizenToken contender = election.register("some contender", "somecontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            election.rateIdea(voter, FIRST_IDEA, Rating.of(9));
+            CitizenToken anotherVoter = new CitizenRegistry().restore("another voter", "anothervoter@email.com", UUID.randomUUID(), voter.id());
+
+            assertRejected(() -> election.rateIdea(anotherVoter, FIRST_IDEA, Rating.of(0)));
+            assertRejected(() -> election.deleteRatingForIdea(anotherVoter, FIRST_IDEA));
+            assertRejected(() -> election.withdrawAllMyRatings(anotherVoter));
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.of(Rating.of(9))));
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.of(Rating.of(9))));
+        }
+    }
+
+    @Test
+    public void manifestoWhichWasTurnedDownIsStillTurnedDownWhenReplayed() throws IOException {
+        Path journalFile = journalFile();
+        CitizenToken contender;
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            try {
+                election.postMyManifesto(contender, Manifesto.of(SECOND_IDEA));
+            } catch (UnsupportedOperationException e) {
+                //Contenders can only post a manifesto once
+            }
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getMyContenderDetails(contender).get().getManifesto().getIdeas(), contains(FIRST_IDEA));
+        }
+    }
+
+    @Test
+    public void electionIsRestoredFromASnapshotAndTheJournalWrittenAfterIt() throws IOException {
+        Path journalFile = journalFile();
+        Path snapshotFile = snapshotFile();
+        CitizenToken contender;
+        CitizenToken voter;
+        CitizenToken lateVoter;
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            election.rateIdea(voter, FIRST_IDEA, Rating.of(8));
+            election.snapshot(snapshotFile);
+
+            lateVoter = election.register("late voter", "latevoter@email.com");
+            election.addIdeaToMyManifesto(contender, SECOND_IDEA);
+            election.rateIdea(lateVoter, SECOND_IDEA, Rating.of(4));
+        }
+        citizenRegistry.reset();
+        //Startup only reads the journal after the snapshot, so the history before it is never looked at
+        try (RandomAccessFile file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            file.write(new byte[]{0, 0, 0, 1, 99});
+        }
+
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            Contender restoredContender = election.getMyContenderDetails(contender).get();
+            assertThat(restoredContender.getManifesto().getIdeas(), contains(FIRST_IDEA, SECOND_IDEA));
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.of(Rating.of(8))));
+            assertThat(election.getMyRatingFor(lateVoter, SECOND_IDEA), is(Optional.of(Rating.of(4))));
+            assertThat(election.iFollow(voter, restoredContender), is(true));
+            assertThat(election.getLeaderboard(1, 1), contains(LeaderboardEntry.of(1, restoredContender, 12)));
+        }
+    }
+
+    @Test
+    public void callsWhichAreAlreadyInTheSnapshotAreIgnoredWhenTheJournalIsReplayed() throws IOException {
+        Path journalFile = journalFile();
+        Path snapshotFile = snapshotFile();
+        CitizenToken contender;
+        CitizenToken voter;
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            election.addIdeaToMyManifesto(contender, SECOND_IDEA);
+            election.rateIdea(voter, FIRST_IDEA, Rating.of(8));
+            election.rateIdea(voter, SECOND_IDEA, Rating.of(3));
+            election.deleteRatingForIdea(voter, SECOND_IDEA);
+            election.snapshot(snapshotFile);
+        }
+        citizenRegistry.reset();
+        //As if every call had been made while the snapshot was being written
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile.toFile(), "rw")) {
+            file.seek(2 * Integer.BYTES);
+            file.writeLong(0);
+        }
+
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            Contender restoredContender = election.getMyContenderDetails(contender).get();
+            assertThat(restoredContender.getManifesto().getIdeas(), contains(FIRST_IDEA, SECOND_IDEA));
+            assertThat(election.getMyRatingFor(voter, SECOND_IDEA), is(Optional.empty()));
+            assertThat(election.getLeaderboard(1, 1), contains(LeaderboardEntry.of(1, restoredContender, 8)));
+        }
+    }
+
+    @Test
+    public void ideasOfDifferentContendersWithTheSameDescriptionKeepTheirOwnRatings() throws IOException {
+        Path journalFile = journalFile();
+        Path snapshotFile = snapshotFile();
+        CitizenToken contender;
+        CitizenToken anotherContender;
+        CitizenToken voter;
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            anotherContender = election.register("another contender", "anothercontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            election.nominateMyself(contender);
+            election.nominateMyself(anotherContender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA));
+            election.postMyManifesto(anotherContender, Manifesto.of(FIRST_IDEA));
+            election.rateIdea(voter, election.getIdeaHandle(contender, FIRST_IDEA).get(), Rating.of(2));
+            election.snapshot(snapshotFile);
+            election.rateIdea(voter, election.getIdeaHandle(anotherContender, FIRST_IDEA).get(), Rating.of(9));
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getMyRatingFor(voter, election.getIdeaHandle(contender, FIRST_IDEA).get()), is(Optional.of(Rating.of(2))));
+            assertThat(election.getMyRatingFor(voter, election.getIdeaHandle(anotherContender, FIRST_IDEA).get()), is(Optional.of(Rating.of(9))));
+            assertThat(election.getContenderWithHighestFinalRating(), is(election.getMyContenderDetails(anotherContender)));
+        }
+    }
+
+    @Test
+    public void withdrawnRatingsStayWithdrawnWhenTheElectionIsRestored() throws IOException {
+        Path journalFile = journalFile();
+        Path snapshotFile = snapshotFile();
+        CitizenToken contender;
+        CitizenToken voter;
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            contender = election.register("some contender", "somecontender@email.com");
+            voter = election.register("some voter", "somevoter@email.com");
+            CitizenToken anotherVoter = election.register("another voter", "anothervoter@email.com");
+            election.nominateMyself(contender);
+            election.postMyManifesto(contender, Manifesto.of(FIRST_IDEA, SECOND_IDEA));
+            election.rateIdea(voter, FIRST_IDEA, Rating.of(3));
+            election.rateIdea(anotherVoter, FIRST_IDEA, Rating.of(5));
+            election.snapshot(snapshotFile);
+            election.rateIdea(voter, SECOND_IDEA, Rating.of(9));
+            election.withdrawAllMyRatings(voter);
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, snapshotFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getMyRatings(voter).isEmpty(), is(true));
+            assertThat(election.getMyRatingFor(voter, FIRST_IDEA), is(Optional.empty()));
+            assertThat(election.getLeaderboard(1, 1).get(0).getFinalRating(), is(5.0));
+        }
+    }
+
+    private Path snapshotFile() {
+        return temporaryFolder.getRoot().toPath().resolve("election.snapshot");
+    }
+
+    @Test
+    public void importedCitizensAreRestoredWithTheirTokens() throws IOException {
+        Path journalFile = journalFile();
+        List<CitizenToken> importedTokens;
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()));
+             Stream<RegistrationOutcome> outcomes = election.importCitizens(new ByteArrayInputStream(
+                     "name,email\nfirst citizen,first@email.com\nsecond citizen,second@email.com\n".getBytes(StandardCharsets.UTF_8)))) {
+            importedTokens = outcomes.map(outcome -> outcome.getCitizenToken().get()).collect(Collectors.toList());
+        }
+        citizenRegistry.reset();
+
+        try (JournaledElection election = JournaledElection.open(journalFile, newElectionService(new ConsoleEmailService()))) {
+            assertThat(election.getRegisteredCitizen(importedTokens.get(0)).get().getName(), is("first citizen"));
+            assertThat(election.getRegisteredCitizen(importedTokens.get(1)).get().getEmail(), is("second@email.com"));
+        }
+    }
+
+    private static void assertRejected(Runnable call) {
+        try {
+            call.run();
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        throw new AssertionError("Call was not turned down");
+    }
+
+    private Path journalFile() {
+        return temporaryFolder.getRoot().toPath().resolve("election.journal");
+    }
+
+    private ElectionService newElectionService(EmailService emailService) {
+        return new ElectionService(citizenRegistry, new ContenderService(), new RatedIdeaService(), emailService);
+    }
+}
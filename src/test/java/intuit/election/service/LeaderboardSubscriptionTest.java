@@ -0,0 +1,162 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.domain.Contender;
+import intuit.election.domain.Idea;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.LeaderboardUpdate;
+import intuit.election.domain.Manifesto;
+import intuit.election.stub.StubbedCitizenToken;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class LeaderboardSubscriptionTest {
+    private static final Contender FIRST_CONTENDER = aContender("first contender");
+    private static final Contender SECOND_CONTENDER = aContender("second contender");
+    private static final long INTERVAL_MILLIS = 300;
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
+    private Leaderboard leaderboard;
+    private final Map<Contender, StubbedContenderFigures> figures = new ConcurrentHashMap<>();
+    private LeaderboardNotifier notifier;
+    private final BlockingQueue<LeaderboardUpdate> updates = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setup() {
+        leaderboard = new Leaderboard();
+        notifier = new LeaderboardNotifier(leaderboard::getVersion, () -> leaderboard.getEntries(1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void noUpdatesAreSentOnceTheNotifierIsClosed() throws InterruptedException {
+        notifier.subscribe(updates::add, 10, TimeUnit.MILLISECONDS);
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        assertThat(updates.poll(10, TimeUnit.SECONDS).getLeader(), is(Optional.of(FIRST_CONTENDER)));
+
+        notifier.close();
+        updates.clear();
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+
+        assertThat(updates.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void cannotSubscribeOnceTheNotifierIsClosed() {
+        notifier.close();
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Election has been closed");
+
+        notifier.subscribe(updates::add, 10, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void burstOfRatingsWithinAnIntervalIsSentAsOneUpdate() throws InterruptedException {
+        LeaderboardSubscription subscription = notifier.subscribe(updates::add, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        for (int rating = 0; rating < 10000; rating++) {
+            Contender contender = (rating % 2 == 0) ? FIRST_CONTENDER : SECOND_CONTENDER;
+            leaderboard.update(contender, figuresOf(contender).adjustFinalRating((rating % 2 == 0) ? 1 : 0.5));
+        }
+
+        LeaderboardUpdate update = updates.poll(10, TimeUnit.SECONDS);
+        assertThat(update.getLeaderboard(), contains(LeaderboardEntry.of(1, FIRST_CONTENDER, 5000), LeaderboardEntry.of(2, SECOND_CONTENDER, 2500)));
+        assertThat(update.isLeaderChanged(), is(true));
+        assertThat(updates.poll(3 * INTERVAL_MILLIS, TimeUnit.MILLISECONDS), is(nullValue()));
+        subscription.cancel();
+    }
+
+    @Test
+    public void slowSubscriberDoesNotHoldUpRatingsAndIsSentTheLatestLeaderboardWhenItCatchesUp() throws InterruptedException {
+        CountDownLatch subscriberReleased = new CountDownLatch(1);
+        LeaderboardSubscription subscription = notifier.subscribe(update -> {
+            updates.add(update);
+            try {
+                subscriberReleased.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        assertThat(updates.poll(10, TimeUnit.SECONDS).getLeader(), is(Optional.of(FIRST_CONTENDER)));
+
+        for (int rating = 0; rating < 100; rating++) {
+            leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(1));
+            Thread.sleep(1);
+        }
+        assertThat(updates.isEmpty(), is(true));
+        subscriberReleased.countDown();
+
+        LeaderboardUpdate update = updates.poll(10, TimeUnit.SECONDS);
+        assertThat(update.getChangedEntries(), contains(LeaderboardEntry.of(1, SECOND_CONTENDER, 100), LeaderboardEntry.of(2, FIRST_CONTENDER, 4)));
+        assertThat(update.getLeader(), is(Optional.of(SECOND_CONTENDER)));
+        subscription.cancel();
+    }
+
+    @Test
+    public void cancelledSubscriptionIsSentNoMoreUpdates() throws InterruptedException {
+        LeaderboardSubscription subscription = notifier.subscribe(updates::add, 10, TimeUnit.MILLISECONDS);
+        subscription.cancel();
+
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+
+        assertThat(subscription.isCancelled(), is(true));
+        assertThat(updates.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test
+    public void updateOnlyListsEntriesWhichChangedAndContendersWhoLeftTheLeaderboard() {
+        Contender thirdContender = aContender("third contender");
+        LeaderboardUpdate update = LeaderboardSubscription.changesSince(
+                Arrays.asList(LeaderboardEntry.of(1, FIRST_CONTENDER, 9), LeaderboardEntry.of(2, SECOND_CONTENDER, 7), LeaderboardEntry.of(3, thirdContender, 5)),
+                Arrays.asList(LeaderboardEntry.of(1, FIRST_CONTENDER, 9), LeaderboardEntry.of(2, thirdContender, 8)));
+
+        assertThat(update.getChangedEntries(), contains(LeaderboardEntry.of(2, thirdContender, 8)));
+        assertThat(update.getRemovedContenders(), contains(SECOND_CONTENDER));
+        assertThat(update.isLeaderChanged(), is(false));
+    }
+
+    @Test
+    public void emptyLeaderboardHasNoChanges() {
+        LeaderboardUpdate update = LeaderboardSubscription.changesSince(Collections.emptyList(), Collections.emptyList());
+
+        assertThat(update.getChangedEntries(), is(empty()));
+        assertThat(update.getLeader(), is(Optional.empty()));
+    }
+
+    @Test
+    public void updatesCannotBeSentMoreOftenThanTheSmallestUnit() {
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Leaderboard updates must be at least 1 milliseconds apart");
+
+        notifier.subscribe(updates::add, 0, TimeUnit.MILLISECONDS);
+    }
+
+    private StubbedContenderFigures figuresOf(Contender contender) {
+        return figures.computeIfAbsent(contender, StubbedContenderFigures::new);
+    }
+
+    private static Contender aContender(String name) {
+        return Contender.of(Citizen.of(new StubbedCitizenToken(), name, name + "@email.com"), Manifesto.of(Idea.of(name + " idea")));
+    }
+}
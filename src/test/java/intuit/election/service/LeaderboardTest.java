@@ -0,0 +1,223 @@
+package intuit.election.service;
+
+import intuit.election.domain.Citizen;
+import intuit.election.domain.Contender;
+import intuit.election.domain.Idea;
+import intuit.election.domain.LeaderboardEntry;
+import intuit.election.domain.Manifesto;
+import intuit.election.stub.StubbedCitizenToken;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class LeaderboardTest {
+    private static final Contender FIRST_CONTENDER = aContender("first contender");
+    private static final Contender SECOND_CONTENDER = aContender("second contender");
+    private static final Contender THIRD_CONTENDER = aContender("third contender");
+
+    @Rule
+    public ExpectedException exceptionRule = ExpectedException.none();
+
+    private Leaderboard leaderboard;
+    private final Map<Contender, StubbedContenderFigures> figures = new ConcurrentHashMap<>();
+
+    @Before
+    public void setup() {
+        leaderboard = new Leaderboard();
+    }
+
+    @Test
+    public void emptyLeaderboardHasNoLeader() {
+        assertThat(leaderboard.getLeader(), is(Optional.empty()));
+        assertThat(leaderboard.getTop(3), is(empty()));
+    }
+
+    @Test
+    public void contenderWithTheHighestFinalRatingLeads() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+        leaderboard.update(THIRD_CONTENDER, figuresOf(THIRD_CONTENDER).adjustFinalRating(5));
+
+        assertThat(leaderboard.getLeader(), is(Optional.of(SECOND_CONTENDER)));
+        assertThat(leaderboard.getTop(2), contains(SECOND_CONTENDER, THIRD_CONTENDER));
+    }
+
+    @Test
+    public void contendersAreReorderedWhenTheirFinalRatingChanges() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(5));
+
+        assertThat(leaderboard.getTop(2), contains(FIRST_CONTENDER, SECOND_CONTENDER));
+        assertThat(leaderboard.getFinalRating(FIRST_CONTENDER.getCitizenToken()), is(Optional.of(9.0)));
+    }
+
+    @Test
+    public void leaderboardReflectsChangesMadeAfterItWasLastRead() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+        assertThat(leaderboard.getLeader(), is(Optional.of(SECOND_CONTENDER)));
+
+        figuresOf(FIRST_CONTENDER).adjustFinalRating(4);
+        leaderboard.updateIfRanked(FIRST_CONTENDER);
+
+        assertThat(leaderboard.getLeader(), is(Optional.of(FIRST_CONTENDER)));
+        assertThat(leaderboard.getRank(SECOND_CONTENDER.getCitizenToken()), is(Optional.of(2)));
+    }
+
+    @Test
+    public void contendersWithTheSameFinalRatingAreOrderedByWhoWasRatedFirst() {
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(5));
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(5));
+        leaderboard.update(THIRD_CONTENDER, figuresOf(THIRD_CONTENDER).adjustFinalRating(5));
+
+        assertThat(leaderboard.getTop(3), contains(SECOND_CONTENDER, FIRST_CONTENDER, THIRD_CONTENDER));
+    }
+
+    @Test
+    public void contenderKeepsTheirPlaceWhenTheirFinalRatingDoesNotChange() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(0));
+
+        assertThat(leaderboard.getTop(3), contains(FIRST_CONTENDER));
+        assertThat(leaderboard.getRank(FIRST_CONTENDER.getCitizenToken()), is(Optional.of(1)));
+    }
+
+    @Test
+    public void ranksStartAtOneForTheLeader() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+        leaderboard.update(THIRD_CONTENDER, figuresOf(THIRD_CONTENDER).adjustFinalRating(5));
+
+        assertThat(leaderboard.getRank(SECOND_CONTENDER.getCitizenToken()), is(Optional.of(1)));
+        assertThat(leaderboard.getRank(THIRD_CONTENDER.getCitizenToken()), is(Optional.of(2)));
+        assertThat(leaderboard.getRank(FIRST_CONTENDER.getCitizenToken()), is(Optional.of(3)));
+    }
+
+    @Test
+    public void contenderWhoHasNotBeenRatedHasNoRank() {
+        assertThat(leaderboard.getRank(FIRST_CONTENDER.getCitizenToken()), is(Optional.empty()));
+    }
+
+    @Test
+    public void contenderIsOnlyUpdatedIfAlreadyOnTheLeaderboard() {
+        figuresOf(FIRST_CONTENDER).adjustFinalRating(-2);
+        leaderboard.updateIfRanked(FIRST_CONTENDER);
+
+        assertThat(leaderboard.getFinalRating(FIRST_CONTENDER.getCitizenToken()), is(Optional.empty()));
+    }
+
+    @Test
+    public void disqualifiedContendersAreLeftOffTheLeaderboardUntilTheyAreNoLongerDisqualified() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).disqualify(true));
+        assertThat(leaderboard.getTop(2), contains(FIRST_CONTENDER));
+        assertThat(leaderboard.getRank(SECOND_CONTENDER.getCitizenToken()), is(Optional.empty()));
+
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).disqualify(false));
+        assertThat(leaderboard.getTop(2), contains(SECOND_CONTENDER, FIRST_CONTENDER));
+    }
+
+    @Test
+    public void disqualificationVersionOnlyGoesUpWhenAContenderBecomesOrStopsBeingDisqualified() {
+        long versionBefore = leaderboard.getDisqualificationVersion();
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        assertThat(leaderboard.getDisqualificationVersion(), is(versionBefore));
+
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).disqualify(true));
+
+        assertThat(leaderboard.getDisqualificationVersion(), is(versionBefore + 1));
+    }
+
+    @Test
+    public void readersRacingEachOtherStillSeeTheRatingsMadeBeforeTheyRead() throws Exception {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(0.5));
+        assertThat(leaderboard.getLeader(), is(Optional.of(FIRST_CONTENDER)));
+        ExecutorService readers = Executors.newFixedThreadPool(8);
+        List<Future<Optional<Contender>>> leadersRead = new ArrayList<>();
+
+        for (int reader = 0; reader < 1000; reader++) {
+            leadersRead.add(readers.submit(() -> {
+                leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(1));
+                return leaderboard.getLeader();
+            }));
+        }
+        readers.shutdown();
+        readers.awaitTermination(1, TimeUnit.MINUTES);
+
+        for (Future<Optional<Contender>> leaderRead : leadersRead) {
+            assertThat(leaderRead.get(), is(Optional.of(SECOND_CONTENDER)));
+        }
+    }
+
+    @Test
+    public void contendersStayInOrderAsTheyMoveUpAndDownTheLeaderboard() {
+        List<Contender> contenders = IntStream.range(0, 200).mapToObj(contender -> aContender("contender " + contender)).collect(Collectors.toList());
+        Random random = new Random(42);
+
+        for (int update = 0; update < 10000; update++) {
+            Contender contender = contenders.get(random.nextInt(contenders.size()));
+            leaderboard.update(contender, figuresOf(contender).adjustFinalRating(random.nextInt(21) - 10).disqualify(random.nextInt(50) == 0));
+        }
+
+        List<LeaderboardEntry> entries = leaderboard.getEntries(1, contenders.size());
+        for (int entry = 0; entry < entries.size(); entry++) {
+            Contender contender = entries.get(entry).getContender();
+            assertThat(leaderboard.getRank(contender.getCitizenToken()), is(Optional.of(entry + 1)));
+            assertThat(figuresOf(contender).isDisqualified(), is(false));
+            if (entry > 0) {
+                assertThat(entries.get(entry - 1).getFinalRating() >= entries.get(entry).getFinalRating(), is(true));
+            }
+        }
+        assertThat(entries.size(), is((int) figures.values().stream().filter(contenderFigures -> !contenderFigures.isDisqualified()).count()));
+        assertThat(leaderboard.getLeader(), is(Optional.of(entries.get(0).getContender())));
+    }
+
+    @Test
+    public void leaderboardCanBeReadAPageAtATime() {
+        leaderboard.update(FIRST_CONTENDER, figuresOf(FIRST_CONTENDER).adjustFinalRating(4));
+        leaderboard.update(SECOND_CONTENDER, figuresOf(SECOND_CONTENDER).adjustFinalRating(7));
+        leaderboard.update(THIRD_CONTENDER, figuresOf(THIRD_CONTENDER).adjustFinalRating(5));
+
+        assertThat(leaderboard.getEntries(2, 5), contains(LeaderboardEntry.of(2, THIRD_CONTENDER, 5), LeaderboardEntry.of(3, FIRST_CONTENDER, 4)));
+    }
+
+    @Test
+    public void leaderboardPagesCannotStartBeforeTheFirstRank() {
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("Leaderboard ranks start at 1");
+
+        leaderboard.getEntries(0, 5);
+    }
+
+    private StubbedContenderFigures figuresOf(Contender contender) {
+        return figures.computeIfAbsent(contender, StubbedContenderFigures::new);
+    }
+
+    private static Contender aContender(String name) {
+        return Contender.of(Citizen.of(new StubbedCitizenToken(), name, name + "@email.com"), Manifesto.of(Idea.of(name + " idea")));
+    }
+}
@@ -4,23 +4,33 @@ import intuit.election.domain.Citizen;
 import intuit.election.domain.CitizenToken;
 import intuit.election.domain.Contender;
 import intuit.election.domain.Idea;
+import intuit.election.domain.IdeaHandle;
 import intuit.election.domain.Manifesto;
 import intuit.election.domain.Rating;
+import intuit.election.domain.RatingCommand;
+import intuit.election.domain.RatingOutcome;
+import intuit.election.domain.RatingStore;
+import intuit.election.stub.SomeUniqueIdeas;
 import intuit.election.stub.StubbedCitizenToken;
-import lombok.Value;
-import lombok.experimental.Accessors;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 
 public class RatedIdeaServiceTest {
@@ -32,6 +42,7 @@ public class RatedIdeaServiceTest {
     private static final Manifesto SOME_MANIFESTO = Manifesto.of(Idea.of("some idea"));
     private static final Contender CONTENDER_WITH_MANIFESTO = Contender.of(A_CONTENDER_CITIZEN, SOME_MANIFESTO);
     private static final CitizenToken IDEA_RATER_TOKEN = new StubbedCitizenToken();
+    private static final Predicate<CitizenToken> EVERY_CITIZEN_IS_REGISTERED = citizenToken -> true;
 
     @Rule
     public ExpectedException exceptionRule = ExpectedException.none();
@@ -58,6 +69,47 @@ public class RatedIdeaServiceTest {
         assertThat(ratedIdeaService.getIdeaPublisher(someIdea), is(Optional.empty()));
     }
 
+    @Test
+    public void ideasOfDifferentContendersWithTheSameDescriptionAreRatedSeparatelyThroughTheirHandles() {
+        Idea sharedIdea = Idea.of("shared idea");
+        Contender anotherContender = Contender.of(ANOTHER_CONTENDER_CITIZEN, Manifesto.of(sharedIdea));
+        IdeaHandle firstIdea = ratedIdeaService.publishIdeaToBeRated(sharedIdea, CONTENDER_WITH_MANIFESTO);
+        IdeaHandle secondIdea = ratedIdeaService.publishIdeaToBeRated(sharedIdea, anotherContender);
+
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, firstIdea, Rating.of(3));
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, secondIdea, Rating.of(9));
+
+        assertThat(ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, firstIdea), is(Optional.of(Rating.of(3))));
+        assertThat(ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, secondIdea), is(Optional.of(Rating.of(9))));
+        assertThat(ratedIdeaService.getFinalRatingFor(anotherContender), is(Optional.of(9.0)));
+        assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.of(anotherContender)));
+        //The description alone finds the idea published first
+        assertThat(ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, sharedIdea), is(Optional.of(Rating.of(3))));
+        assertThat(ratedIdeaService.getIdeaHandle(ANOTHER_CONTENDER_TOKEN, sharedIdea), is(Optional.of(secondIdea)));
+    }
+
+    @Test
+    public void ideaPublishedAgainKeepsItsHandleAndRatings() {
+        Idea someIdea = Idea.of("some idea");
+        IdeaHandle ideaHandle = ratedIdeaService.publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO);
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, someIdea, Rating.of(SOME_VALID_RATING_VALUE));
+
+        assertThat(ratedIdeaService.publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO), is(ideaHandle));
+        assertThat(ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, ideaHandle), is(Optional.of(Rating.of(SOME_VALID_RATING_VALUE))));
+    }
+
+    @Test
+    public void cannotRateAnIdeaThroughAHandleGivenOutByAnotherElection() {
+        Idea someIdea = Idea.of("some idea");
+        ratedIdeaService.publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO);
+        IdeaHandle handleFromAnotherElection = new RatedIdeaService().publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO);
+
+        exceptionRule.expect(UnsupportedOperationException.class);
+        exceptionRule.expectMessage("This idea has not been published");
+
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, handleFromAnotherElection, Rating.of(SOME_VALID_RATING_VALUE));
+    }
+
     @Test
     public void citizenCanRateAnIdeaFromACandidateManifestoAndConfirmTheirRating() {
         Idea someIdea = Idea.of("some idea");
@@ -135,7 +187,7 @@ public class RatedIdeaServiceTest {
         publishManifesto(contender);
 
         List<Integer> ratings = Arrays.asList(1, 2, 3);
-        rateIdeas(IDEA_RATER_TOKEN, contenderIdeas.ideaList, ratings);
+        rateIdeas(IDEA_RATER_TOKEN, contenderIdeas.ideaList(), ratings);
 
         double expectedFinalRating = ratings.stream().mapToDouble(Double::valueOf).sum();
 
@@ -144,6 +196,228 @@ public class RatedIdeaServiceTest {
         assertThat(actualFinalRating, is(expectedFinalRating));
     }
 
+    @Test
+    public void finalRatingOfAContenderIsUpdatedWhenACitizenChangesTheirRating() {
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(3);
+        Contender contender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas()));
+        publishManifesto(contender);
+        rateIdeas(IDEA_RATER_TOKEN, contenderIdeas.ideaList(), Arrays.asList(1, 2, 3));
+
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(0), Rating.of(9));
+
+        assertThat(ratedIdeaService.getFinalRatingFor(contender), is(Optional.of(14.0)));
+    }
+
+    @Test
+    public void finalRatingOfAContenderIsUpdatedWhenACitizenDeletesTheirRating() {
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(3);
+        Contender contender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas()));
+        publishManifesto(contender);
+        CitizenToken anotherIdeaRaterToken = new StubbedCitizenToken();
+        rateIdeas(IDEA_RATER_TOKEN, contenderIdeas.ideaList(), Arrays.asList(1, 2, 3));
+        rateIdeas(anotherIdeaRaterToken, contenderIdeas.ideaList(), Arrays.asList(5, 2, 3));
+
+        ratedIdeaService.deleteCitizensRatingFor(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(0));
+
+        assertThat(ratedIdeaService.getFinalRatingFor(contender), is(Optional.of(10.0)));
+    }
+
+    @Test
+    public void citizenCanListTheRatingsTheyHaveMade() {
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(3);
+        publishManifesto(Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas())));
+        rateIdeas(IDEA_RATER_TOKEN, contenderIdeas.ideaList(), Arrays.asList(1, 2, 3));
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(1), Rating.of(8));
+        ratedIdeaService.deleteCitizensRatingFor(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(2));
+
+        Map<IdeaHandle, Rating> expectedRatings = new HashMap<>();
+        expectedRatings.put(ratedIdeaService.getIdeaHandle(contenderIdeas.ideaList().get(0)).get(), Rating.of(1));
+        expectedRatings.put(ratedIdeaService.getIdeaHandle(contenderIdeas.ideaList().get(1)).get(), Rating.of(8));
+        assertThat(ratedIdeaService.getCitizensRatings(IDEA_RATER_TOKEN), is(expectedRatings));
+    }
+
+    @Test
+    public void withdrawingACitizensRatingsUpdatesEachContenderTheyRated() {
+        SomeUniqueIdeas firstContenderIdeas = new SomeUniqueIdeas(2);
+        SomeUniqueIdeas secondContenderIdeas = new SomeUniqueIdeas(1);
+        Contender firstContender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(firstContenderIdeas.ideas()));
+        Contender secondContender = Contender.of(ANOTHER_CONTENDER_CITIZEN, Manifesto.of(secondContenderIdeas.ideas()));
+        publishManifesto(firstContender);
+        publishManifesto(secondContender);
+        CitizenToken anotherIdeaRaterToken = new StubbedCitizenToken();
+        rateIdeas(IDEA_RATER_TOKEN, firstContenderIdeas.ideaList(), Arrays.asList(10, 10));
+        rateIdeas(IDEA_RATER_TOKEN, secondContenderIdeas.ideaList(), Arrays.asList(10));
+        rateIdeas(anotherIdeaRaterToken, firstContenderIdeas.ideaList(), Arrays.asList(2, 4));
+        rateIdeas(anotherIdeaRaterToken, secondContenderIdeas.ideaList(), Arrays.asList(8));
+
+        Map<IdeaHandle, Rating> withdrawnRatings = ratedIdeaService.withdrawCitizensRatings(IDEA_RATER_TOKEN);
+
+        assertThat(withdrawnRatings.size(), is(3));
+        assertThat(ratedIdeaService.getCitizensRatings(IDEA_RATER_TOKEN).isEmpty(), is(true));
+        assertThat(ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, firstContenderIdeas.ideaList().get(0)), is(Optional.empty()));
+        assertThat(ratedIdeaService.getFinalRatingFor(firstContender), is(Optional.of(6.0)));
+        assertThat(ratedIdeaService.getFinalRatingFor(secondContender), is(Optional.of(8.0)));
+        assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.of(secondContender)));
+    }
+
+    @Test
+    public void citizensRatingsAreListedCorrectlyWhenTheyRateAndDeleteFromManyThreads() throws InterruptedException {
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(3);
+        publishManifesto(Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas())));
+        ExecutorService raters = Executors.newFixedThreadPool(8);
+
+        IntStream.range(0, 10000).forEach(rating -> raters.execute(() -> {
+            Idea idea = contenderIdeas.ideaList().get(rating % 3);
+            ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, idea, Rating.of(rating % 11));
+            if (rating % 3 == 0) {
+                ratedIdeaService.deleteCitizensRatingFor(IDEA_RATER_TOKEN, idea);
+            }
+        }));
+        raters.shutdown();
+        raters.awaitTermination(1, TimeUnit.MINUTES);
+
+        Map<IdeaHandle, Rating> expectedRatings = new HashMap<>();
+        contenderIdeas.ideaList().forEach(idea -> ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, idea)
+                .ifPresent(rating -> expectedRatings.put(ratedIdeaService.getIdeaHandle(idea).get(), rating)));
+        assertThat(expectedRatings.size(), is(2));
+        assertThat(ratedIdeaService.getCitizensRatings(IDEA_RATER_TOKEN), is(expectedRatings));
+        assertThat(ratedIdeaService.withdrawCitizensRatings(IDEA_RATER_TOKEN), is(expectedRatings));
+    }
+
+    @Test
+    public void citizenWhoHasNotRatedAnythingHasNothingToWithdraw() {
+        publishManifesto(CONTENDER_WITH_MANIFESTO);
+
+        assertThat(ratedIdeaService.withdrawCitizensRatings(IDEA_RATER_TOKEN).isEmpty(), is(true));
+        assertThat(ratedIdeaService.getCitizensRatings(IDEA_RATER_TOKEN).isEmpty(), is(true));
+    }
+
+    @Test
+    public void finalRatingIsCorrectWhenCitizensRateIdeasConcurrently() throws InterruptedException {
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(3);
+        Contender contender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas()));
+        publishManifesto(contender);
+        int numberOfRaters = 1000;
+        ExecutorService raters = Executors.newFixedThreadPool(8);
+
+        IntStream.range(0, numberOfRaters).forEach(rater -> raters.execute(() -> {
+            CitizenToken raterToken = new StubbedCitizenToken();
+            contenderIdeas.ideaList().forEach(idea -> ratedIdeaService.rateIdea(raterToken, idea, Rating.of(rater % 2 == 0 ? 4 : 8)));
+        }));
+        raters.shutdown();
+        raters.awaitTermination(1, TimeUnit.MINUTES);
+
+        assertThat(ratedIdeaService.getFinalRatingFor(contender), is(Optional.of(18.0)));
+    }
+
+    @Test
+    public void finalRatingDoesNotDriftHoweverOftenACitizenChangesTheirRating() {
+        Idea idea = Idea.of("idea rated again and again");
+        Contender contender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(idea));
+        publishManifesto(contender);
+        ratedIdeaService.rateIdea(new StubbedCitizenToken(), idea, Rating.of(1));
+        ratedIdeaService.rateIdea(new StubbedCitizenToken(), idea, Rating.of(2));
+
+        for (int change = 0; change < 100000; change++) {
+            ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, idea, Rating.of(change % 10));
+        }
+
+        assertThat(ratedIdeaService.getFinalRatingFor(contender), is(Optional.of((1 + 2 + 9) / 3.0)));
+    }
+
+    @Test
+    public void finalRatingIsTheSameWhenRatingsAreKeptOffHeap() {
+        ratedIdeaService = new RatedIdeaService(RatingStore::offHeap);
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(3);
+        Contender contender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas()));
+        publishManifesto(contender);
+        CitizenToken anotherIdeaRaterToken = new StubbedCitizenToken();
+        rateIdeas(IDEA_RATER_TOKEN, contenderIdeas.ideaList(), Arrays.asList(1, 2, 3));
+        rateIdeas(anotherIdeaRaterToken, contenderIdeas.ideaList(), Arrays.asList(5, 2, 3));
+
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(1), Rating.of(8));
+        ratedIdeaService.deleteCitizensRatingFor(anotherIdeaRaterToken, contenderIdeas.ideaList().get(0));
+
+        assertThat(ratedIdeaService.getFinalRatingFor(contender), is(Optional.of(9.0)));
+        assertThat(ratedIdeaService.getCitizensRatingFor(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(1)), is(Optional.of(Rating.of(8))));
+    }
+
+    @Test
+    public void aBatchOfRatingsUpdatesTheFinalRatingOfEachContenderRated() {
+        SomeUniqueIdeas contenderIdeas = new SomeUniqueIdeas(2);
+        Contender contender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(contenderIdeas.ideas()));
+        publishManifesto(contender);
+        CitizenToken anotherIdeaRaterToken = new StubbedCitizenToken();
+
+        ratedIdeaService.rateIdeas(Arrays.asList(
+                RatingCommand.of(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(0), Rating.of(2)),
+                RatingCommand.of(anotherIdeaRaterToken, contenderIdeas.ideaList().get(0), Rating.of(4)),
+                RatingCommand.of(IDEA_RATER_TOKEN, contenderIdeas.ideaList().get(1), Rating.of(5))), EVERY_CITIZEN_IS_REGISTERED);
+
+        assertThat(ratedIdeaService.getFinalRatingFor(contender), is(Optional.of(8.0)));
+        assertThat(ratedIdeaService.getCitizensRatingFor(anotherIdeaRaterToken, contenderIdeas.ideaList().get(0)), is(Optional.of(Rating.of(4))));
+    }
+
+    @Test
+    public void invalidRatingsInABatchAreRejectedWithoutFailingTheRestOfTheBatch() {
+        Idea publishedIdea = Idea.of("some idea");
+        Idea unpublishedIdea = Idea.of("some unpublished idea");
+        ratedIdeaService.publishIdeaToBeRated(publishedIdea, CONTENDER_WITH_MANIFESTO);
+        RatingCommand unpublishedIdeaRating = RatingCommand.of(IDEA_RATER_TOKEN, unpublishedIdea, Rating.of(3));
+        RatingCommand ownIdeaRating = RatingCommand.of(A_CONTENDER_TOKEN, publishedIdea, Rating.of(10));
+        RatingCommand validRating = RatingCommand.of(IDEA_RATER_TOKEN, publishedIdea, Rating.of(6));
+
+        List<RatingOutcome> outcomes = ratedIdeaService.rateIdeas(Arrays.asList(unpublishedIdeaRating, ownIdeaRating, validRating), EVERY_CITIZEN_IS_REGISTERED);
+
+        assertThat(outcomes, contains(
+                RatingOutcome.rejected(unpublishedIdeaRating, "This idea has not been published"),
+                RatingOutcome.rejected(ownIdeaRating, "Contenders cannot rate their own ideas"),
+                RatingOutcome.accepted(validRating)));
+        assertThat(ratedIdeaService.getFinalRatingFor(CONTENDER_WITH_MANIFESTO), is(Optional.of(6.0)));
+    }
+
+    @Test
+    public void ratingsFromUnregisteredCitizensInABatchAreRejectedWithoutFailingTheRestOfTheBatch() {
+        CitizenToken unregisteredRaterToken = new StubbedCitizenToken();
+        Idea someIdea = Idea.of("some idea");
+        ratedIdeaService.publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO);
+        RatingCommand unregisteredRating = RatingCommand.of(unregisteredRaterToken, someIdea, Rating.of(2));
+        RatingCommand validRating = RatingCommand.of(IDEA_RATER_TOKEN, someIdea, Rating.of(8));
+
+        List<RatingOutcome> outcomes = ratedIdeaService.rateIdeas(Arrays.asList(unregisteredRating, validRating),
+                citizenToken -> !citizenToken.equals(unregisteredRaterToken));
+
+        assertThat(outcomes, contains(
+                RatingOutcome.rejected(unregisteredRating, "Citizen is not registered"),
+                RatingOutcome.accepted(validRating)));
+        assertThat(ratedIdeaService.getCitizensRatingFor(unregisteredRaterToken, someIdea), is(Optional.empty()));
+        assertThat(ratedIdeaService.getFinalRatingFor(CONTENDER_WITH_MANIFESTO), is(Optional.of(8.0)));
+    }
+
+    @Test
+    public void contenderIsHandedOutAsTheyWereWhenTheyLastPublishedAnIdea() {
+        Idea firstIdea = Idea.of("some idea");
+        Idea secondIdea = Idea.of("some added idea");
+        Contender contenderWithSecondIdea = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(firstIdea, secondIdea));
+        ratedIdeaService.publishIdeaToBeRated(firstIdea, CONTENDER_WITH_MANIFESTO);
+        ratedIdeaService.publishIdeaToBeRated(secondIdea, contenderWithSecondIdea);
+
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, firstIdea, Rating.of(SOME_VALID_RATING_VALUE));
+
+        assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.of(contenderWithSecondIdea)));
+        assertThat(ratedIdeaService.getIdeaPublisher(firstIdea), is(Optional.of(contenderWithSecondIdea)));
+    }
+
+    @Test
+    public void contenderIsNotRankedWhenEveryRatingInTheBatchForThemIsRejected() {
+        Idea someIdea = Idea.of("some idea");
+        ratedIdeaService.publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO);
+
+        ratedIdeaService.rateIdeas(Arrays.asList(RatingCommand.of(A_CONTENDER_TOKEN, someIdea, Rating.of(10))), EVERY_CITIZEN_IS_REGISTERED);
+
+        assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.empty()));
+    }
+
     @Test
     public void thereisNoFinalRatingForAContenderWhenTheirIdeasAreAllUnrated() {
         Manifesto manifesto = Manifesto.of(new SomeUniqueIdeas(3).ideas());
@@ -167,8 +441,8 @@ public class RatedIdeaServiceTest {
 
         List<Integer> ratingsForFirstContender = Arrays.asList(1, 2, 3);
         List<Integer> ratingsForSecondContender = Arrays.asList(4, 5, 6);
-        rateIdeas(IDEA_RATER_TOKEN, firstContendersIdeas.ideaList, ratingsForFirstContender);
-        rateIdeas(IDEA_RATER_TOKEN, secondContendersIdeas.ideaList, ratingsForSecondContender);
+        rateIdeas(IDEA_RATER_TOKEN, firstContendersIdeas.ideaList(), ratingsForFirstContender);
+        rateIdeas(IDEA_RATER_TOKEN, secondContendersIdeas.ideaList(), ratingsForSecondContender);
 
         Contender expectedWinner = secondContender;
 
@@ -177,6 +451,35 @@ public class RatedIdeaServiceTest {
         assertThat(actualWinner, is(expectedWinner));
     }
 
+    @Test
+    public void contenderIsDisqualifiedWhenAnIdeaIsRatedLessThanFiveByMoreThanThreeVoters() {
+        Contender firstContender = Contender.of(A_CONTENDER_CITIZEN, Manifesto.of(Idea.of("first contender's idea")));
+        Contender secondContender = Contender.of(ANOTHER_CONTENDER_CITIZEN, Manifesto.of(Idea.of("second contender's idea")));
+        publishManifesto(firstContender);
+        publishManifesto(secondContender);
+        ratedIdeaService.rateIdea(IDEA_RATER_TOKEN, Idea.of("second contender's idea"), Rating.of(1));
+        List<CitizenToken> lowRaters = IntStream.range(0, 4).mapToObj(rater -> new StubbedCitizenToken()).collect(Collectors.toList());
+
+        lowRaters.forEach(rater -> ratedIdeaService.rateIdea(rater, Idea.of("first contender's idea"), Rating.of(4)));
+
+        assertThat(ratedIdeaService.isDisqualified(firstContender), is(true));
+        assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.of(secondContender)));
+    }
+
+    @Test
+    public void contenderIsNoLongerDisqualifiedWhenALowRatingIsDeleted() {
+        Idea someIdea = Idea.of("some idea");
+        ratedIdeaService.publishIdeaToBeRated(someIdea, CONTENDER_WITH_MANIFESTO);
+        List<CitizenToken> lowRaters = IntStream.range(0, 4).mapToObj(rater -> new StubbedCitizenToken()).collect(Collectors.toList());
+        ratedIdeaService.rateIdeas(lowRaters.stream().map(rater -> RatingCommand.of(rater, someIdea, Rating.of(2))).collect(Collectors.toList()), EVERY_CITIZEN_IS_REGISTERED);
+        assertThat(ratedIdeaService.isDisqualified(CONTENDER_WITH_MANIFESTO), is(true));
+
+        ratedIdeaService.deleteCitizensRatingFor(lowRaters.get(0), someIdea);
+
+        assertThat(ratedIdeaService.isDisqualified(CONTENDER_WITH_MANIFESTO), is(false));
+        assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.of(CONTENDER_WITH_MANIFESTO)));
+    }
+
     @Test
     public void thereIsNoWinnerIfThereAreNoContenders() {
         assertThat(ratedIdeaService.getContenderWithHighestFinalRating(), is(Optional.empty()));
@@ -208,19 +511,4 @@ public class RatedIdeaServiceTest {
         publishManifesto(firstContender);
         publishManifesto(secondContender);
     }
-
-    @Value
-    @Accessors(fluent = true)
-    private class SomeUniqueIdeas {
-        private final List<Idea> ideaList;
-
-        private SomeUniqueIdeas(int numberOfIdeas) {
-            ideaList=new ArrayList<>(numberOfIdeas);
-            IntStream.rangeClosed(1, numberOfIdeas).mapToObj(ideaNumber->"Idea"+ideaNumber).forEach(ideaDescription->ideaList.add(Idea.of(ideaDescription)));
-        }
-
-        private Idea[] ideas() {
-            return ideaList.stream().toArray(Idea[]::new);
-        }
-    }
-}
\ No newline at end of file
+}
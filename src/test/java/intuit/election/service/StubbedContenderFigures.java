@@ -0,0 +1,41 @@
+package intuit.election.service;
+
+import intuit.election.domain.Contender;
+
+/**
+ * Figures a test sets directly instead of rating the contender's ideas
+ */
+class StubbedContenderFigures implements Leaderboard.ContenderFigures {
+    private final Contender contender;
+    private volatile double finalRating;
+    private volatile boolean disqualified;
+
+    StubbedContenderFigures(Contender contender) {
+        this.contender = contender;
+    }
+
+    @Override
+    public Contender getContender() {
+        return contender;
+    }
+
+    @Override
+    public double getFinalRating() {
+        return finalRating;
+    }
+
+    @Override
+    public boolean isDisqualified() {
+        return disqualified;
+    }
+
+    synchronized StubbedContenderFigures adjustFinalRating(double finalRatingChange) {
+        finalRating += finalRatingChange;
+        return this;
+    }
+
+    StubbedContenderFigures disqualify(boolean disqualified) {
+        this.disqualified = disqualified;
+        return this;
+    }
+}
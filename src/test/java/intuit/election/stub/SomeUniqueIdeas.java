@@ -0,0 +1,31 @@
+package intuit.election.stub;
+
+import intuit.election.domain.Idea;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Ideas numbered across every SomeUniqueIdeas, so that the ideas of different contenders never share a description
+ */
+public class SomeUniqueIdeas {
+    private static final AtomicInteger IDEAS_CREATED = new AtomicInteger();
+
+    private final List<Idea> ideaList;
+
+    public SomeUniqueIdeas(int numberOfIdeas) {
+        ideaList = IntStream.rangeClosed(1, numberOfIdeas)
+                .mapToObj(ideaNumber -> Idea.of("Idea" + IDEAS_CREATED.incrementAndGet()))
+                .collect(Collectors.toList());
+    }
+
+    public List<Idea> ideaList() {
+        return ideaList;
+    }
+
+    public Idea[] ideas() {
+        return ideaList.toArray(new Idea[0]);
+    }
+}
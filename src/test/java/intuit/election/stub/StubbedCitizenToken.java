@@ -2,4 +2,15 @@ package intuit.election.stub;
 
 import intuit.election.domain.CitizenToken;
 
-public class StubbedCitizenToken implements CitizenToken {}
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StubbedCitizenToken implements CitizenToken {
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id = NEXT_ID.getAndIncrement();
+
+    @Override
+    public int id() {
+        return id;
+    }
+}